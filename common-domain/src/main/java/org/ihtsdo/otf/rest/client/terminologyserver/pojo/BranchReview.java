@@ -0,0 +1,50 @@
+package org.ihtsdo.otf.rest.client.terminologyserver.pojo;
+
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+
+/**
+ * A Snowstorm review of the changes made on a source branch compared to a target branch.
+ */
+@JsonIgnoreProperties(ignoreUnknown = true)
+public class BranchReview {
+
+	public enum ReviewStatus {
+		/** The changed concepts are still being collected. */
+		PENDING,
+
+		/** The changed concepts are available and up to date. */
+		CURRENT,
+
+		/** A commit on either branch has made the review out of date. */
+		STALE,
+
+		FAILED
+	}
+
+	private String id;
+	private ReviewStatus status;
+
+	public String getId() {
+		return id;
+	}
+
+	public void setId(String id) {
+		this.id = id;
+	}
+
+	public ReviewStatus getStatus() {
+		return status;
+	}
+
+	public void setStatus(ReviewStatus status) {
+		this.status = status;
+	}
+
+	@Override
+	public String toString() {
+		return "BranchReview{" +
+				"id='" + id + '\'' +
+				", status=" + status +
+				'}';
+	}
+}
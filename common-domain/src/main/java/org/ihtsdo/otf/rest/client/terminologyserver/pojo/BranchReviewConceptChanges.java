@@ -0,0 +1,23 @@
+package org.ihtsdo.otf.rest.client.terminologyserver.pojo;
+
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+
+import java.util.Set;
+
+/**
+ * The concepts changed on the source branch of a {@link BranchReview}, including concepts whose descriptions,
+ * relationships, axioms or refset members changed.
+ */
+@JsonIgnoreProperties(ignoreUnknown = true)
+public class BranchReviewConceptChanges {
+
+	private Set<String> changedConcepts;
+
+	public Set<String> getChangedConcepts() {
+		return changedConcepts;
+	}
+
+	public void setChangedConcepts(Set<String> changedConcepts) {
+		this.changedConcepts = changedConcepts;
+	}
+}
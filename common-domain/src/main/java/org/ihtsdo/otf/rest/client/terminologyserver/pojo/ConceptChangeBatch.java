@@ -0,0 +1,78 @@
+package org.ihtsdo.otf.rest.client.terminologyserver.pojo;
+
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+
+import java.util.List;
+
+/**
+ * The state of a bulk concept change, as reported by Snowstorm while it validates and saves a batch of concepts.
+ */
+@JsonIgnoreProperties(ignoreUnknown = true)
+public class ConceptChangeBatch {
+
+	public enum ConceptChangeBatchStatus {
+		RUNNING, COMPLETED, FAILED
+	}
+
+	private String id;
+	private ConceptChangeBatchStatus status;
+	private List<String> conceptIds;
+	private String message;
+	private Float secondsDuration;
+
+	public String getId() {
+		return id;
+	}
+
+	public void setId(String id) {
+		this.id = id;
+	}
+
+	public ConceptChangeBatchStatus getStatus() {
+		return status;
+	}
+
+	public void setStatus(ConceptChangeBatchStatus status) {
+		this.status = status;
+	}
+
+	/**
+	 * @return the ids of the saved concepts, in the order they were sent, once the batch has COMPLETED.
+	 */
+	public List<String> getConceptIds() {
+		return conceptIds;
+	}
+
+	public void setConceptIds(List<String> conceptIds) {
+		this.conceptIds = conceptIds;
+	}
+
+	/**
+	 * @return the reason the batch FAILED.
+	 */
+	public String getMessage() {
+		return message;
+	}
+
+	public void setMessage(String message) {
+		this.message = message;
+	}
+
+	public Float getSecondsDuration() {
+		return secondsDuration;
+	}
+
+	public void setSecondsDuration(Float secondsDuration) {
+		this.secondsDuration = secondsDuration;
+	}
+
+	@Override
+	public String toString() {
+		return "ConceptChangeBatch{" +
+				"id='" + id + '\'' +
+				", status=" + status +
+				", concepts=" + (conceptIds != null ? conceptIds.size() : 0) +
+				", message='" + message + '\'' +
+				'}';
+	}
+}
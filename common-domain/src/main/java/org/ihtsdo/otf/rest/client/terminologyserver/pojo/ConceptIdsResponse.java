@@ -7,6 +7,8 @@ public final class ConceptIdsResponse {
 
 	private long total;
 
+	private String searchAfter;
+
 	private Set<ConceptResponse> items;
 
 	private ConceptIdsResponse() {
@@ -30,6 +32,14 @@ public final class ConceptIdsResponse {
 		this.total = total;
 	}
 
+	public String getSearchAfter() {
+		return searchAfter;
+	}
+
+	public void setSearchAfter(String searchAfter) {
+		this.searchAfter = searchAfter;
+	}
+
 	public Set<ConceptResponse> getItems() {
 		return items;
 	}
@@ -0,0 +1,61 @@
+package org.ihtsdo.otf.rest.client.terminologyserver.pojo;
+
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+
+/**
+ * A concept changed on both sides of a merge review, as returned by the merge review details endpoint.
+ */
+@JsonIgnoreProperties(ignoreUnknown = true)
+public class MergeReviewConceptVersions {
+
+	private ConceptPojo sourceConcept;
+	private ConceptPojo targetConcept;
+	private ConceptPojo autoMergedConcept;
+	private ConceptPojo manuallyMergedConcept;
+	private boolean targetConceptVersionBehind;
+
+	public ConceptPojo getSourceConcept() {
+		return sourceConcept;
+	}
+
+	public void setSourceConcept(ConceptPojo sourceConcept) {
+		this.sourceConcept = sourceConcept;
+	}
+
+	public ConceptPojo getTargetConcept() {
+		return targetConcept;
+	}
+
+	public void setTargetConcept(ConceptPojo targetConcept) {
+		this.targetConcept = targetConcept;
+	}
+
+	public ConceptPojo getAutoMergedConcept() {
+		return autoMergedConcept;
+	}
+
+	public void setAutoMergedConcept(ConceptPojo autoMergedConcept) {
+		this.autoMergedConcept = autoMergedConcept;
+	}
+
+	public ConceptPojo getManuallyMergedConcept() {
+		return manuallyMergedConcept;
+	}
+
+	public void setManuallyMergedConcept(ConceptPojo manuallyMergedConcept) {
+		this.manuallyMergedConcept = manuallyMergedConcept;
+	}
+
+	public boolean isTargetConceptVersionBehind() {
+		return targetConceptVersionBehind;
+	}
+
+	public void setTargetConceptVersionBehind(boolean targetConceptVersionBehind) {
+		this.targetConceptVersionBehind = targetConceptVersionBehind;
+	}
+
+	public String getConceptId() {
+		ConceptPojo concept = sourceConcept != null ? sourceConcept : targetConcept;
+		return concept != null ? concept.getConceptId() : null;
+	}
+}
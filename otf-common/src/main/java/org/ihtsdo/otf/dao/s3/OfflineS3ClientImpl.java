@@ -15,6 +15,7 @@ import java.time.Instant;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Comparator;
+import java.util.List;
 
 /**
  * Offers an offline version of S3 cloud storage for testing or working offline.
@@ -239,6 +240,23 @@ public class OfflineS3ClientImpl implements S3Client, TestS3Client {
 		}
 	}
 
+	@Override
+	public DeleteObjectsResponse deleteObjects(String bucketName, Collection<String> keys) throws S3Exception {
+		List<DeletedObject> deleted = new ArrayList<>();
+		List<S3Error> errors = new ArrayList<>();
+		for (String key : keys) {
+			File file = getFile(bucketName, key);
+			// As in S3, only objects are deleted and deleting one which does not exist succeeds
+			if (file.isFile() && !file.delete()) {
+				errors.add(S3Error.builder().key(key).code("InternalError").message("Failed to delete " + file.getAbsoluteFile()).build());
+			} else {
+				deleted.add(DeletedObject.builder().key(key).build());
+			}
+		}
+		LOGGER.debug("Deleted {} of {} objects from bucket {}.", deleted.size(), keys.size(), bucketName);
+		return DeleteObjectsResponse.builder().deleted(deleted).errors(errors).build();
+	}
+
 	@Override
 	public boolean exists(String bucketName, String key) throws S3Exception {
 		return getFile(bucketName, key).exists();
@@ -8,6 +8,9 @@ import software.amazon.awssdk.services.s3.model.*;
 import java.io.File;
 import java.io.InputStream;
 import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
 
 public interface S3Client {
 
@@ -35,6 +38,28 @@ public interface S3Client {
 
 	void deleteObject(String bucketName, String key) throws S3Exception;
 
+	/**
+	 * Deletes the objects using as few multi-object delete requests as possible.
+	 * As with a multi-object delete, keys which do not exist count as deleted and failures are reported per key.
+	 * By default the objects are deleted one at a time with {@link #deleteObject(String, String)}.
+	 *
+	 * @return the keys deleted and the errors for those which could not be deleted.
+	 */
+	default DeleteObjectsResponse deleteObjects(String bucketName, Collection<String> keys) throws S3Exception {
+		List<DeletedObject> deleted = new ArrayList<>();
+		List<S3Error> errors = new ArrayList<>();
+		for (String key : keys) {
+			try {
+				deleteObject(bucketName, key);
+				deleted.add(DeletedObject.builder().key(key).build());
+			} catch (S3Exception e) {
+				String code = e.awsErrorDetails() != null ? e.awsErrorDetails().errorCode() : null;
+				errors.add(S3Error.builder().key(key).code(code).message(e.getMessage()).build());
+			}
+		}
+		return DeleteObjectsResponse.builder().deleted(deleted).errors(errors).build();
+	}
+
 	boolean exists(String bucketName, String key) throws S3Exception;
 
 	String getString(String bucketName, String key);
@@ -12,9 +12,16 @@ import software.amazon.awssdk.services.s3.model.*;
 import java.io.*;
 import java.nio.charset.StandardCharsets;
 import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.stream.Collectors;
 
 public class S3ClientImpl implements S3Client {
 
+	// Most keys S3 accepts in one multi-object delete request
+	private static final int MAX_DELETE_KEYS = 1000;
+
 	private final software.amazon.awssdk.services.s3.S3Client amazonS3Client;
 	public S3ClientImpl(software.amazon.awssdk.services.s3.S3Client s3Client) {
 		this.amazonS3Client = s3Client;
@@ -118,6 +125,22 @@ public class S3ClientImpl implements S3Client {
 		amazonS3Client.deleteObject(dr -> dr.bucket(bucketName).key(key));
 	}
 
+	@Override
+	public DeleteObjectsResponse deleteObjects(String bucketName, Collection<String> keys) throws S3Exception {
+		List<ObjectIdentifier> objects = keys.stream()
+				.map(key -> ObjectIdentifier.builder().key(key).build())
+				.collect(Collectors.toList());
+		List<DeletedObject> deleted = new ArrayList<>();
+		List<S3Error> errors = new ArrayList<>();
+		for (int start = 0; start < objects.size(); start += MAX_DELETE_KEYS) {
+			List<ObjectIdentifier> batch = objects.subList(start, Math.min(start + MAX_DELETE_KEYS, objects.size()));
+			DeleteObjectsResponse response = amazonS3Client.deleteObjects(dr -> dr.bucket(bucketName).delete(d -> d.objects(batch)));
+			deleted.addAll(response.deleted());
+			errors.addAll(response.errors());
+		}
+		return DeleteObjectsResponse.builder().deleted(deleted).errors(errors).build();
+	}
+
 	private File cacheLocally(InputStream inputStream, String key) {
 		try (InputStream input = inputStream) {
 			File cachedFile = File.createTempFile(key, ".cached");
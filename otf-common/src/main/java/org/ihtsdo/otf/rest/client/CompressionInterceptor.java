@@ -0,0 +1,89 @@
+package org.ihtsdo.otf.rest.client;
+
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpRequest;
+import org.springframework.http.HttpStatusCode;
+import org.springframework.http.client.ClientHttpRequestExecution;
+import org.springframework.http.client.ClientHttpRequestInterceptor;
+import org.springframework.http.client.ClientHttpResponse;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * Asks for gzip or deflate compressed responses and decodes them as they are read, so message converters
+ * parse straight from the decompressing stream. Add it last, so it is nearest the wire, and use a request factory
+ * which does not decode responses itself; see {@link HttpTransportConfiguration}.
+ */
+public class CompressionInterceptor implements ClientHttpRequestInterceptor {
+
+	private final CompressionStatistics statistics;
+
+	public CompressionInterceptor() {
+		this(new CompressionStatistics());
+	}
+
+	public CompressionInterceptor(CompressionStatistics statistics) {
+		this.statistics = statistics;
+	}
+
+	@Override
+	public ClientHttpResponse intercept(HttpRequest request, byte[] body, ClientHttpRequestExecution execution) throws IOException {
+		if (!request.getHeaders().containsKey(HttpHeaders.ACCEPT_ENCODING)) {
+			request.getHeaders().set(HttpHeaders.ACCEPT_ENCODING, CompressionStatistics.ACCEPT_ENCODING);
+		}
+		ClientHttpResponse response = execution.execute(request, body);
+		String contentEncoding = response.getHeaders().getFirst(HttpHeaders.CONTENT_ENCODING);
+		return CompressionStatistics.isSupported(contentEncoding) ? new DecodedResponse(response, contentEncoding) : response;
+	}
+
+	public CompressionStatistics getStatistics() {
+		return statistics;
+	}
+
+	private class DecodedResponse implements ClientHttpResponse {
+
+		private final ClientHttpResponse delegate;
+		private final String contentEncoding;
+		private final HttpHeaders headers;
+		private InputStream body;
+
+		private DecodedResponse(ClientHttpResponse delegate, String contentEncoding) {
+			this.delegate = delegate;
+			this.contentEncoding = contentEncoding;
+			this.headers = new HttpHeaders();
+			this.headers.putAll(delegate.getHeaders());
+			// Describe the body as it is read from here on
+			this.headers.remove(HttpHeaders.CONTENT_ENCODING);
+			this.headers.remove(HttpHeaders.CONTENT_LENGTH);
+		}
+
+		@Override
+		public HttpStatusCode getStatusCode() throws IOException {
+			return delegate.getStatusCode();
+		}
+
+		@Override
+		public String getStatusText() throws IOException {
+			return delegate.getStatusText();
+		}
+
+		@Override
+		public HttpHeaders getHeaders() {
+			return headers;
+		}
+
+		@Override
+		public InputStream getBody() throws IOException {
+			if (body == null) {
+				body = statistics.decode(contentEncoding, delegate.getBody());
+			}
+			return body;
+		}
+
+		@Override
+		public void close() {
+			delegate.close();
+		}
+	}
+}
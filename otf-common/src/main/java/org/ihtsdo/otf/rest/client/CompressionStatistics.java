@@ -0,0 +1,121 @@
+package org.ihtsdo.otf.rest.client;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.PushbackInputStream;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.InflaterInputStream;
+
+/**
+ * Decodes gzip and deflate response bodies on the fly and keeps count of the bytes received over the wire
+ * against the bytes they decoded to, so the saving from compression can be seen.
+ * Responses which were not compressed are not counted.
+ */
+public class CompressionStatistics {
+
+	public static final String ACCEPT_ENCODING = "gzip, deflate";
+
+	private final AtomicLong compressedResponses = new AtomicLong();
+	private final AtomicLong wireBytes = new AtomicLong();
+	private final AtomicLong decodedBytes = new AtomicLong();
+
+	/**
+	 * @param contentEncoding the Content-Encoding header of the response, may be {@code null}.
+	 * @return a stream of the decoded body, or <code>body</code> itself if it was not compressed.
+	 */
+	public InputStream decode(String contentEncoding, InputStream body) throws IOException {
+		if (!isSupported(contentEncoding) || body == null) {
+			return body;
+		}
+		String encoding = contentEncoding.trim().toLowerCase();
+		PushbackInputStream pushback = new PushbackInputStream(body, 1);
+		int first = pushback.read();
+		if (first == -1) {
+			// No body, eg a 204, which has nothing to decode
+			return pushback;
+		}
+		pushback.unread(first);
+		InputStream wire = new CountingInputStream(pushback, wireBytes);
+		InputStream decoded;
+		if ("gzip".equals(encoding) || "x-gzip".equals(encoding)) {
+			decoded = new GZIPInputStream(wire);
+		} else {
+			decoded = new InflaterInputStream(wire);
+		}
+		compressedResponses.incrementAndGet();
+		return new CountingInputStream(decoded, decodedBytes);
+	}
+
+	public static boolean isSupported(String contentEncoding) {
+		if (contentEncoding == null) {
+			return false;
+		}
+		String encoding = contentEncoding.trim().toLowerCase();
+		return "gzip".equals(encoding) || "x-gzip".equals(encoding) || "deflate".equals(encoding);
+	}
+
+	public long getCompressedResponses() {
+		return compressedResponses.get();
+	}
+
+	public long getWireBytes() {
+		return wireBytes.get();
+	}
+
+	public long getDecodedBytes() {
+		return decodedBytes.get();
+	}
+
+	/**
+	 * @return the bytes not transferred thanks to compression, so far.
+	 */
+	public long getSavedBytes() {
+		return Math.max(0, decodedBytes.get() - wireBytes.get());
+	}
+
+	@Override
+	public String toString() {
+		return "CompressionStatistics{" +
+				"compressedResponses=" + compressedResponses +
+				", wireBytes=" + wireBytes +
+				", decodedBytes=" + decodedBytes +
+				'}';
+	}
+
+	private static class CountingInputStream extends FilterInputStream {
+
+		private final AtomicLong count;
+
+		private CountingInputStream(InputStream in, AtomicLong count) {
+			super(in);
+			this.count = count;
+		}
+
+		@Override
+		public int read() throws IOException {
+			int read = super.read();
+			if (read != -1) {
+				count.incrementAndGet();
+			}
+			return read;
+		}
+
+		@Override
+		public int read(byte[] b, int off, int len) throws IOException {
+			int read = super.read(b, off, len);
+			if (read > 0) {
+				count.addAndGet(read);
+			}
+			return read;
+		}
+
+		@Override
+		public long skip(long n) throws IOException {
+			long skipped = super.skip(n);
+			count.addAndGet(skipped);
+			return skipped;
+		}
+	}
+}
@@ -0,0 +1,202 @@
+package org.ihtsdo.otf.rest.client;
+
+import org.apache.hc.client5.http.config.ConnectionConfig;
+import org.apache.hc.client5.http.impl.classic.CloseableHttpClient;
+import org.apache.hc.client5.http.impl.classic.HttpClients;
+import org.apache.hc.client5.http.impl.io.PoolingHttpClientConnectionManager;
+import org.apache.hc.client5.http.impl.io.PoolingHttpClientConnectionManagerBuilder;
+import org.apache.hc.core5.util.TimeValue;
+import org.apache.hc.core5.util.Timeout;
+import org.springframework.http.client.ClientHttpRequestFactory;
+import org.springframework.http.client.HttpComponentsClientHttpRequestFactory;
+import org.springframework.http.client.JdkClientHttpRequestFactory;
+import us.monoid.web.Resty;
+
+import java.net.URLConnection;
+import java.net.http.HttpClient;
+import java.time.Duration;
+
+/**
+ * Connection pooling and timeout settings for the HTTP transport used by the OTF rest clients.
+ * The request factory is built once, on first use, so every client given the same configuration
+ * shares one connection pool. The pool and timeout settings can not be changed once it has been built.
+ * When HTTP/2 is enabled the JDK HttpClient is used, which keeps and multiplexes its own connections,
+ * so the per route and idle eviction limits do not apply.
+ * Response compression is negotiated by a {@link CompressionInterceptor} rather than by the HTTP client itself,
+ * so it works the same on both and the bytes saved can be counted.
+ */
+public class HttpTransportConfiguration {
+
+	private int maxConnectionsTotal = 50;
+	private int maxConnectionsPerRoute = 20;
+	private int idleEvictionSeconds = 30;
+	private int connectTimeoutSeconds = 15;
+	private int readTimeoutSeconds = 180;
+	private boolean http2;
+	private boolean compression = true;
+	private final CompressionStatistics compressionStatistics = new CompressionStatistics();
+
+	private ClientHttpRequestFactory requestFactory;
+
+	public int getMaxConnectionsTotal() {
+		return maxConnectionsTotal;
+	}
+
+	public synchronized HttpTransportConfiguration setMaxConnectionsTotal(int maxConnectionsTotal) {
+		checkNotBuilt();
+		this.maxConnectionsTotal = maxConnectionsTotal;
+		return this;
+	}
+
+	public int getMaxConnectionsPerRoute() {
+		return maxConnectionsPerRoute;
+	}
+
+	public synchronized HttpTransportConfiguration setMaxConnectionsPerRoute(int maxConnectionsPerRoute) {
+		checkNotBuilt();
+		this.maxConnectionsPerRoute = maxConnectionsPerRoute;
+		return this;
+	}
+
+	public int getIdleEvictionSeconds() {
+		return idleEvictionSeconds;
+	}
+
+	public synchronized HttpTransportConfiguration setIdleEvictionSeconds(int idleEvictionSeconds) {
+		checkNotBuilt();
+		this.idleEvictionSeconds = idleEvictionSeconds;
+		return this;
+	}
+
+	public int getConnectTimeoutSeconds() {
+		return connectTimeoutSeconds;
+	}
+
+	public synchronized HttpTransportConfiguration setConnectTimeoutSeconds(int connectTimeoutSeconds) {
+		checkNotBuilt();
+		this.connectTimeoutSeconds = connectTimeoutSeconds;
+		return this;
+	}
+
+	public int getReadTimeoutSeconds() {
+		return readTimeoutSeconds;
+	}
+
+	public synchronized HttpTransportConfiguration setReadTimeoutSeconds(int readTimeoutSeconds) {
+		checkNotBuilt();
+		this.readTimeoutSeconds = readTimeoutSeconds;
+		return this;
+	}
+
+	public boolean isHttp2() {
+		return http2;
+	}
+
+	public synchronized HttpTransportConfiguration setHttp2(boolean http2) {
+		checkNotBuilt();
+		this.http2 = http2;
+		return this;
+	}
+
+	public boolean isCompression() {
+		return compression;
+	}
+
+	/**
+	 * Ask for gzip or deflate compressed responses. On by default.
+	 */
+	public synchronized HttpTransportConfiguration setCompression(boolean compression) {
+		checkNotBuilt();
+		this.compression = compression;
+		return this;
+	}
+
+	/**
+	 * @return the compression counts of every client sharing this configuration.
+	 */
+	public CompressionStatistics getCompressionStatistics() {
+		return compressionStatistics;
+	}
+
+	/**
+	 * @return an interceptor to add last to a RestTemplate using {@link #getRequestFactory()}, or {@code null}
+	 * if compression is disabled.
+	 */
+	public CompressionInterceptor createCompressionInterceptor() {
+		return compression ? new CompressionInterceptor(compressionStatistics) : null;
+	}
+
+	/**
+	 * @return the request factory to pass to a {@link org.springframework.web.client.RestTemplate},
+	 * shared by every caller of this configuration.
+	 */
+	public synchronized ClientHttpRequestFactory getRequestFactory() {
+		if (requestFactory == null) {
+			requestFactory = http2 ? createJdkRequestFactory() : createPooledRequestFactory();
+		}
+		return requestFactory;
+	}
+
+	private void checkNotBuilt() {
+		if (requestFactory != null) {
+			throw new IllegalStateException("The request factory has already been built, transport settings can no longer be changed.");
+		}
+	}
+
+	/**
+	 * Resty goes through {@link URLConnection}, which keeps connections alive in the JVM wide keep-alive cache
+	 * rather than a pool of its own. This option applies the same timeouts to it.
+	 */
+	public Resty.Option getRestyOption() {
+		return new Resty.Option() {
+			@Override
+			public void apply(URLConnection connection) {
+				connection.setConnectTimeout(connectTimeoutSeconds * 1000);
+				connection.setReadTimeout(readTimeoutSeconds * 1000);
+			}
+		};
+	}
+
+	private ClientHttpRequestFactory createPooledRequestFactory() {
+		PoolingHttpClientConnectionManager connectionManager = PoolingHttpClientConnectionManagerBuilder.create()
+				.setMaxConnTotal(maxConnectionsTotal)
+				.setMaxConnPerRoute(maxConnectionsPerRoute)
+				.setDefaultConnectionConfig(ConnectionConfig.custom()
+						.setConnectTimeout(Timeout.ofSeconds(connectTimeoutSeconds))
+						.setSocketTimeout(Timeout.ofSeconds(readTimeoutSeconds))
+						.build())
+				.build();
+		CloseableHttpClient httpClient = HttpClients.custom()
+				.setConnectionManager(connectionManager)
+				.evictExpiredConnections()
+				.evictIdleConnections(TimeValue.ofSeconds(idleEvictionSeconds))
+				// Left to CompressionInterceptor
+				.disableContentCompression()
+				.build();
+		return new HttpComponentsClientHttpRequestFactory(httpClient);
+	}
+
+	private ClientHttpRequestFactory createJdkRequestFactory() {
+		HttpClient httpClient = HttpClient.newBuilder()
+				.version(HttpClient.Version.HTTP_2)
+				.connectTimeout(Duration.ofSeconds(connectTimeoutSeconds))
+				.followRedirects(HttpClient.Redirect.NORMAL)
+				.build();
+		JdkClientHttpRequestFactory requestFactory = new JdkClientHttpRequestFactory(httpClient);
+		requestFactory.setReadTimeout(Duration.ofSeconds(readTimeoutSeconds));
+		return requestFactory;
+	}
+
+	@Override
+	public String toString() {
+		return "HttpTransportConfiguration{" +
+				"maxConnectionsTotal=" + maxConnectionsTotal +
+				", maxConnectionsPerRoute=" + maxConnectionsPerRoute +
+				", idleEvictionSeconds=" + idleEvictionSeconds +
+				", connectTimeoutSeconds=" + connectTimeoutSeconds +
+				", readTimeoutSeconds=" + readTimeoutSeconds +
+				", http2=" + http2 +
+				", compression=" + compression +
+				'}';
+	}
+}
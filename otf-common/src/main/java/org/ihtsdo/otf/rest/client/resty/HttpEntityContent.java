@@ -14,6 +14,8 @@ import java.net.URLConnection;
 @Deprecated
 public class HttpEntityContent extends AbstractContent {
 
+	private static final int CHUNK_SIZE = 64 * 1024;
+
 	private final HttpEntity httpEntity;
 
 	public HttpEntityContent(HttpEntity httpEntity) {
@@ -43,12 +45,19 @@ public class HttpEntityContent extends AbstractContent {
 		conn.setDoOutput(true);
 
 		conn.setRequestProperty("Connection", "Keep-Alive");
-		conn.addRequestProperty("Content-length", entity.getContentLength() + "");
 		conn.addRequestProperty(entity.getContentType().getName(), entity.getContentType().getValue());
 
-		OutputStream os = conn.getOutputStream();
-		entity.writeTo(conn.getOutputStream());
-		os.close();
+		// Stream the body rather than letting HttpURLConnection buffer all of it in memory first
+		long contentLength = entity.getContentLength();
+		if (contentLength >= 0) {
+			conn.setFixedLengthStreamingMode(contentLength);
+		} else {
+			conn.setChunkedStreamingMode(CHUNK_SIZE);
+		}
+
+		try (OutputStream os = conn.getOutputStream()) {
+			entity.writeTo(os);
+		}
 	}
 
 }
@@ -16,14 +16,21 @@ public class RestyHelper extends RestyMod {
 
 	public static final String UTF_8 = "UTF-8";
 
-	public RestyHelper(final String defaultAcceptableContent) {
+	public RestyHelper(final String defaultAcceptableContent, Resty.Option... additionalOptions) {
 
-		super(new Resty.Option() {
+		super(withAdditionalOptions(new Resty.Option() {
 			@Override
 			public void apply(URLConnection aConnection) {
 				aConnection.addRequestProperty("Accept", defaultAcceptableContent);
 			}
-		});
+		}, additionalOptions));
+	}
+
+	private static Resty.Option[] withAdditionalOptions(Resty.Option acceptOption, Resty.Option... additionalOptions) {
+		Resty.Option[] options = new Resty.Option[additionalOptions.length + 1];
+		options[0] = acceptOption;
+		System.arraycopy(additionalOptions, 0, options, 1, additionalOptions.length);
+		return options;
 	}
 
 	public static Content content(JSONObject someJson, String aMimeType) {
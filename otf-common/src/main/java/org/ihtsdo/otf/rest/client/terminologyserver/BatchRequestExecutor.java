@@ -0,0 +1,186 @@
+package org.ihtsdo.otf.rest.client.terminologyserver;
+
+import com.google.common.collect.Lists;
+import org.ihtsdo.otf.rest.client.RestClientException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.HttpStatusCode;
+import org.springframework.web.client.HttpStatusCodeException;
+import org.springframework.web.client.ResourceAccessException;
+
+import java.io.IOException;
+import java.util.*;
+import java.util.concurrent.*;
+
+/**
+ * Splits a collection of ids into batches and runs a request per batch with bounded concurrency.
+ * Batches which fail with a transient error are retried on their own after a jittered backoff;
+ * batches which succeeded are not sent again.
+ */
+class BatchRequestExecutor {
+
+	private static final Logger LOGGER = LoggerFactory.getLogger(BatchRequestExecutor.class);
+	private static final long INITIAL_BACKOFF_MILLIS = 250;
+	private static final long MAX_BACKOFF_MILLIS = 5_000;
+
+	interface BatchRequest<R> {
+		R execute(List<String> batch) throws RestClientException;
+	}
+
+	private final int maxConcurrency;
+	private final int maxRetries;
+	private final SnowstormClientMetrics metrics;
+	private final String operation;
+
+	/**
+	 * @param metrics   to count retried batches against the operation, or {@code null}.
+	 */
+	BatchRequestExecutor(int maxConcurrency, int maxRetries, SnowstormClientMetrics metrics, String operation) {
+		if (maxConcurrency < 1) {
+			throw new IllegalArgumentException("Batch concurrency must be at least 1");
+		}
+		this.maxConcurrency = maxConcurrency;
+		this.maxRetries = Math.max(0, maxRetries);
+		this.metrics = metrics;
+		this.operation = operation;
+	}
+
+	/**
+	 * @return the result of each batch, in the order the batches were taken from <code>ids</code>.
+	 */
+	<R> List<R> execute(Collection<String> ids, int batchSize, BatchRequest<R> request) throws RestClientException {
+		return execute(Lists.partition(new ArrayList<>(ids), batchSize), request);
+	}
+
+	/**
+	 * Runs a request per batch where the caller has already decided how to group the ids.
+	 * @return the result of each batch, in the order of <code>batches</code>.
+	 */
+	<R> List<R> execute(List<List<String>> batches, BatchRequest<R> request) throws RestClientException {
+		if (batches.isEmpty()) {
+			return new ArrayList<>();
+		}
+
+		Map<Integer, R> results = new HashMap<>();
+		List<Integer> pending = new ArrayList<>();
+		for (int i = 0; i < batches.size(); i++) {
+			pending.add(i);
+		}
+
+		// A single batch runs on the calling thread
+		ExecutorService executorService = batches.size() > 1 ? Executors.newFixedThreadPool(Math.min(maxConcurrency, batches.size())) : null;
+		try {
+			Exception lastFailure = null;
+			for (int attempt = 0; attempt <= maxRetries && !pending.isEmpty(); attempt++) {
+				if (attempt > 0) {
+					LOGGER.warn("Retrying {} of {} failed batches, attempt {} of {}", pending.size(), batches.size(), attempt, maxRetries);
+					if (metrics != null) {
+						metrics.recordRetries(operation, pending.size());
+					}
+					Thread.sleep(getBackoffMillis(attempt));
+				}
+				List<Integer> failed = new ArrayList<>();
+				if (executorService == null) {
+					try {
+						results.put(0, request.execute(batches.get(0)));
+					} catch (RestClientException | RuntimeException e) {
+						lastFailure = handleFailure(e);
+						failed.add(0);
+					}
+				} else {
+					Map<Integer, Future<R>> futures = new LinkedHashMap<>();
+					for (Integer index : pending) {
+						List<String> batch = batches.get(index);
+						futures.put(index, executorService.submit(() -> request.execute(batch)));
+					}
+					for (Map.Entry<Integer, Future<R>> entry : futures.entrySet()) {
+						try {
+							results.put(entry.getKey(), entry.getValue().get());
+						} catch (ExecutionException e) {
+							Throwable cause = e.getCause();
+							if (!(cause instanceof Exception exception)) {
+								throw new RestClientException("Batch request failed", cause);
+							}
+							lastFailure = handleFailure(exception);
+							failed.add(entry.getKey());
+						}
+					}
+				}
+				pending = failed;
+			}
+			if (!pending.isEmpty()) {
+				if (batches.size() == 1 && lastFailure instanceof RestClientException restClientException) {
+					throw restClientException;
+				}
+				throw new RestClientException(pending.size() + " of " + batches.size() + " batches failed after " + maxRetries + " retries", lastFailure);
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new RestClientException("Interrupted while waiting for batch requests", e);
+		} finally {
+			if (executorService != null) {
+				executorService.shutdownNow();
+			}
+		}
+
+		List<R> ordered = new ArrayList<>(batches.size());
+		for (int i = 0; i < batches.size(); i++) {
+			ordered.add(results.get(i));
+		}
+		return ordered;
+	}
+
+	/**
+	 * @return the failure if the batch may succeed when sent again, otherwise throws it.
+	 */
+	private static Exception handleFailure(Exception failure) throws RestClientException {
+		if (isTransient(failure)) {
+			return failure;
+		}
+		if (failure instanceof RestClientException restClientException) {
+			throw restClientException;
+		} else if (failure instanceof RuntimeException runtimeException) {
+			throw runtimeException;
+		}
+		throw new RestClientException("Batch request failed", failure);
+	}
+
+	/**
+	 * Only I/O errors, server errors and throttling are worth retrying, the same request would get any other error again.
+	 * An open circuit is not, the limiter is failing requests fast on purpose.
+	 */
+	static boolean isTransient(Throwable failure) {
+		if (isCircuitOpen(failure)) {
+			return false;
+		}
+		for (Throwable cause = failure; cause != null; cause = cause.getCause()) {
+			if (cause instanceof ResourceAccessException || cause instanceof IOException) {
+				return true;
+			}
+			if (cause instanceof HttpStatusCodeException statusCodeException) {
+				HttpStatusCode statusCode = statusCodeException.getStatusCode();
+				return statusCode.is5xxServerError() || statusCode.value() == HttpStatus.TOO_MANY_REQUESTS.value();
+			}
+		}
+		return false;
+	}
+
+	private static boolean isCircuitOpen(Throwable failure) {
+		// Usually wrapped in a ResourceAccessException, so the whole chain is checked first
+		for (Throwable cause = failure; cause != null; cause = cause.getCause()) {
+			if (cause instanceof SnowstormConcurrencyLimiter.CircuitOpenException) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Exponential backoff with jitter, so that batches failing together are not all resent at the same moment.
+	 */
+	private static long getBackoffMillis(int attempt) {
+		long ceiling = Math.min(MAX_BACKOFF_MILLIS, INITIAL_BACKOFF_MILLIS << Math.min(attempt - 1, 16));
+		return ThreadLocalRandom.current().nextLong(ceiling / 2, ceiling + 1);
+	}
+}
@@ -0,0 +1,426 @@
+package org.ihtsdo.otf.rest.client.terminologyserver;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import org.ihtsdo.otf.rest.client.RestClientException;
+import org.ihtsdo.otf.rest.client.terminologyserver.pojo.Branch;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * In-process cache of components read from Snowstorm, keyed by branch path and component id.
+ * Entries are only served while the branch head timestamp they were read at is still the current one;
+ * once the branch moves, every entry held for that branch is dropped.
+ * <p>
+ * With branch inheritance on, a read on a branch which is up to date with its parent, such as a task branch,
+ * is also answered from the parent's entries for any concept the branch has not changed, and so on up the
+ * branch hierarchy. Such components are cached against the highest branch they are unchanged from, so that
+ * sibling branches share them. The concepts a branch has changed are loaded once per head and base timestamp.
+ */
+public class BranchHeadAwareCache {
+
+	private static final Logger LOGGER = LoggerFactory.getLogger(BranchHeadAwareCache.class);
+
+	public enum ComponentType {
+		CONCEPT, FSN
+	}
+
+	interface HeadTimestampLoader {
+		/**
+		 * @return the current head timestamp of the branch, or {@code null} if the branch could not be found.
+		 */
+		Long load(String branchPath) throws RestClientException;
+	}
+
+	interface BranchLoader {
+		/**
+		 * @return the branch, or {@code null} if it could not be found.
+		 */
+		Branch load(String branchPath) throws RestClientException;
+	}
+
+	interface ChangedConceptsLoader {
+		/**
+		 * @return the ids of the concepts changed on the branch since it was last based on its parent,
+		 * or {@code null} if they could not be worked out.
+		 */
+		Set<String> load(String branchPath, String parentPath) throws RestClientException;
+	}
+
+	private interface BranchHeadLoader {
+		BranchHead load(String branchPath) throws RestClientException;
+	}
+
+	private static final long UNKNOWN_BASE = -1;
+
+	private final Cache<CacheKey, Object> cache;
+	private final ConcurrentHashMap<String, BranchHead> branchHeads = new ConcurrentHashMap<>();
+	private final ConcurrentHashMap<String, ChangeSet> changeSets = new ConcurrentHashMap<>();
+	private final long headCheckIntervalMillis;
+	private final AtomicLong branchMoves = new AtomicLong();
+	private final AtomicLong hits = new AtomicLong();
+	private final AtomicLong inheritedHits = new AtomicLong();
+	private final AtomicLong misses = new AtomicLong();
+	private final AtomicLong changeSetLoads = new AtomicLong();
+	private volatile boolean branchInheritance;
+
+	/**
+	 * @param maximumSize              Maximum number of components held across all branches.
+	 * @param expireAfterAccessMinutes Entries not read for this long are evicted. 0 means never.
+	 * @param headCheckIntervalMillis  Minimum time between two head timestamp checks of the same branch.
+	 *                                 0 means the branch is checked on every read.
+	 */
+	public BranchHeadAwareCache(long maximumSize, long expireAfterAccessMinutes, long headCheckIntervalMillis) {
+		CacheBuilder<Object, Object> builder = CacheBuilder.newBuilder()
+				.maximumSize(maximumSize)
+				.recordStats();
+		if (expireAfterAccessMinutes > 0) {
+			builder.expireAfterAccess(expireAfterAccessMinutes, TimeUnit.MINUTES);
+		}
+		this.cache = builder.build();
+		this.headCheckIntervalMillis = headCheckIntervalMillis;
+	}
+
+	/**
+	 * Returns the head timestamp the branch is known to be at, asking the loader again once the check interval
+	 * has passed. Entries cached for an older head are invalidated.
+	 */
+	Long getHeadTimestamp(String branchPath, HeadTimestampLoader loader) throws RestClientException {
+		BranchHead head = getBranchHead(branchPath, path -> {
+			Long headTimestamp = loader.load(path);
+			return headTimestamp != null ? new BranchHead(headTimestamp, UNKNOWN_BASE, 0) : null;
+		});
+		return head != null ? head.headTimestamp : null;
+	}
+
+	private BranchHead getBranchHead(String branchPath, BranchHeadLoader loader) throws RestClientException {
+		long now = System.currentTimeMillis();
+		BranchHead known = branchHeads.get(branchPath);
+		if (known != null && now - known.checkedAt < headCheckIntervalMillis) {
+			return known;
+		}
+
+		BranchHead loaded = loader.load(branchPath);
+		if (loaded == null) {
+			branchHeads.remove(branchPath);
+			changeSets.remove(branchPath);
+			invalidateBranch(branchPath);
+			return null;
+		}
+		BranchHead current = new BranchHead(loaded.headTimestamp, loaded.baseTimestamp, now);
+		BranchHead previous = branchHeads.put(branchPath, current);
+		if (previous != null && previous.headTimestamp != current.headTimestamp) {
+			LOGGER.debug("Branch {} moved from {} to {}, invalidating cached components", branchPath, previous.headTimestamp, current.headTimestamp);
+			branchMoves.incrementAndGet();
+			invalidateBranch(branchPath);
+		}
+		return current;
+	}
+
+	/**
+	 * Works out where components of the branch can be read from and cached: the branch itself and, with branch
+	 * inheritance on, each ancestor in turn for as long as the branch below it is based on the ancestor's current
+	 * head and the concepts changed on that branch are known.
+	 * @return {@code null} if the branch could not be found.
+	 */
+	BranchView getBranchView(String branchPath, BranchLoader branches, ChangedConceptsLoader changes) throws RestClientException {
+		BranchHeadLoader headLoader = path -> {
+			Branch branch = branches.load(path);
+			return branch != null ? new BranchHead(branch.getHeadTimestamp(), branch.getBaseTimestamp(), 0) : null;
+		};
+		BranchHead head = getBranchHead(branchPath, headLoader);
+		if (head == null) {
+			return null;
+		}
+		List<BranchLevel> levels = new ArrayList<>();
+		String path = branchPath;
+		while (true) {
+			String parentPath = branchInheritance ? getParentPath(path) : null;
+			BranchHead parentHead = parentPath != null ? getBranchHead(parentPath, headLoader) : null;
+			Set<String> changedConcepts = null;
+			// Until rebased, a branch behind its parent sees older versions than the parent's entries
+			if (parentHead != null && parentHead.headTimestamp == head.baseTimestamp) {
+				changedConcepts = getChangedConcepts(path, head, parentPath, changes);
+			}
+			levels.add(new BranchLevel(path, head.headTimestamp, changedConcepts));
+			if (changedConcepts == null) {
+				return new BranchView(levels);
+			}
+			path = parentPath;
+			head = parentHead;
+		}
+	}
+
+	/**
+	 * Loads the changed concepts once per head and base timestamp of the branch, however many reads ask for them
+	 * at the same time. When they could not be worked out, eg because the review came back stale, that is remembered
+	 * too, until the branch moves. Errors reading them are not, so the next read tries again.
+	 */
+	private Set<String> getChangedConcepts(String branchPath, BranchHead head, String parentPath, ChangedConceptsLoader changes) throws RestClientException {
+		ChangeSet created = new ChangeSet(head.headTimestamp, head.baseTimestamp);
+		ChangeSet changeSet = changeSets.compute(branchPath, (path, known) -> known != null && known.isFor(head) ? known : created);
+		if (changeSet == created) {
+			try {
+				Set<String> conceptIds = changes.load(branchPath, parentPath);
+				if (conceptIds != null) {
+					changeSetLoads.incrementAndGet();
+				}
+				created.conceptIds.complete(conceptIds);
+			} catch (RestClientException | RuntimeException e) {
+				changeSets.remove(branchPath, created);
+				created.conceptIds.completeExceptionally(e);
+				throw e;
+			}
+		}
+		try {
+			return changeSet.conceptIds.join();
+		} catch (CompletionException e) {
+			if (e.getCause() instanceof RestClientException) {
+				throw new RestClientException("Failed to load the concepts changed on " + branchPath, e.getCause());
+			}
+			throw e;
+		}
+	}
+
+	private static String getParentPath(String branchPath) {
+		int lastSlash = branchPath.lastIndexOf('/');
+		return lastSlash > 0 ? branchPath.substring(0, lastSlash) : null;
+	}
+
+	<T> T get(String branchPath, long headTimestamp, ComponentType type, String componentId) {
+		T value = lookup(branchPath, headTimestamp, type, componentId);
+		(value != null ? hits : misses).incrementAndGet();
+		return value;
+	}
+
+	@SuppressWarnings("unchecked")
+	private <T> T lookup(String branchPath, long headTimestamp, ComponentType type, String componentId) {
+		// Read through the map view so the cache's own statistics only count evictions
+		return (T) cache.asMap().get(new CacheKey(branchPath, headTimestamp, type, componentId));
+	}
+
+	void put(String branchPath, long headTimestamp, ComponentType type, String componentId, Object value) {
+		if (value != null) {
+			cache.put(new CacheKey(branchPath, headTimestamp, type, componentId), value);
+		}
+	}
+
+	public void invalidateBranch(String branchPath) {
+		cache.asMap().keySet().removeIf(key -> key.branchPath.equals(branchPath));
+	}
+
+	public void invalidateAll() {
+		cache.invalidateAll();
+		branchHeads.clear();
+		changeSets.clear();
+	}
+
+	/**
+	 * @param branchInheritance whether reads on a branch may be answered from the entries of its ancestors.
+	 *                          Off by default, as working out the concepts a branch has changed costs a branch review.
+	 */
+	public void setBranchInheritance(boolean branchInheritance) {
+		this.branchInheritance = branchInheritance;
+	}
+
+	public boolean isBranchInheritance() {
+		return branchInheritance;
+	}
+
+	/**
+	 * @return the number of reads answered from the cache, including those answered from an ancestor branch.
+	 */
+	public long getHitCount() {
+		return hits.get();
+	}
+
+	/**
+	 * @return the number of reads on a branch answered from the entries of an ancestor branch.
+	 */
+	public long getInheritedHitCount() {
+		return inheritedHits.get();
+	}
+
+	public long getMissCount() {
+		return misses.get();
+	}
+
+	/**
+	 * @return the fraction of reads answered from the cache, or 0 before the first read.
+	 */
+	public double getHitRate() {
+		long hitCount = hits.get();
+		long total = hitCount + misses.get();
+		return total > 0 ? (double) hitCount / total : 0;
+	}
+
+	/**
+	 * @return the number of times the concepts changed on a branch were loaded.
+	 */
+	public long getChangeSetLoadCount() {
+		return changeSetLoads.get();
+	}
+
+	public long getEvictionCount() {
+		return cache.stats().evictionCount();
+	}
+
+	/**
+	 * @return the number of times a branch was found to have moved since its entries were cached.
+	 */
+	public long getBranchMoveCount() {
+		return branchMoves.get();
+	}
+
+	public long size() {
+		return cache.size();
+	}
+
+	@Override
+	public String toString() {
+		return "BranchHeadAwareCache{" +
+				"size=" + size() +
+				", hits=" + getHitCount() +
+				", inheritedHits=" + getInheritedHitCount() +
+				", misses=" + getMissCount() +
+				", evictions=" + getEvictionCount() +
+				", branchMoves=" + getBranchMoveCount() +
+				'}';
+	}
+
+	/**
+	 * The places a component of one branch can be found, starting with the branch itself.
+	 */
+	class BranchView {
+
+		private final List<BranchLevel> levels;
+
+		private BranchView(List<BranchLevel> levels) {
+			this.levels = levels;
+		}
+
+		String getBranchPath() {
+			return levels.get(0).branchPath;
+		}
+
+		long getHeadTimestamp() {
+			return levels.get(0).headTimestamp;
+		}
+
+		<T> T get(ComponentType type, String componentId) {
+			for (int i = 0; i < levels.size(); i++) {
+				BranchLevel level = levels.get(i);
+				T value = lookup(level.branchPath, level.headTimestamp, type, componentId);
+				if (value != null) {
+					hits.incrementAndGet();
+					if (i > 0) {
+						inheritedHits.incrementAndGet();
+					}
+					return value;
+				}
+				if (!level.isUnchanged(componentId)) {
+					break;
+				}
+			}
+			misses.incrementAndGet();
+			return null;
+		}
+
+		/**
+		 * Caches the component against the highest branch which sees the same version of it.
+		 */
+		void put(ComponentType type, String componentId, Object value) {
+			int i = 0;
+			while (levels.get(i).isUnchanged(componentId)) {
+				i++;
+			}
+			BranchLevel level = levels.get(i);
+			BranchHeadAwareCache.this.put(level.branchPath, level.headTimestamp, type, componentId, value);
+		}
+	}
+
+	private static final class BranchLevel {
+		private final String branchPath;
+		private final long headTimestamp;
+		// Concepts changed since the branch was based on the next level, null for the last level
+		private final Set<String> changedConcepts;
+
+		private BranchLevel(String branchPath, long headTimestamp, Set<String> changedConcepts) {
+			this.branchPath = branchPath;
+			this.headTimestamp = headTimestamp;
+			this.changedConcepts = changedConcepts;
+		}
+
+		private boolean isUnchanged(String componentId) {
+			return changedConcepts != null && !changedConcepts.contains(componentId);
+		}
+	}
+
+	private static final class BranchHead {
+		private final long headTimestamp;
+		private final long baseTimestamp;
+		private final long checkedAt;
+
+		private BranchHead(long headTimestamp, long baseTimestamp, long checkedAt) {
+			this.headTimestamp = headTimestamp;
+			this.baseTimestamp = baseTimestamp;
+			this.checkedAt = checkedAt;
+		}
+	}
+
+	private static final class ChangeSet {
+		private final long headTimestamp;
+		private final long baseTimestamp;
+		// Completes with null if the changed concepts could not be worked out
+		private final CompletableFuture<Set<String>> conceptIds = new CompletableFuture<>();
+
+		private ChangeSet(long headTimestamp, long baseTimestamp) {
+			this.headTimestamp = headTimestamp;
+			this.baseTimestamp = baseTimestamp;
+		}
+
+		private boolean isFor(BranchHead head) {
+			return headTimestamp == head.headTimestamp && baseTimestamp == head.baseTimestamp;
+		}
+	}
+
+	private static final class CacheKey {
+		private final String branchPath;
+		private final long headTimestamp;
+		private final ComponentType type;
+		private final String componentId;
+
+		private CacheKey(String branchPath, long headTimestamp, ComponentType type, String componentId) {
+			this.branchPath = branchPath;
+			this.headTimestamp = headTimestamp;
+			this.type = type;
+			this.componentId = componentId;
+		}
+
+		@Override
+		public boolean equals(Object o) {
+			if (this == o) return true;
+			if (o == null || getClass() != o.getClass()) return false;
+			CacheKey cacheKey = (CacheKey) o;
+			return headTimestamp == cacheKey.headTimestamp &&
+					type == cacheKey.type &&
+					branchPath.equals(cacheKey.branchPath) &&
+					componentId.equals(cacheKey.componentId);
+		}
+
+		@Override
+		public int hashCode() {
+			return Objects.hash(branchPath, headTimestamp, type, componentId);
+		}
+	}
+}
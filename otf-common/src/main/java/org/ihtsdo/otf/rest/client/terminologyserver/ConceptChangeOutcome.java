@@ -0,0 +1,72 @@
+package org.ihtsdo.otf.rest.client.terminologyserver;
+
+import org.ihtsdo.otf.rest.client.terminologyserver.pojo.ConceptPojo;
+
+/**
+ * The result for one concept sent by {@link SnowstormRestClient#saveConcepts}.
+ */
+public class ConceptChangeOutcome {
+
+	private final ConceptPojo concept;
+	private final String batchId;
+	private final String conceptId;
+	private final String failureMessage;
+
+	private ConceptChangeOutcome(ConceptPojo concept, String batchId, String conceptId, String failureMessage) {
+		this.concept = concept;
+		this.batchId = batchId;
+		this.conceptId = conceptId;
+		this.failureMessage = failureMessage;
+	}
+
+	static ConceptChangeOutcome saved(ConceptPojo concept, String batchId, String conceptId) {
+		return new ConceptChangeOutcome(concept, batchId, conceptId, null);
+	}
+
+	static ConceptChangeOutcome failed(ConceptPojo concept, String batchId, String failureMessage) {
+		return new ConceptChangeOutcome(concept, batchId, concept.getConceptId(), failureMessage);
+	}
+
+	/**
+	 * @return the concept as it was sent.
+	 */
+	public ConceptPojo getConcept() {
+		return concept;
+	}
+
+	/**
+	 * @return the Snowstorm bulk change the concept was saved in, or {@code null} if its batch could not be started.
+	 */
+	public String getBatchId() {
+		return batchId;
+	}
+
+	/**
+	 * @return the id of the saved concept, assigned by Snowstorm for a new concept.
+	 * For a failure this is the id the concept was sent with, if any.
+	 */
+	public String getConceptId() {
+		return conceptId;
+	}
+
+	public boolean isSuccess() {
+		return failureMessage == null;
+	}
+
+	/**
+	 * @return why the concept was not saved, or {@code null}. Snowstorm saves a batch as a whole, so every concept
+	 * of a failed batch has the same message.
+	 */
+	public String getFailureMessage() {
+		return failureMessage;
+	}
+
+	@Override
+	public String toString() {
+		return "ConceptChangeOutcome{" +
+				"conceptId='" + conceptId + '\'' +
+				", batchId='" + batchId + '\'' +
+				(failureMessage != null ? ", failure='" + failureMessage + '\'' : "") +
+				'}';
+	}
+}
@@ -0,0 +1,154 @@
+package org.ihtsdo.otf.rest.client.terminologyserver;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.stream.LongStream;
+
+/**
+ * An immutable set of SNOMED CT identifiers held as a sorted array of longs, which takes a fraction of the memory
+ * of a <code>Set&lt;String&gt;</code> and allows differences to be taken in a single pass over both sets.
+ */
+public final class ConceptIdSet {
+
+	private static final ConceptIdSet EMPTY = new ConceptIdSet(new long[0]);
+
+	private final long[] ids;
+
+	private ConceptIdSet(long[] sortedUniqueIds) {
+		this.ids = sortedUniqueIds;
+	}
+
+	public static ConceptIdSet empty() {
+		return EMPTY;
+	}
+
+	public static ConceptIdSet of(Collection<String> conceptIds) {
+		Builder builder = new Builder(conceptIds.size());
+		builder.addAll(conceptIds);
+		return builder.build();
+	}
+
+	public int size() {
+		return ids.length;
+	}
+
+	public boolean isEmpty() {
+		return ids.length == 0;
+	}
+
+	public boolean contains(long conceptId) {
+		return Arrays.binarySearch(ids, conceptId) >= 0;
+	}
+
+	public boolean contains(String conceptId) {
+		return contains(Long.parseLong(conceptId));
+	}
+
+	/**
+	 * @return the ids in this set which are not in <code>other</code>.
+	 */
+	public ConceptIdSet difference(ConceptIdSet other) {
+		long[] otherIds = other.ids;
+		long[] result = new long[ids.length];
+		int count = 0;
+		int j = 0;
+		for (long id : ids) {
+			while (j < otherIds.length && otherIds[j] < id) {
+				j++;
+			}
+			if (j == otherIds.length || otherIds[j] != id) {
+				result[count++] = id;
+			}
+		}
+		return count == 0 ? EMPTY : new ConceptIdSet(count == result.length ? result : Arrays.copyOf(result, count));
+	}
+
+	/**
+	 * @return the ids in ascending order.
+	 */
+	public LongStream stream() {
+		return Arrays.stream(ids);
+	}
+
+	public long[] toArray() {
+		return ids.clone();
+	}
+
+	public Set<String> toStringSet() {
+		Set<String> conceptIds = new HashSet<>((int) (ids.length / 0.75f) + 1);
+		for (long id : ids) {
+			conceptIds.add(Long.toString(id));
+		}
+		return conceptIds;
+	}
+
+	@Override
+	public boolean equals(Object o) {
+		if (this == o) return true;
+		if (o == null || getClass() != o.getClass()) return false;
+		return Arrays.equals(ids, ((ConceptIdSet) o).ids);
+	}
+
+	@Override
+	public int hashCode() {
+		return Arrays.hashCode(ids);
+	}
+
+	@Override
+	public String toString() {
+		return "ConceptIdSet{size=" + ids.length + "}";
+	}
+
+	/**
+	 * Collects ids as they arrive, eg page by page, without keeping the pages.
+	 */
+	public static final class Builder {
+
+		private long[] ids;
+		private int size;
+
+		public Builder() {
+			this(1024);
+		}
+
+		public Builder(int expectedSize) {
+			ids = new long[Math.max(16, expectedSize)];
+		}
+
+		public Builder add(String conceptId) {
+			return add(Long.parseLong(conceptId));
+		}
+
+		public Builder add(long conceptId) {
+			if (size == ids.length) {
+				ids = Arrays.copyOf(ids, ids.length + (ids.length >> 1));
+			}
+			ids[size++] = conceptId;
+			return this;
+		}
+
+		public Builder addAll(Collection<String> conceptIds) {
+			for (String conceptId : conceptIds) {
+				add(conceptId);
+			}
+			return this;
+		}
+
+		public ConceptIdSet build() {
+			if (size == 0) {
+				return EMPTY;
+			}
+			long[] sorted = Arrays.copyOf(ids, size);
+			Arrays.sort(sorted);
+			int unique = 1;
+			for (int i = 1; i < sorted.length; i++) {
+				if (sorted[i] != sorted[unique - 1]) {
+					sorted[unique++] = sorted[i];
+				}
+			}
+			return new ConceptIdSet(unique == sorted.length ? sorted : Arrays.copyOf(sorted, unique));
+		}
+	}
+}
@@ -0,0 +1,59 @@
+package org.ihtsdo.otf.rest.client.terminologyserver;
+
+import java.util.Collections;
+import java.util.Map;
+
+/**
+ * The result of one ECL expression evaluated on several branches by
+ * {@link SnowstormRestClient#eclQueryAcrossBranches}, with the differences of each branch against a baseline branch.
+ * Differences are not kept, they are computed on each call, a single merge pass over the two sorted id sets.
+ */
+public class EclBranchComparison {
+
+	private final String ecl;
+	private final String baselineBranchPath;
+	private final Map<String, ConceptIdSet> membership;
+
+	EclBranchComparison(String ecl, String baselineBranchPath, Map<String, ConceptIdSet> membership) {
+		this.ecl = ecl;
+		this.baselineBranchPath = baselineBranchPath;
+		this.membership = Collections.unmodifiableMap(membership);
+	}
+
+	public String getEcl() {
+		return ecl;
+	}
+
+	public String getBaselineBranchPath() {
+		return baselineBranchPath;
+	}
+
+	/**
+	 * @return the matching ids per branch, in the order the branches were given.
+	 */
+	public Map<String, ConceptIdSet> getMembership() {
+		return membership;
+	}
+
+	public ConceptIdSet getMembers(String branchPath) {
+		ConceptIdSet members = membership.get(branchPath);
+		if (members == null) {
+			throw new IllegalArgumentException("Branch " + branchPath + " was not compared.");
+		}
+		return members;
+	}
+
+	/**
+	 * @return the ids matching on the branch but not on the baseline.
+	 */
+	public ConceptIdSet getAdded(String branchPath) {
+		return getMembers(branchPath).difference(getMembers(baselineBranchPath));
+	}
+
+	/**
+	 * @return the ids matching on the baseline but not on the branch.
+	 */
+	public ConceptIdSet getRemoved(String branchPath) {
+		return getMembers(baselineBranchPath).difference(getMembers(branchPath));
+	}
+}
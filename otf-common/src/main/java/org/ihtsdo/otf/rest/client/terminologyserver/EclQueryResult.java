@@ -0,0 +1,55 @@
+package org.ihtsdo.otf.rest.client.terminologyserver;
+
+import java.util.Collections;
+import java.util.Set;
+
+/**
+ * The result of one named expression evaluated by {@link SnowstormRestClient#eclQueryBulk}.
+ * Concept ids are only populated when ids were requested.
+ */
+public class EclQueryResult {
+
+	private final String name;
+	private final String ecl;
+	private final long count;
+	private final Set<String> conceptIds;
+
+	EclQueryResult(String name, String ecl, long count, Set<String> conceptIds) {
+		this.name = name;
+		this.ecl = ecl;
+		this.count = count;
+		this.conceptIds = conceptIds;
+	}
+
+	static EclQueryResult empty(String name, String ecl, boolean withIds) {
+		return new EclQueryResult(name, ecl, 0, withIds ? Collections.emptySet() : null);
+	}
+
+	public String getName() {
+		return name;
+	}
+
+	public String getEcl() {
+		return ecl;
+	}
+
+	public long getCount() {
+		return count;
+	}
+
+	public boolean hasMatches() {
+		return count > 0;
+	}
+
+	/**
+	 * @return the matching concept ids, or {@code null} when only a count or existence check was requested.
+	 */
+	public Set<String> getConceptIds() {
+		return conceptIds;
+	}
+
+	@Override
+	public String toString() {
+		return name + ": " + count;
+	}
+}
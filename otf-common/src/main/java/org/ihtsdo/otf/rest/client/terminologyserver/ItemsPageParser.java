@@ -0,0 +1,128 @@
+package org.ihtsdo.otf.rest.client.terminologyserver;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * Reads a Snowstorm page of items, eg <code>{"items": [...], "total": 10, "searchAfter": "..."}</code>, straight from
+ * the response body one item at a time, without building the page object or a collection of its items.
+ * The total and cursor are available once all items have been read, wherever they appear in the page.
+ */
+class ItemsPageParser implements Closeable {
+
+	private static final ObjectMapper MAPPER = new ObjectMapper().disable(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES);
+	private static final JsonFactory JSON_FACTORY = MAPPER.getFactory();
+
+	interface ItemDecoder<T> {
+		/**
+		 * @param parser positioned at the START_OBJECT of an item, to be left at its END_OBJECT.
+		 */
+		T decode(JsonParser parser) throws IOException;
+	}
+
+	/**
+	 * Decodes items as an instance of the given type.
+	 */
+	static <T> ItemDecoder<T> decoderFor(Class<T> itemType) {
+		ObjectReader reader = MAPPER.readerFor(itemType);
+		return reader::readValue;
+	}
+
+	/**
+	 * Decodes just the "id" field of each item, eg of the concepts in a ConceptIdsResponse.
+	 */
+	static final ItemDecoder<String> ID_DECODER = parser -> {
+		String id = null;
+		while (parser.nextToken() == JsonToken.FIELD_NAME) {
+			String field = parser.getCurrentName();
+			parser.nextToken();
+			if ("id".equals(field)) {
+				id = parser.getValueAsString();
+			} else {
+				parser.skipChildren();
+			}
+		}
+		return id;
+	};
+
+	private final JsonParser parser;
+	private long total;
+	private String searchAfter;
+	private int itemCount;
+	private boolean inItems;
+
+	ItemsPageParser(InputStream body) throws IOException {
+		parser = JSON_FACTORY.createParser(body);
+		if (parser.nextToken() != JsonToken.START_OBJECT) {
+			throw new IOException("Expected a page of items but found " + parser.currentToken());
+		}
+		inItems = readFieldsUntilItems();
+	}
+
+	/**
+	 * @return the next item, or {@code null} once all items have been read.
+	 */
+	<T> T nextItem(ItemDecoder<T> decoder) throws IOException {
+		if (!inItems) {
+			return null;
+		}
+		while (true) {
+			JsonToken token = parser.nextToken();
+			if (token == JsonToken.START_OBJECT) {
+				itemCount++;
+				return decoder.decode(parser);
+			} else if (token == JsonToken.END_ARRAY || token == null) {
+				inItems = false;
+				readFieldsUntilItems();
+				return null;
+			}
+			// Not an object, skip it
+			parser.skipChildren();
+		}
+	}
+
+	private boolean readFieldsUntilItems() throws IOException {
+		while (parser.nextToken() == JsonToken.FIELD_NAME) {
+			String field = parser.getCurrentName();
+			JsonToken value = parser.nextToken();
+			if ("items".equals(field) && value == JsonToken.START_ARRAY) {
+				return true;
+			} else if ("total".equals(field) && value == JsonToken.VALUE_NUMBER_INT) {
+				total = parser.getLongValue();
+			} else if ("searchAfter".equals(field)) {
+				searchAfter = value == JsonToken.VALUE_NULL ? null : parser.getValueAsString();
+			} else {
+				parser.skipChildren();
+			}
+		}
+		return false;
+	}
+
+	long getTotal() {
+		return total;
+	}
+
+	String getSearchAfter() {
+		return searchAfter;
+	}
+
+	/**
+	 * @return the number of items read so far.
+	 */
+	int getItemCount() {
+		return itemCount;
+	}
+
+	@Override
+	public void close() throws IOException {
+		parser.close();
+	}
+}
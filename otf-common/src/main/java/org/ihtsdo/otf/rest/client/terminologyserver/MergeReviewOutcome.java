@@ -0,0 +1,97 @@
+package org.ihtsdo.otf.rest.client.terminologyserver;
+
+import org.ihtsdo.otf.rest.client.terminologyserver.pojo.MergeReviewConceptVersions;
+import org.ihtsdo.otf.rest.client.terminologyserver.pojo.MergeReviewsResults;
+
+import java.util.Collections;
+import java.util.Set;
+
+/**
+ * The finished state of one merge review run by {@link SnowstormRestClient#mergeReviews}.
+ */
+public class MergeReviewOutcome {
+
+	private final String sourcePath;
+	private final String targetPath;
+	private final String reviewId;
+	private final MergeReviewsResults review;
+	private final Set<MergeReviewConceptVersions> conflicts;
+	private final Throwable failure;
+
+	private MergeReviewOutcome(String sourcePath, String targetPath, String reviewId, MergeReviewsResults review,
+			Set<MergeReviewConceptVersions> conflicts, Throwable failure) {
+		this.sourcePath = sourcePath;
+		this.targetPath = targetPath;
+		this.reviewId = reviewId;
+		this.review = review;
+		this.conflicts = conflicts;
+		this.failure = failure;
+	}
+
+	static MergeReviewOutcome completed(String sourcePath, String targetPath, MergeReviewsResults review, Set<MergeReviewConceptVersions> conflicts) {
+		return new MergeReviewOutcome(sourcePath, targetPath, review.getId(), review, conflicts != null ? conflicts : Collections.emptySet(), null);
+	}
+
+	static MergeReviewOutcome failed(String sourcePath, String targetPath, String reviewId, Throwable failure) {
+		return new MergeReviewOutcome(sourcePath, targetPath, reviewId, null, Collections.emptySet(), failure);
+	}
+
+	public String getSourcePath() {
+		return sourcePath;
+	}
+
+	public String getTargetPath() {
+		return targetPath;
+	}
+
+	/**
+	 * @return {@code null} if the review could not be created.
+	 */
+	public String getReviewId() {
+		return reviewId;
+	}
+
+	/**
+	 * @return the review once it left the PENDING status, or {@code null} if it failed before then.
+	 */
+	public MergeReviewsResults getReview() {
+		return review;
+	}
+
+	/**
+	 * @return true if the review is CURRENT, so its conflicts can be relied on.
+	 */
+	public boolean isCurrent() {
+		return review != null && review.getStatus() == MergeReviewsResults.MergeReviewStatus.CURRENT;
+	}
+
+	public boolean hasConflicts() {
+		return !conflicts.isEmpty();
+	}
+
+	/**
+	 * @return the concepts changed on both branches, empty unless the review is CURRENT.
+	 */
+	public Set<MergeReviewConceptVersions> getConflicts() {
+		return conflicts;
+	}
+
+	/**
+	 * @return the error which stopped the review being created, polled or read, or {@code null}.
+	 */
+	public Throwable getFailure() {
+		return failure;
+	}
+
+	@Override
+	public String toString() {
+		return "MergeReviewOutcome{" +
+				"sourcePath='" + sourcePath + '\'' +
+				", targetPath='" + targetPath + '\'' +
+				", reviewId='" + reviewId + '\'' +
+				", status=" + (review != null ? review.getStatus() : null) +
+				", conflicts=" + conflicts.size() +
+				", failure=" + failure +
+				'}';
+	}
+}
@@ -0,0 +1,136 @@
+package org.ihtsdo.otf.rest.client.terminologyserver;
+
+import org.ihtsdo.otf.rest.client.RestClientException;
+import org.ihtsdo.otf.rest.client.terminologyserver.pojo.RefsetMemberPojo;
+import org.ihtsdo.otf.rest.exception.BusinessServiceRuntimeException;
+import org.ihtsdo.otf.rest.exception.ResourceNotFoundException;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatusCode;
+import org.springframework.http.MediaType;
+import org.springframework.http.client.ClientHttpRequest;
+import org.springframework.http.client.ClientHttpRequestFactory;
+import org.springframework.http.client.ClientHttpResponse;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.net.URI;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.function.Function;
+
+/**
+ * Iterates over the members of a reference set page by page using the searchAfter cursor. Each member is read
+ * from the response body only when it is asked for, so at most one member and one open response are held at a time.
+ * Failures are rethrown as {@link BusinessServiceRuntimeException}.
+ */
+class RefsetMemberIterator implements Iterator<RefsetMemberPojo>, Closeable {
+
+	private static final ItemsPageParser.ItemDecoder<RefsetMemberPojo> MEMBER_DECODER = ItemsPageParser.decoderFor(RefsetMemberPojo.class);
+
+	private final ClientHttpRequestFactory requestFactory;
+	private final Function<String, URI> pageUri;
+	private final int pageSize;
+	private final String authenticationToken;
+
+	private ClientHttpResponse response;
+	private ItemsPageParser page;
+	private String searchAfter;
+	private boolean lastPage;
+	private RefsetMemberPojo next;
+
+	/**
+	 * @param requestFactory the RestTemplate's factory, so that its interceptors are applied.
+	 * @param pageUri        builds the url of a page from the searchAfter cursor, which is {@code null} for the first page.
+	 */
+	RefsetMemberIterator(ClientHttpRequestFactory requestFactory, Function<String, URI> pageUri, int pageSize, String authenticationToken) {
+		this.requestFactory = requestFactory;
+		this.pageUri = pageUri;
+		this.pageSize = pageSize;
+		this.authenticationToken = authenticationToken;
+	}
+
+	@Override
+	public boolean hasNext() {
+		if (next != null) {
+			return true;
+		}
+		try {
+			while (true) {
+				if (page == null) {
+					if (lastPage) {
+						return false;
+					}
+					openPage();
+				}
+				next = page.nextItem(MEMBER_DECODER);
+				if (next != null) {
+					return true;
+				}
+				searchAfter = page.getSearchAfter();
+				lastPage = page.getItemCount() < pageSize || searchAfter == null;
+				closePage();
+			}
+		} catch (IOException | RestClientException e) {
+			close();
+			throw new BusinessServiceRuntimeException("Failed to read refset members", e);
+		} catch (RuntimeException e) {
+			close();
+			throw e;
+		}
+	}
+
+	@Override
+	public RefsetMemberPojo next() {
+		if (!hasNext()) {
+			throw new NoSuchElementException();
+		}
+		RefsetMemberPojo member = next;
+		next = null;
+		return member;
+	}
+
+	private void openPage() throws IOException, RestClientException {
+		URI uri = pageUri.apply(searchAfter);
+		ClientHttpRequest request = requestFactory.createRequest(uri, HttpMethod.GET);
+		request.getHeaders().setAccept(Collections.singletonList(MediaType.APPLICATION_JSON));
+		if (authenticationToken != null) {
+			request.getHeaders().set(HttpHeaders.COOKIE, authenticationToken);
+		}
+		response = request.execute();
+		HttpStatusCode statusCode = response.getStatusCode();
+		if (statusCode.value() == 404) {
+			throw new ResourceNotFoundException("No refset entries found.");
+		} else if (!statusCode.is2xxSuccessful()) {
+			throw new RestClientException("Failed to retrieve refset members, status code: " + statusCode + " URI: " + uri);
+		}
+		page = new ItemsPageParser(response.getBody());
+	}
+
+	private void closePage() {
+		try {
+			if (page != null) {
+				page.close();
+			}
+		} catch (IOException e) {
+			// Nothing more is read from this response
+		} finally {
+			page = null;
+			if (response != null) {
+				response.close();
+				response = null;
+			}
+		}
+	}
+
+	/**
+	 * Stops iterating and releases the connection of the current page.
+	 */
+	@Override
+	public void close() {
+		lastPage = true;
+		next = null;
+		closePage();
+	}
+}
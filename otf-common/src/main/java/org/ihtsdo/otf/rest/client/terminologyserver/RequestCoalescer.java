@@ -0,0 +1,107 @@
+package org.ihtsdo.otf.rest.client.terminologyserver;
+
+import org.ihtsdo.otf.rest.client.RestClientException;
+
+import java.net.URI;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Lets concurrent identical reads share one in flight request. The first caller for a key sends the request,
+ * callers arriving while it is in flight wait for it and are given the same result, or the same exception.
+ * Nothing is kept once the request completes, so a later call always goes to the server again.
+ * Because the result object is shared it must be treated as read only by callers.
+ */
+class RequestCoalescer {
+
+	interface Request<T> {
+		T execute() throws RestClientException;
+	}
+
+	private final ConcurrentMap<Key, CompletableFuture<Object>> inFlight = new ConcurrentHashMap<>();
+	private final AtomicLong coalescedCount = new AtomicLong();
+
+	/**
+	 * @param authenticationToken part of the key so that callers with different credentials never share a response.
+	 */
+	@SuppressWarnings("unchecked")
+	<T> T execute(URI uri, String authenticationToken, Class<T> responseType, Request<T> request) throws RestClientException {
+		Key key = new Key(uri, authenticationToken, responseType);
+		CompletableFuture<Object> future = new CompletableFuture<>();
+		CompletableFuture<Object> existing = inFlight.putIfAbsent(key, future);
+		if (existing != null) {
+			coalescedCount.incrementAndGet();
+			return (T) await(existing, uri);
+		}
+		try {
+			T result = request.execute();
+			future.complete(result);
+			return result;
+		} catch (RestClientException | RuntimeException | Error e) {
+			future.completeExceptionally(e);
+			throw e;
+		} finally {
+			inFlight.remove(key, future);
+		}
+	}
+
+	private Object await(CompletableFuture<Object> future, URI uri) throws RestClientException {
+		try {
+			return future.get();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new RestClientException("Interrupted while waiting for in flight request to " + uri, e);
+		} catch (ExecutionException e) {
+			Throwable cause = e.getCause();
+			if (cause instanceof RestClientException restClientException) {
+				throw restClientException;
+			} else if (cause instanceof RuntimeException runtimeException) {
+				throw runtimeException;
+			} else if (cause instanceof Error error) {
+				throw error;
+			}
+			throw new RestClientException("In flight request to " + uri + " failed", cause);
+		}
+	}
+
+	/**
+	 * @return the number of calls which were given the result of another caller's request rather than sending their own.
+	 */
+	long getCoalescedCount() {
+		return coalescedCount.get();
+	}
+
+	int getInFlightCount() {
+		return inFlight.size();
+	}
+
+	private static final class Key {
+
+		private final URI uri;
+		private final String authenticationToken;
+		private final Class<?> responseType;
+
+		private Key(URI uri, String authenticationToken, Class<?> responseType) {
+			this.uri = uri;
+			this.authenticationToken = authenticationToken;
+			this.responseType = responseType;
+		}
+
+		@Override
+		public boolean equals(Object o) {
+			if (this == o) return true;
+			if (o == null || getClass() != o.getClass()) return false;
+			Key key = (Key) o;
+			return uri.equals(key.uri) && Objects.equals(authenticationToken, key.authenticationToken) && responseType.equals(key.responseType);
+		}
+
+		@Override
+		public int hashCode() {
+			return Objects.hash(uri, authenticationToken, responseType);
+		}
+	}
+}
@@ -0,0 +1,312 @@
+package org.ihtsdo.otf.rest.client.terminologyserver;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import org.ihtsdo.otf.rest.client.CompressionStatistics;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpRequest;
+import org.springframework.http.HttpStatusCode;
+import org.springframework.http.client.ClientHttpRequestExecution;
+import org.springframework.http.client.ClientHttpRequestInterceptor;
+import org.springframework.http.client.ClientHttpResponse;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URI;
+import java.util.Set;
+import java.util.regex.Pattern;
+
+/**
+ * Publishes per endpoint timings, bytes transferred, status codes and retries for the requests a
+ * {@link SnowstormRestClient} sends through its RestTemplate, to Micrometer and optionally as JFR events.
+ * Endpoints are labelled with their URL template, eg <code>GET /{branch}/concepts</code>, so the number of
+ * distinct tag values stays bounded however many branches and concepts are queried.
+ * A request is recorded once its response has been read and closed, so download time is included.
+ */
+public class SnowstormClientMetrics implements ClientHttpRequestInterceptor {
+
+	private static final String REQUESTS = "snowstorm.client.requests";
+	private static final String REQUEST_BYTES = "snowstorm.client.request.bytes";
+	private static final String RESPONSE_BYTES = "snowstorm.client.response.bytes";
+	private static final String RETRIES = "snowstorm.client.retries";
+	private static final String COMPRESSED_WIRE_BYTES = "snowstorm.client.compressed.wire.bytes";
+	private static final String COMPRESSED_DECODED_BYTES = "snowstorm.client.compressed.decoded.bytes";
+	private static final String CACHE_HITS = "snowstorm.client.cache.hits";
+	private static final String CACHE_MISSES = "snowstorm.client.cache.misses";
+	private static final String CACHE_SIZE = "snowstorm.client.cache.size";
+	private static final String IO_ERROR = "IO_ERROR";
+	private static final String ERROR = "ERROR";
+
+	private static final String MAIN = "MAIN";
+	private static final Pattern ID = Pattern.compile("\\d+|[0-9a-fA-F]{8}-[0-9a-fA-F]{4}-[0-9a-fA-F]{4}-[0-9a-fA-F]{4}-[0-9a-fA-F]{12}");
+	// Path segments which follow a branch path in the urls built by SnowstormRestUrlHelper
+	private static final Set<String> BRANCH_RESOURCES = Set.of("concepts", "members", "classifications", "integrity-check", "children", "actions");
+
+	private final MeterRegistry registry;
+	private final String snowstormPath;
+	private final boolean jfrEnabled;
+
+	/**
+	 * @param snowstormUrl the url the client was created with, whose path is left out of endpoint labels.
+	 * @param jfrEnabled   also emit a <code>org.ihtsdo.otf.SnowstormRequest</code> JFR event per request.
+	 */
+	public SnowstormClientMetrics(MeterRegistry registry, String snowstormUrl, boolean jfrEnabled) {
+		this.registry = registry;
+		String rawPath = URI.create(snowstormUrl).getRawPath();
+		this.snowstormPath = rawPath == null || rawPath.isEmpty() ? "" : SnowstormRestUrlHelper.removeTrailingSlash(rawPath);
+		this.jfrEnabled = jfrEnabled;
+	}
+
+	@Override
+	public ClientHttpResponse intercept(HttpRequest request, byte[] body, ClientHttpRequestExecution execution) throws IOException {
+		String method = request.getMethod().name();
+		String endpoint = toEndpointTemplate(request.getURI());
+		SnowstormRequestEvent event = null;
+		if (jfrEnabled) {
+			event = new SnowstormRequestEvent();
+			event.method = method;
+			event.endpoint = endpoint;
+			event.requestBytes = body.length;
+			event.begin();
+		}
+		Timer.Sample sample = Timer.start(registry);
+		DistributionSummary.builder(REQUEST_BYTES)
+				.baseUnit("bytes")
+				.tags("method", method, "endpoint", endpoint)
+				.register(registry)
+				.record(body.length);
+		try {
+			ClientHttpResponse response = execution.execute(request, body);
+			return new MeteredResponse(response, method, endpoint, sample, event);
+		} catch (IOException e) {
+			record(method, endpoint, IO_ERROR, sample, event, 0);
+			throw e;
+		} catch (RuntimeException e) {
+			// Eg from a later interceptor or the request factory
+			record(method, endpoint, ERROR, sample, event, 0);
+			throw e;
+		}
+	}
+
+	/**
+	 * Counts requests which are sent again after failing, eg by the batch executor.
+	 */
+	public void recordRetries(String operation, int retries) {
+		Counter.builder(RETRIES)
+				.tags("operation", operation)
+				.register(registry)
+				.increment(retries);
+	}
+
+	/**
+	 * Publishes the bytes received compressed, and what they decoded to, as counters.
+	 * Only the first statistics bound to a registry are published.
+	 */
+	public void bindCompressionStatistics(CompressionStatistics statistics) {
+		FunctionCounter.builder(COMPRESSED_WIRE_BYTES, statistics, CompressionStatistics::getWireBytes)
+				.baseUnit("bytes")
+				.register(registry);
+		FunctionCounter.builder(COMPRESSED_DECODED_BYTES, statistics, CompressionStatistics::getDecodedBytes)
+				.baseUnit("bytes")
+				.register(registry);
+	}
+
+	/**
+	 * Publishes the reads of a component cache as counters, hits tagged with whether they were answered from the
+	 * branch read or from one of its ancestors, and the number of entries as a gauge.
+	 * Only the first cache bound to a registry is published.
+	 */
+	public void bindComponentCache(BranchHeadAwareCache cache) {
+		FunctionCounter.builder(CACHE_HITS, cache, c -> c.getHitCount() - c.getInheritedHitCount())
+				.tags("source", "branch")
+				.register(registry);
+		FunctionCounter.builder(CACHE_HITS, cache, BranchHeadAwareCache::getInheritedHitCount)
+				.tags("source", "ancestor")
+				.register(registry);
+		FunctionCounter.builder(CACHE_MISSES, cache, BranchHeadAwareCache::getMissCount)
+				.register(registry);
+		Gauge.builder(CACHE_SIZE, cache, BranchHeadAwareCache::size)
+				.register(registry);
+	}
+
+	private void record(String method, String endpoint, String status, Timer.Sample sample, SnowstormRequestEvent event, long responseBytes) {
+		sample.stop(Timer.builder(REQUESTS)
+				.tags("method", method, "endpoint", endpoint, "status", status)
+				.register(registry));
+		DistributionSummary.builder(RESPONSE_BYTES)
+				.baseUnit("bytes")
+				.tags("method", method, "endpoint", endpoint)
+				.register(registry)
+				.record(responseBytes);
+		if (event != null) {
+			event.status = status;
+			event.responseBytes = responseBytes;
+			event.commit();
+		}
+	}
+
+	/**
+	 * Replaces the variable parts of a Snowstorm url, ie branch paths, concept ids and other ids, with placeholders
+	 * and drops the query string.
+	 */
+	String toEndpointTemplate(URI uri) {
+		String path = uri.getRawPath();
+		if (path == null) {
+			return "/";
+		}
+		if (path.startsWith(snowstormPath)) {
+			path = path.substring(snowstormPath.length());
+		}
+		StringBuilder template = new StringBuilder();
+		boolean inBranch = false;
+		String previous = null;
+		for (String segment : path.split("/")) {
+			if (segment.isEmpty()) {
+				continue;
+			}
+			if (inBranch && !BRANCH_RESOURCES.contains(segment)) {
+				continue;
+			}
+			inBranch = false;
+			String part = segment;
+			if (MAIN.equals(segment)) {
+				part = "{branch}";
+				inBranch = true;
+			} else if (ID.matcher(segment).matches()) {
+				part = "{id}";
+			} else if ("codesystems".equals(previous) && !"upgrade".equals(segment)) {
+				part = "{codeSystem}";
+			}
+			template.append('/').append(part);
+			previous = segment;
+		}
+		return template.length() == 0 ? "/" : template.toString();
+	}
+
+	private class MeteredResponse implements ClientHttpResponse {
+
+		private final ClientHttpResponse delegate;
+		private final String method;
+		private final String endpoint;
+		private final Timer.Sample sample;
+		private final SnowstormRequestEvent event;
+		private CountingInputStream body;
+		private boolean recorded;
+
+		private MeteredResponse(ClientHttpResponse delegate, String method, String endpoint, Timer.Sample sample, SnowstormRequestEvent event) {
+			this.delegate = delegate;
+			this.method = method;
+			this.endpoint = endpoint;
+			this.sample = sample;
+			this.event = event;
+		}
+
+		@Override
+		public HttpStatusCode getStatusCode() throws IOException {
+			return delegate.getStatusCode();
+		}
+
+		@Override
+		public String getStatusText() throws IOException {
+			return delegate.getStatusText();
+		}
+
+		@Override
+		public HttpHeaders getHeaders() {
+			return delegate.getHeaders();
+		}
+
+		@Override
+		public InputStream getBody() throws IOException {
+			if (body == null) {
+				body = new CountingInputStream(delegate.getBody());
+			}
+			return body;
+		}
+
+		@Override
+		public void close() {
+			try {
+				delegate.close();
+			} finally {
+				if (!recorded) {
+					recorded = true;
+					String status;
+					try {
+						status = String.valueOf(delegate.getStatusCode().value());
+					} catch (IOException e) {
+						status = IO_ERROR;
+					}
+					record(method, endpoint, status, sample, event, body != null ? body.count : 0);
+				}
+			}
+		}
+	}
+
+	private static class CountingInputStream extends FilterInputStream {
+
+		private long count;
+
+		private CountingInputStream(InputStream in) {
+			super(in);
+		}
+
+		@Override
+		public int read() throws IOException {
+			int read = super.read();
+			if (read != -1) {
+				count++;
+			}
+			return read;
+		}
+
+		@Override
+		public int read(byte[] b, int off, int len) throws IOException {
+			int read = super.read(b, off, len);
+			if (read > 0) {
+				count += read;
+			}
+			return read;
+		}
+
+		@Override
+		public long skip(long n) throws IOException {
+			long skipped = super.skip(n);
+			count += skipped;
+			return skipped;
+		}
+	}
+
+	@Name("org.ihtsdo.otf.SnowstormRequest")
+	@Label("Snowstorm Request")
+	@Category({"OTF", "Snowstorm"})
+	static class SnowstormRequestEvent extends Event {
+
+		@Label("Method")
+		String method;
+
+		@Label("Endpoint")
+		String endpoint;
+
+		@Label("Status")
+		String status;
+
+		@Label("Request Bytes")
+		@DataAmount
+		long requestBytes;
+
+		@Label("Response Bytes")
+		@DataAmount
+		long responseBytes;
+	}
+}
@@ -0,0 +1,271 @@
+package org.ihtsdo.otf.rest.client.terminologyserver;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpRequest;
+import org.springframework.http.HttpStatusCode;
+import org.springframework.http.client.ClientHttpRequestExecution;
+import org.springframework.http.client.ClientHttpRequestInterceptor;
+import org.springframework.http.client.ClientHttpResponse;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URI;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.LongSupplier;
+
+/**
+ * Limits the number of requests in flight to one Snowstorm server, adapting the limit to what the server sustains:
+ * each successful request adds a little to the limit while it is being used, each overload signal (a 5xx or 429
+ * response, a timeout or other IO failure) halves it. After repeated overload signals in a row a circuit breaker
+ * opens and requests fail fast until, after a pause, a single trial request succeeds.
+ * A request holds its slot until its response is closed, so slow downloads count against the limit.
+ */
+public class SnowstormConcurrencyLimiter implements ClientHttpRequestInterceptor {
+
+	private static final Logger LOGGER = LoggerFactory.getLogger(SnowstormConcurrencyLimiter.class);
+
+	private static final Map<String, SnowstormConcurrencyLimiter> LIMITERS_BY_SERVER = new ConcurrentHashMap<>();
+
+	private static final int DEFAULT_INITIAL_LIMIT = 10;
+	private static final int DEFAULT_MIN_LIMIT = 1;
+	private static final int DEFAULT_MAX_LIMIT = 200;
+	private static final double BACKOFF_RATIO = 0.5;
+	private static final int DEFAULT_FAILURE_THRESHOLD = 5;
+	private static final long DEFAULT_OPEN_MILLIS = 30_000;
+	private static final long DEFAULT_MAX_WAIT_MILLIS = 60_000;
+
+	public enum CircuitState {
+		CLOSED, OPEN, HALF_OPEN
+	}
+
+	private final String name;
+	private final int minLimit;
+	private final int maxLimit;
+	private final int failureThreshold;
+	private final long openMillis;
+	private final long maxWaitMillis;
+	private final LongSupplier clock;
+
+	private double limit;
+	private int inFlight;
+	private int consecutiveFailures;
+	private CircuitState circuitState = CircuitState.CLOSED;
+	private long openedAt;
+	private boolean trialInFlight;
+
+	public SnowstormConcurrencyLimiter(String name, int initialLimit, int minLimit, int maxLimit, int failureThreshold, long openMillis, long maxWaitMillis) {
+		this(name, initialLimit, minLimit, maxLimit, failureThreshold, openMillis, maxWaitMillis, System::currentTimeMillis);
+	}
+
+	SnowstormConcurrencyLimiter(String name, int initialLimit, int minLimit, int maxLimit, int failureThreshold, long openMillis, long maxWaitMillis,
+			LongSupplier clock) {
+		if (minLimit < 1 || maxLimit < minLimit) {
+			throw new IllegalArgumentException("Limits must satisfy 1 <= min <= max");
+		}
+		this.name = name;
+		this.minLimit = minLimit;
+		this.maxLimit = maxLimit;
+		this.limit = Math.max(minLimit, Math.min(maxLimit, initialLimit));
+		this.failureThreshold = Math.max(1, failureThreshold);
+		this.openMillis = openMillis;
+		this.maxWaitMillis = maxWaitMillis;
+		this.clock = clock;
+	}
+
+	/**
+	 * @return the limiter shared by every client of the server the url points to.
+	 */
+	public static SnowstormConcurrencyLimiter forServer(String snowstormUrl) {
+		URI uri = URI.create(snowstormUrl);
+		String server = uri.getScheme() + "://" + uri.getAuthority();
+		return LIMITERS_BY_SERVER.computeIfAbsent(server, key -> new SnowstormConcurrencyLimiter(key, DEFAULT_INITIAL_LIMIT, DEFAULT_MIN_LIMIT,
+				DEFAULT_MAX_LIMIT, DEFAULT_FAILURE_THRESHOLD, DEFAULT_OPEN_MILLIS, DEFAULT_MAX_WAIT_MILLIS));
+	}
+
+	@Override
+	public ClientHttpResponse intercept(HttpRequest request, byte[] body, ClientHttpRequestExecution execution) throws IOException {
+		boolean trial = acquire();
+		ClientHttpResponse response;
+		try {
+			response = execution.execute(request, body);
+		} catch (IOException | RuntimeException e) {
+			release(trial, false);
+			throw e;
+		}
+		int status = response.getStatusCode().value();
+		if (status >= 500 || status == 429) {
+			// The body of an error is small, no need to hold the slot while it is read
+			release(trial, false);
+			return response;
+		}
+		return new LimitedResponse(response, trial);
+	}
+
+	/**
+	 * Waits for a free slot.
+	 * @return true if the slot is the single trial request of a half open circuit, which must be passed back on release.
+	 * @throws IOException if the circuit is open or no slot became free in time.
+	 */
+	synchronized boolean acquire() throws IOException {
+		long deadline = clock.getAsLong() + maxWaitMillis;
+		while (true) {
+			if (circuitState == CircuitState.OPEN) {
+				if (clock.getAsLong() - openedAt < openMillis) {
+					throw new CircuitOpenException("Circuit open for Snowstorm " + name + " after " + consecutiveFailures + " consecutive failures.");
+				}
+				circuitState = CircuitState.HALF_OPEN;
+			}
+			if (circuitState == CircuitState.HALF_OPEN) {
+				if (trialInFlight) {
+					throw new CircuitOpenException("Circuit half open for Snowstorm " + name + ", waiting for the trial request.");
+				}
+				trialInFlight = true;
+				inFlight++;
+				return true;
+			} else if (inFlight < (int) limit) {
+				inFlight++;
+				return false;
+			}
+			long remaining = deadline - clock.getAsLong();
+			if (remaining <= 0) {
+				throw new IOException("Timed out waiting for one of " + (int) limit + " request slots for Snowstorm " + name + ".");
+			}
+			try {
+				wait(remaining);
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				throw new IOException("Interrupted waiting for a request slot for Snowstorm " + name + ".", e);
+			}
+		}
+	}
+
+	/**
+	 * Only the outcome of the trial request decides whether a half open circuit closes or opens again, not that of
+	 * a request admitted before the circuit opened.
+	 *
+	 * @param trial   as returned by {@link #acquire()} for the slot.
+	 * @param success false if the server showed signs of overload.
+	 */
+	synchronized void release(boolean trial, boolean success) {
+		inFlight--;
+		if (success) {
+			consecutiveFailures = 0;
+			if (trial) {
+				LOGGER.info("Closing circuit for Snowstorm {}", name);
+				circuitState = CircuitState.CLOSED;
+				trialInFlight = false;
+			}
+			// Only grow while the limit is actually being used
+			if (inFlight + 1 >= limit / 2) {
+				limit = Math.min(maxLimit, limit + 1 / limit);
+			}
+		} else {
+			consecutiveFailures++;
+			limit = Math.max(minLimit, limit * BACKOFF_RATIO);
+			if (trial || (circuitState == CircuitState.CLOSED && consecutiveFailures >= failureThreshold)) {
+				LOGGER.warn("Opening circuit for Snowstorm {} after {} consecutive failures", name, consecutiveFailures);
+				circuitState = CircuitState.OPEN;
+				openedAt = clock.getAsLong();
+				trialInFlight = false;
+			}
+		}
+		notifyAll();
+	}
+
+	public synchronized int getLimit() {
+		return (int) limit;
+	}
+
+	public synchronized int getInFlight() {
+		return inFlight;
+	}
+
+	public synchronized CircuitState getCircuitState() {
+		return circuitState;
+	}
+
+	@Override
+	public String toString() {
+		return "SnowstormConcurrencyLimiter{" + name + ", limit=" + getLimit() + ", inFlight=" + getInFlight() + ", circuit=" + getCircuitState() + "}";
+	}
+
+	public static class CircuitOpenException extends IOException {
+		public CircuitOpenException(String message) {
+			super(message);
+		}
+	}
+
+	private class LimitedResponse implements ClientHttpResponse {
+
+		private final ClientHttpResponse delegate;
+		private final boolean trial;
+		private InputStream body;
+		private boolean failed;
+		private boolean released;
+
+		private LimitedResponse(ClientHttpResponse delegate, boolean trial) {
+			this.delegate = delegate;
+			this.trial = trial;
+		}
+
+		@Override
+		public HttpStatusCode getStatusCode() throws IOException {
+			return delegate.getStatusCode();
+		}
+
+		@Override
+		public String getStatusText() throws IOException {
+			return delegate.getStatusText();
+		}
+
+		@Override
+		public HttpHeaders getHeaders() {
+			return delegate.getHeaders();
+		}
+
+		@Override
+		public InputStream getBody() throws IOException {
+			if (body == null) {
+				// A read timeout while downloading counts as an overload signal
+				body = new FilterInputStream(delegate.getBody()) {
+					@Override
+					public int read() throws IOException {
+						try {
+							return super.read();
+						} catch (IOException e) {
+							failed = true;
+							throw e;
+						}
+					}
+
+					@Override
+					public int read(byte[] b, int off, int len) throws IOException {
+						try {
+							return super.read(b, off, len);
+						} catch (IOException e) {
+							failed = true;
+							throw e;
+						}
+					}
+				};
+			}
+			return body;
+		}
+
+		@Override
+		public void close() {
+			try {
+				delegate.close();
+			} finally {
+				if (!released) {
+					released = true;
+					release(trial, !failed);
+				}
+			}
+		}
+	}
+}
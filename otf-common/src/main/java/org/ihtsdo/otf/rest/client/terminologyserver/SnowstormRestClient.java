@@ -2,25 +2,31 @@ package org.ihtsdo.otf.rest.client.terminologyserver;
 
 import com.fasterxml.jackson.annotation.JsonInclude;
 import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.DeserializationFeature;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
 import com.google.common.base.Strings;
+import com.google.common.collect.Lists;
 import com.google.gson.Gson;
 import com.google.gson.GsonBuilder;
 import com.google.gson.JsonElement;
 import com.google.gson.JsonParser;
 import com.google.gson.stream.JsonWriter;
-import org.apache.commons.io.IOUtils;
 import org.apache.commons.lang.time.FastDateFormat;
 import org.apache.http.HttpEntity;
 import org.apache.http.entity.ContentType;
 import org.apache.http.entity.mime.HttpMultipartMode;
 import org.apache.http.entity.mime.MultipartEntityBuilder;
+import org.ihtsdo.otf.rest.client.CompressionInterceptor;
+import org.ihtsdo.otf.rest.client.CompressionStatistics;
+import org.ihtsdo.otf.rest.client.HttpTransportConfiguration;
 import org.ihtsdo.otf.rest.client.RestClientException;
 import org.ihtsdo.otf.rest.client.resty.HttpEntityContent;
 import org.ihtsdo.otf.rest.client.resty.RestyHelper;
 import org.ihtsdo.otf.rest.client.terminologyserver.pojo.*;
 import org.ihtsdo.otf.rest.exception.BadRequestException;
 import org.ihtsdo.otf.rest.exception.BusinessServiceException;
+import org.ihtsdo.otf.rest.exception.BusinessServiceRuntimeException;
 import org.ihtsdo.otf.rest.exception.ProcessingException;
 import org.ihtsdo.otf.rest.exception.ResourceNotFoundException;
 import org.ihtsdo.otf.utils.DateUtils;
@@ -29,6 +35,7 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.core.ParameterizedTypeReference;
 import org.springframework.http.*;
+import org.springframework.http.client.ClientHttpRequestInterceptor;
 import org.springframework.http.client.ClientHttpResponse;
 import org.springframework.util.Assert;
 import org.springframework.util.StreamUtils;
@@ -36,6 +43,7 @@ import org.springframework.util.StringUtils;
 import org.springframework.web.client.HttpClientErrorException;
 import org.springframework.web.client.HttpServerErrorException;
 import org.springframework.web.client.HttpStatusCodeException;
+import org.springframework.web.client.ResourceAccessException;
 import org.springframework.web.client.RestTemplate;
 import org.springframework.web.util.UriComponentsBuilder;
 import us.monoid.json.JSONArray;
@@ -45,8 +53,14 @@ import us.monoid.web.JSONResource;
 
 import java.io.*;
 import java.net.URI;
-import java.nio.file.Files;
 import java.util.*;
+import java.util.concurrent.*;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipInputStream;
 
 import static org.springframework.util.Assert.notNull;
 
@@ -73,6 +87,22 @@ public class SnowstormRestClient {
 		PUBLISHED, UNPUBLISHED, FEEDBACK_FIX
 	}
 
+	public enum EclResultType {
+		EXISTS, COUNT, IDS
+	}
+
+	public interface ArchiveStreamHandler<T> {
+		T handle(InputStream archive) throws IOException;
+	}
+
+	public interface ArchiveEntryVisitor {
+		/**
+		 * @param content positioned at the start of the entry. It is only valid until this method returns
+		 *                and does not need to be closed.
+		 */
+		void visit(String entryName, InputStream content) throws IOException;
+	}
+
 	private String singleSignOnCookie;
 	private RestTemplate restTemplate;
 	private final RestyHelper resty;
@@ -84,27 +114,64 @@ public class SnowstormRestClient {
 	private final Gson gson;
 	private int importTimeoutMinutes;
 	private int classificationTimeoutMinutes; //Timeout of 0 means don't time out.
+	private int mergeReviewTimeoutMinutes;
+	private int bulkChangeTimeoutMinutes;
+	private int bulkChangeBatchSize = DEFAULT_BULK_CHANGE_BATCH_SIZE;
+	private boolean bulkChangeIsolateFailures = true;
+	private int batchSize = DEFAULT_BATCH_SIZE;
+	private int pageSize = MAX_PAGE_SIZE;
+	private int batchConcurrency = DEFAULT_BATCH_CONCURRENCY;
+	private int batchRetries = DEFAULT_BATCH_RETRIES;
+	private BranchHeadAwareCache componentCache;
+	private StatusPoller statusPoller = StatusPoller.getShared();
+	private SnowstormClientMetrics metrics;
+	private CompressionInterceptor compressionInterceptor;
+	private SnowstormConcurrencyLimiter concurrencyLimiter;
+	private RequestCoalescer requestCoalescer;
 	private final SnowstormRestUrlHelper urlHelper;
 
-	private static final int BATCH_SIZE = 200;
+	private static final int DEFAULT_BATCH_SIZE = 200;
+	// The most Snowstorm will return in one page
 	private static final int MAX_PAGE_SIZE = 10_000;
+	private static final int DEFAULT_BATCH_CONCURRENCY = 4;
+	private static final int DEFAULT_BULK_CHANGE_BATCH_SIZE = 500;
+	private static final int DEFAULT_BATCH_RETRIES = 2;
+	// Bulk changes sent again, per batch, while isolating the concepts a failed batch is rejected for
+	private static final int MAX_BULK_CHANGE_RESENDS = 32;
+	private static final int MERGE_GROUP_SIZE = 10;
+	private static final int MERGE_MAX_ECL_LENGTH = 200;
 	private static final int INDENT = 2;
+	private static final ItemsPageParser.ItemDecoder<SimpleConceptPojo> SIMPLE_CONCEPT_DECODER = ItemsPageParser.decoderFor(SimpleConceptPojo.class);
 	private static final ObjectMapper mapper = new ObjectMapper().setSerializationInclusion(JsonInclude.Include.NON_NULL);
+	// Derived properties such as getFsnTerm are written but can not be read back
+	private static final ObjectReader CONCEPT_COPY_READER = mapper.readerFor(ConceptPojo.class).without(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES);
 	private static final ParameterizedTypeReference<ItemsPage<CodeSystem>> CODESYSTEM_PAGE_TYPE_REFERENCE = new ParameterizedTypeReference<>() {
     };
 	private static final ParameterizedTypeReference<ItemsPage<CodeSystemVersion>> CODESYSTEM_VERSION_PAGE_TYPE_REFERENCE = new ParameterizedTypeReference<>() {
     };
 	private final Logger logger = LoggerFactory.getLogger(getClass());
 
-	private SnowstormRestClient(String snowstormUrl) {
+	private SnowstormRestClient(String snowstormUrl, HttpTransportConfiguration transportConfiguration) {
 		urlHelper = new SnowstormRestUrlHelper(snowstormUrl);
 		gson = new GsonBuilder().setPrettyPrinting().create();
-		restTemplate = new RestTemplate();
-		this.resty = new RestyHelper(ANY_CONTENT_TYPE);
+		if (transportConfiguration != null) {
+			restTemplate = new RestTemplate(transportConfiguration.getRequestFactory());
+			this.resty = new RestyHelper(ANY_CONTENT_TYPE, transportConfiguration.getRestyOption());
+		} else {
+			restTemplate = new RestTemplate();
+			this.resty = new RestyHelper(ANY_CONTENT_TYPE);
+		}
 	}
 
 	public SnowstormRestClient(String snowstormUrl, String singleSignOnCookie) {
-		this(snowstormUrl);
+		this(snowstormUrl, singleSignOnCookie, (HttpTransportConfiguration) null);
+	}
+
+	/**
+	 * @param transportConfiguration pooled transport to share with other clients, or {@code null} for the JDK defaults.
+	 */
+	public SnowstormRestClient(String snowstormUrl, String singleSignOnCookie, HttpTransportConfiguration transportConfiguration) {
+		this(snowstormUrl, transportConfiguration);
 		this.singleSignOnCookie = " " + singleSignOnCookie;
 		resty.withHeader(HttpHeaders.COOKIE, singleSignOnCookie);
 		restTemplate.setInterceptors(Collections.singletonList((request, body, execution) -> {
@@ -140,6 +207,9 @@ public class SnowstormRestClient {
 
 			return response;
 		}));
+		if (transportConfiguration != null && transportConfiguration.isCompression()) {
+			setCompressionInterceptor(transportConfiguration.createCompressionInterceptor());
+		}
 	}
 
 	private String mask(String token) {
@@ -162,7 +232,7 @@ public class SnowstormRestClient {
 	}
 
 	public SnowstormRestClient(String snowstormUrl, String apiUsername, String apiPassword) {
-		this(snowstormUrl);
+		this(snowstormUrl, (HttpTransportConfiguration) null);
 	}
 
 	public SnowstormRestClient(String snowstormUrl, String apiUsername, String apiPassword, String userName, Set<String> userRoles) {
@@ -216,10 +286,34 @@ public class SnowstormRestClient {
 	/**
 	 * Note: This APi uses browser endpoint  and returns the full information about the concept 
 	 * However it is very slow.
-	 * 
+	 * With the component cache on, each call returns its own copy of the cached concept, which the caller may
+	 * modify, for example before updateConcept, without changing what other callers read.
 	 */
 	public ConceptPojo getConcept(String branchPath, String conceptId) throws RestClientException {
-		return getEntity(urlHelper.getBrowserConceptUri(branchPath, conceptId), ConceptPojo.class);
+		BranchHeadAwareCache.BranchView cacheView = getCacheView(branchPath);
+		if (cacheView == null) {
+			return getEntity(urlHelper.getBrowserConceptUri(branchPath, conceptId), ConceptPojo.class);
+		}
+		ConceptPojo concept = cacheView.get(BranchHeadAwareCache.ComponentType.CONCEPT, conceptId);
+		if (concept == null) {
+			concept = getEntity(urlHelper.getBrowserConceptUri(branchPath, conceptId), ConceptPojo.class);
+			cacheView.put(BranchHeadAwareCache.ComponentType.CONCEPT, conceptId, concept);
+		}
+		return copyOf(concept);
+	}
+
+	/**
+	 * @return a deep copy of the concept, so that the cached instance is never handed out.
+	 */
+	private static ConceptPojo copyOf(ConceptPojo concept) throws RestClientException {
+		if (concept == null) {
+			return null;
+		}
+		try {
+			return CONCEPT_COPY_READER.readValue(mapper.writeValueAsBytes(concept));
+		} catch (IOException e) {
+			throw new RestClientException("Failed to copy cached concept " + concept.getConceptId(), e);
+		}
 	}
 	
 	public ConceptPojo createConcept(String branchPath, ConceptPojo newConcept) throws RestClientException {
@@ -249,12 +343,152 @@ public class SnowstormRestClient {
 		}
 	}
 
-	public Branch getBranch(String branchPath) throws RestClientException {
-		Branch branch = getEntity(urlHelper.getBranchUri(branchPath), Branch.class);
-		if (branch != null && branch.getMetadata() == null) {
-			branch.setMetadata(new HashMap<>());
+	/**
+	 * Creates or updates many concepts through the Snowstorm bulk change endpoint, in batches of the bulk change
+	 * batch size. Snowstorm validates and saves each batch as a whole in the background; batches are sent one after
+	 * another as the branch is locked while one is saved, and each is tracked on the status poller.
+	 * <p>
+	 * When Snowstorm rejects a batch, and isolating failures is on, the batch is split in half and each half sent
+	 * again, until the concepts at fault are found, so that only they are reported as failed. Splitting stops when both
+	 * halves fail with the same message as the batch they came from, as the failure is then not about particular
+	 * concepts, and after {@value #MAX_BULK_CHANGE_RESENDS} resends of one batch. A batch whose fate is unknown,
+	 * eg because tracking it timed out, is not sent again and all of its concepts are reported as failed.
+	 *
+	 * @return an outcome per concept, in the order the concepts were given.
+	 */
+	public List<ConceptChangeOutcome> saveConcepts(String branchPath, List<ConceptPojo> concepts) throws InterruptedException {
+		List<ConceptChangeOutcome> outcomes = new ArrayList<>(concepts.size());
+		for (List<ConceptPojo> batch : Lists.partition(concepts, bulkChangeBatchSize)) {
+			saveConceptBatch(branchPath, batch, outcomes);
 		}
-		return branch;
+		return outcomes;
+	}
+
+	private void saveConceptBatch(String branchPath, List<ConceptPojo> batch, List<ConceptChangeOutcome> outcomes) throws InterruptedException {
+		ConceptChangeBatch change = sendConceptBatch(branchPath, batch);
+		recordConceptBatch(branchPath, batch, change, new int[] {MAX_BULK_CHANGE_RESENDS}, outcomes);
+	}
+
+	private void recordConceptBatch(String branchPath, List<ConceptPojo> batch, ConceptChangeBatch change, int[] resendsLeft,
+			List<ConceptChangeOutcome> outcomes) throws InterruptedException {
+
+		if (change.getStatus() == ConceptChangeBatch.ConceptChangeBatchStatus.COMPLETED) {
+			List<String> conceptIds = change.getConceptIds();
+			boolean idsInOrder = conceptIds != null && conceptIds.size() == batch.size();
+			if (!idsInOrder) {
+				logger.warn("Bulk change {} returned {} concept ids for {} concepts, new concepts will have no id",
+						change.getId(), conceptIds != null ? conceptIds.size() : 0, batch.size());
+			}
+			for (int i = 0; i < batch.size(); i++) {
+				ConceptPojo concept = batch.get(i);
+				outcomes.add(ConceptChangeOutcome.saved(concept, change.getId(), idsInOrder ? conceptIds.get(i) : concept.getConceptId()));
+			}
+		} else if (change.getStatus() == ConceptChangeBatch.ConceptChangeBatchStatus.FAILED
+				&& bulkChangeIsolateFailures && batch.size() > 1 && resendsLeft[0] >= 2) {
+			// Nothing in a failed batch was saved, so both halves can be sent again
+			logger.info("Bulk change {} of {} concepts failed, retrying in halves: {}", change.getId(), batch.size(), change.getMessage());
+			resendsLeft[0] -= 2;
+			int half = batch.size() / 2;
+			List<ConceptPojo> firstHalf = batch.subList(0, half);
+			List<ConceptPojo> secondHalf = batch.subList(half, batch.size());
+			ConceptChangeBatch firstChange = sendConceptBatch(branchPath, firstHalf);
+			ConceptChangeBatch secondChange = sendConceptBatch(branchPath, secondHalf);
+			if (isSameFailure(change, firstChange) && isSameFailure(change, secondChange)) {
+				// The failure is not down to particular concepts, splitting further would not isolate anything
+				logger.info("Both halves of bulk change {} failed the same way, not splitting further", change.getId());
+				recordFailedConceptBatch(firstHalf, firstChange, outcomes);
+				recordFailedConceptBatch(secondHalf, secondChange, outcomes);
+			} else {
+				recordConceptBatch(branchPath, firstHalf, firstChange, resendsLeft, outcomes);
+				recordConceptBatch(branchPath, secondHalf, secondChange, resendsLeft, outcomes);
+			}
+		} else {
+			recordFailedConceptBatch(batch, change, outcomes);
+		}
+	}
+
+	/**
+	 * @return the finished change. If its outcome is unknown, eg because tracking it timed out, a change with no status
+	 * and only the error message is returned, and the batch must not be sent again.
+	 */
+	private ConceptChangeBatch sendConceptBatch(String branchPath, List<ConceptPojo> batch) throws InterruptedException {
+		try {
+			ConceptChangeBatch change = startBulkConceptChange(branchPath, batch);
+			if (change.getStatus() == null) {
+				change = join(waitForBulkConceptChangeAsync(branchPath, change.getId()));
+			}
+			return change;
+		} catch (RestClientException | RuntimeException e) {
+			logger.error("Bulk change of {} concepts on {} failed", batch.size(), branchPath, e);
+			ConceptChangeBatch unknown = new ConceptChangeBatch();
+			unknown.setMessage(e.getMessage());
+			return unknown;
+		}
+	}
+
+	private static boolean isSameFailure(ConceptChangeBatch parent, ConceptChangeBatch change) {
+		return change.getStatus() == ConceptChangeBatch.ConceptChangeBatchStatus.FAILED
+				&& Objects.equals(parent.getMessage(), change.getMessage());
+	}
+
+	private void recordFailedConceptBatch(List<ConceptPojo> batch, ConceptChangeBatch change, List<ConceptChangeOutcome> outcomes) {
+		String message = change.getMessage() != null || change.getStatus() == null ? change.getMessage() : "Bulk change " + change.getStatus();
+		for (ConceptPojo concept : batch) {
+			outcomes.add(ConceptChangeOutcome.failed(concept, change.getId(), message));
+		}
+	}
+
+	/**
+	 * @return the started change, with only its id set, or a FAILED change if Snowstorm rejected the batch outright.
+	 */
+	private ConceptChangeBatch startBulkConceptChange(String branchPath, List<ConceptPojo> batch) throws RestClientException {
+		URI uri = urlHelper.getBulkConceptChangesUri(branchPath);
+		RequestEntity<String> post = RequestEntity.post(uri)
+				.header(COOKIE, singleSignOnCookie)
+				.contentType(MediaType.APPLICATION_JSON)
+				.body(gson.toJson(batch));
+		ConceptChangeBatch change = new ConceptChangeBatch();
+		try {
+			ResponseEntity<String> response = restTemplate.exchange(post, String.class);
+			String location = response.getHeaders().getFirst("Location");
+			if (Strings.isNullOrEmpty(location)) {
+				throw new RestClientException("Failed to start bulk concept change, location header missing from response. URI:" + uri);
+			}
+			change.setId(location.substring(location.lastIndexOf("/") + 1));
+		} catch (HttpClientErrorException.BadRequest e) {
+			change.setStatus(ConceptChangeBatch.ConceptChangeBatchStatus.FAILED);
+			change.setMessage(e.getResponseBodyAsString());
+		} catch (HttpStatusCodeException e) {
+			throw new RestClientException("Failed to start bulk concept change, status code: " + e.getStatusCode() + " URI: " + uri, e);
+		} catch (ResourceAccessException e) {
+			throw new RestClientException("Failed to start bulk concept change, URI: " + uri, e);
+		}
+		return change;
+	}
+
+	/**
+	 * Returns a future which completes with the bulk change once Snowstorm has finished saving it, or failed to.
+	 */
+	public CompletableFuture<ConceptChangeBatch> waitForBulkConceptChangeAsync(String branchPath, String bulkChangeId) {
+		return statusPoller.poll(() -> {
+			ConceptChangeBatch change = getEntity(urlHelper.getBulkConceptChangeUri(branchPath, bulkChangeId), ConceptChangeBatch.class);
+			if (change == null) {
+				throw new ResourceNotFoundException("Bulk concept change", bulkChangeId);
+			}
+			return change.getStatus() != ConceptChangeBatch.ConceptChangeBatchStatus.RUNNING ? change : null;
+		}, getTimeoutDate(bulkChangeTimeoutMinutes), "bulk concept change " + bulkChangeId);
+	}
+
+	public Branch getBranch(String branchPath) throws RestClientException {
+		RequestEntity<Void> get = RequestEntity.get(urlHelper.getBranchUri(branchPath))
+				.header(COOKIE, singleSignOnCookie)
+				.build();
+		// Normalised before the branch may be shared with coalesced callers
+		return doExchange(get, Branch.class, branch -> {
+			if (branch.getMetadata() == null) {
+				branch.setMetadata(new HashMap<>());
+			}
+		});
 	}
 
 	public MembersResponse getMembers(String branchPath, String referenceSet, int limit) throws RestClientException {
@@ -266,41 +500,65 @@ public class SnowstormRestClient {
 		return entries;
 	}
 	
+	/**
+	 * Streams all members of a reference set matching the optional filters, paging with the searchAfter cursor
+	 * and reading one member at a time from the response, so memory use stays flat however large the refset.
+	 * The stream keeps a connection open until it is exhausted or closed, so close it, eg with try-with-resources,
+	 * when stopping early. Failures are rethrown as {@link BusinessServiceRuntimeException}.
+	 *
+	 * @param referencedComponentId optional.
+	 * @param active                optional, {@code null} returns both active and inactive members.
+	 * @param moduleId              optional.
+	 */
+	public Stream<RefsetMemberPojo> streamMembers(String branchPath, String referenceSet, String referencedComponentId, Boolean active, String moduleId) {
+		notNull(referenceSet, "Reference set is required.");
+		RefsetMemberIterator iterator = new RefsetMemberIterator(restTemplate.getRequestFactory(), searchAfter -> {
+			UriComponentsBuilder queryBuilder = UriComponentsBuilder.fromHttpUrl(urlHelper.getMembersUrl(branchPath))
+					.queryParam("referenceSet", referenceSet)
+					.queryParam("limit", pageSize);
+			if (referencedComponentId != null) {
+				queryBuilder.queryParam("referencedComponentId", referencedComponentId);
+			}
+			if (active != null) {
+				queryBuilder.queryParam("active", active);
+			}
+			if (moduleId != null) {
+				queryBuilder.queryParam("module", moduleId);
+			}
+			if (searchAfter != null) {
+				queryBuilder.queryParam("searchAfter", searchAfter);
+			}
+			return queryBuilder.build().encode().toUri();
+		}, pageSize, getAuthenticationToken());
+		return StreamSupport.stream(Spliterators.spliteratorUnknownSize(iterator, Spliterator.ORDERED | Spliterator.NONNULL), false)
+				.onClose(iterator::close);
+	}
+
 	public String getFsn(String branchPath, String conceptId) throws RestClientException {
 		return getFsns(branchPath, Collections.singletonList(conceptId)).get(conceptId);
 	}
 	
 	public Map<String, Set<SimpleDescriptionPojo>> getDescriptions(String branchPath, Collection<String> conceptIds) throws RestClientException {
+		String authenticationToken = getAuthenticationToken();
+		List<Map<String, Set<SimpleDescriptionPojo>>> responses = newBatchRequestExecutor("getDescriptions").execute(conceptIds, batchSize, batch -> {
+			RequestEntity<Void> countRequest = createDescriptionsByConceptsSearchRequest(branchPath, batch, batch.size(), authenticationToken);
+			Map<String, Set<SimpleDescriptionPojo>> descriptions = new HashMap<>();
+			readItemsPage(countRequest, SIMPLE_CONCEPT_DECODER, pojo -> descriptions.put(pojo.getId(), pojo.getDescriptions().getItems()));
+			return descriptions;
+		});
 		Map<String, Set<SimpleDescriptionPojo>> result = new HashMap<>();
-		List<String> batchJob = null;
-		int counter=0;
-		for (String conceptId : conceptIds) {
-			if (batchJob == null) {
-				batchJob = new ArrayList<>();
-			}
-			batchJob.add(conceptId);
-			counter++;
-			if (counter % BATCH_SIZE == 0 || counter == conceptIds.size()) {
-				RequestEntity<Void> countRequest = createDescriptionsByConceptsSearchRequest(branchPath, batchJob, batchJob.size());
-				SimpleConceptResponse simpleConceptResp = doExchange(countRequest, SimpleConceptResponse.class);
-				if (simpleConceptResp == null || simpleConceptResp.getItems().isEmpty()) {
-					throw new ResourceNotFoundException("Can't find concepts from branch " + branchPath);
-				}
-				for (SimpleConceptPojo pojo : simpleConceptResp.getItems()) {
-					result.put(pojo.getId(), pojo.getDescriptions().getItems());
-				}
-				batchJob = null;
-			}
+		responses.forEach(result::putAll);
+		// Only fails when none of the concepts are found, not when one batch happens to find none
+		if (result.isEmpty() && !conceptIds.isEmpty()) {
+			throw new ResourceNotFoundException("Can't find concepts from branch " + branchPath);
 		}
 		return result;
 	}
 	
-	private RequestEntity<Void> createDescriptionsByConceptsSearchRequest(String branchPath, Collection<String> conceptIds, int limit) {
+	private RequestEntity<Void> createDescriptionsByConceptsSearchRequest(String branchPath, Collection<String> conceptIds, int limit, String authenticationToken) {
 		if (conceptIds == null || conceptIds.isEmpty()) {
 			throw new IllegalArgumentException("Concept ids must be specified");
 		}
-		String authenticationToken = singleSignOnCookie != null ?
-				singleSignOnCookie : SecurityUtil.getAuthenticationToken();
 		UriComponentsBuilder queryBuilder = UriComponentsBuilder.fromHttpUrl
 				(urlHelper.getSimpleConceptsUrl(branchPath))
 				.queryParam("active", true)
@@ -317,26 +575,61 @@ public class SnowstormRestClient {
 	}
 
 	public Map<String, String> getFsns(String branchPath, Collection<String> conceptIds) throws RestClientException {
-		RequestEntity<Void> countRequest = createConceptsRequest(branchPath,conceptIds, conceptIds.size());
-		SimpleConceptResponse simpleConceptResp = doExchange(countRequest, SimpleConceptResponse.class);
-		if (simpleConceptResp == null || simpleConceptResp.getItems().isEmpty()) {
-			throw new ResourceNotFoundException("Can't find concepts from branch:" + branchPath);
+		BranchHeadAwareCache.BranchView cacheView = getCacheView(branchPath);
+		if (cacheView == null) {
+			return fetchFsns(branchPath, conceptIds);
 		}
 		Map<String, String> result = new HashMap<>();
-		for (SimpleConceptPojo pojo : simpleConceptResp.getItems()) {
-			result.put(pojo.getId(), pojo.getFsn().getTerm());
+		List<String> uncached = new ArrayList<>();
+		for (String conceptId : conceptIds) {
+			String fsn = cacheView.get(BranchHeadAwareCache.ComponentType.FSN, conceptId);
+			if (fsn != null) {
+				result.put(conceptId, fsn);
+			} else {
+				uncached.add(conceptId);
+			}
+		}
+		if (!uncached.isEmpty()) {
+			Map<String, String> fetched = fetchFsns(branchPath, uncached);
+			fetched.forEach((conceptId, fsn) -> cacheView.put(BranchHeadAwareCache.ComponentType.FSN, conceptId, fsn));
+			result.putAll(fetched);
 		}
 		return result;
 	}
-	
-	private RequestEntity<Void> createConceptsRequest(String branchPath, Collection<String> conceptIds, int size) {
-		return createConceptsRequest(branchPath, null, null, conceptIds, size, false);
-	}
 
+	private Map<String, String> fetchFsns(String branchPath, Collection<String> conceptIds) throws RestClientException {
+		String authenticationToken = getAuthenticationToken();
+		List<Map<String, String>> responses = newBatchRequestExecutor("getFsns").execute(conceptIds, batchSize, batch -> {
+			RequestEntity<Void> countRequest = createConceptsRequest(branchPath, null, null, batch, batch.size(), false, authenticationToken);
+			Map<String, String> fsns = new HashMap<>();
+			readItemsPage(countRequest, SIMPLE_CONCEPT_DECODER, pojo -> fsns.put(pojo.getId(), pojo.getFsn().getTerm()));
+			return fsns;
+		});
+		Map<String, String> result = new HashMap<>();
+		responses.forEach(result::putAll);
+		if (result.isEmpty() && !conceptIds.isEmpty()) {
+			throw new ResourceNotFoundException("Can't find concepts from branch:" + branchPath);
+		}
+		return result;
+	}
 	
 	public Set<ConceptMiniPojo> getConceptMinis(String branchPath, List<String> concepts, int limit) throws RestClientException {
-		
-		RequestEntity<Void> countRequest = createConceptsRequest(branchPath, null, null, concepts, limit, true);
+		String authenticationToken = getAuthenticationToken();
+		if (concepts == null || concepts.size() <= batchSize) {
+			return doGetConceptMinis(branchPath, concepts, limit, authenticationToken);
+		}
+		List<Set<ConceptMiniPojo>> responses = newBatchRequestExecutor("getConceptMinis").execute(concepts, batchSize,
+				batch -> doGetConceptMinis(branchPath, batch, batch.size(), authenticationToken));
+		Set<ConceptMiniPojo> result = new LinkedHashSet<>();
+		responses.forEach(result::addAll);
+		if (result.size() > limit) {
+			return result.stream().limit(limit).collect(Collectors.toCollection(LinkedHashSet::new));
+		}
+		return result;
+	}
+
+	private Set<ConceptMiniPojo> doGetConceptMinis(String branchPath, List<String> concepts, int limit, String authenticationToken) throws RestClientException {
+		RequestEntity<Void> countRequest = createConceptsRequest(branchPath, null, null, concepts, limit, true, authenticationToken);
 		ConceptMiniResponse conceptMiniResp = doExchange(countRequest, ConceptMiniResponse.class);
 		if (conceptMiniResp == null) {
 			throw new ResourceNotFoundException("Concepts query returned null result on branch " + branchPath);
@@ -354,11 +647,11 @@ public class SnowstormRestClient {
 			String termPrefix, List<String> concepts, int limit, boolean stated) throws RestClientException {
 		
 		RequestEntity<Void> countRequest = createConceptsRequest(branchPath, ecl, termPrefix, concepts, limit, stated);
-		SimpleConceptResponse simpleConceptResp = doExchange(countRequest, SimpleConceptResponse.class);
-		if (simpleConceptResp == null) {
+		Set<SimpleConceptPojo> items = new HashSet<>();
+		if (readItemsPage(countRequest, SIMPLE_CONCEPT_DECODER, items::add) == null) {
 			throw new ResourceNotFoundException("ECL query returned null result.");
 		}
-		return simpleConceptResp.getItems();
+		return items;
 	}
 
 	public Set<String> eclQuery(String branchPath, String ecl, int limit) throws RestClientException {
@@ -367,38 +660,143 @@ public class SnowstormRestClient {
 	
 	
 	public Set<String> eclQuery(String branchPath, String ecl, int totalLimit, boolean stated) throws RestClientException {
-		if (totalLimit > MAX_PAGE_SIZE) {
+		if (totalLimit > pageSize) {
 			Set<String> all = new HashSet<>();
-			int pageOffset = 0;
-			int pageLimit = MAX_PAGE_SIZE;
-			boolean complete = false;
-			while (!complete) {
-				Set<String> pageResults = doEclQueryWithoutPaging(branchPath, ecl, pageOffset, pageLimit, stated);
-				if (!pageResults.isEmpty()) {
-					all.addAll(pageResults);
-				}
-				if (pageResults.size() == MAX_PAGE_SIZE) {
-					pageOffset += MAX_PAGE_SIZE;
-					if ((pageOffset + pageLimit) > totalLimit) {
-						pageLimit = totalLimit - pageOffset;
-					}
-				} else {
-					complete = true;
-				}
-			}
+			eclQuery(branchPath, ecl, stated, all::addAll, totalLimit);
 			return all;
 		} else {
 			return doEclQueryWithoutPaging(branchPath, ecl, 0, totalLimit, stated);
 		}
 	}
 
+	/**
+	 * Pages through the full result of an ECL query using the searchAfter cursor, handing each page of
+	 * concept ids to the consumer as it arrives. Only one page is held in memory at a time.
+	 */
+	public void eclQuery(String branchPath, String ecl, boolean stated, Consumer<Set<String>> pageConsumer) throws RestClientException {
+		eclQuery(branchPath, ecl, stated, pageConsumer, Integer.MAX_VALUE);
+	}
+
+	private void eclQuery(String branchPath, String ecl, boolean stated, Consumer<Set<String>> pageConsumer, int totalLimit) throws RestClientException {
+		EclPageIterator pages = new EclPageIterator(branchPath, ecl, stated, totalLimit, getAuthenticationToken());
+		while (pages.hasNextPage()) {
+			pageConsumer.accept(pages.nextPage());
+		}
+	}
+
+	/**
+	 * Lazily streams the result of an ECL query, fetching the next page with the searchAfter cursor
+	 * only once the previous one has been consumed.
+	 * Failures while fetching a page are rethrown as {@link BusinessServiceRuntimeException}.
+	 */
+	public Stream<String> eclQueryStream(String branchPath, String ecl, boolean stated) {
+		EclPageIterator pages = new EclPageIterator(branchPath, ecl, stated, Integer.MAX_VALUE, getAuthenticationToken());
+		Iterator<Set<String>> iterator = new Iterator<>() {
+			@Override
+			public boolean hasNext() {
+				try {
+					return pages.hasNextPage();
+				} catch (RestClientException e) {
+					throw new BusinessServiceRuntimeException("Failed to fetch next page of ECL results", e);
+				}
+			}
+
+			@Override
+			public Set<String> next() {
+				if (!hasNext()) {
+					throw new NoSuchElementException();
+				}
+				return pages.nextPage();
+			}
+		};
+		return StreamSupport.stream(Spliterators.spliteratorUnknownSize(iterator, Spliterator.ORDERED | Spliterator.NONNULL), false)
+				.flatMap(Set::stream);
+	}
+
+	/**
+	 * Pages through all concepts matching an ECL query with the searchAfter cursor, handing each concept, with its FSN,
+	 * to the consumer as it is read from the response. Neither a page nor the full result is held in memory.
+	 * @return the number of concepts read.
+	 */
+	public long forEachConcept(String branchPath, String ecl, boolean stated, Consumer<SimpleConceptPojo> conceptConsumer) throws RestClientException {
+		String authenticationToken = getAuthenticationToken();
+		long count = 0;
+		String searchAfter = null;
+		while (true) {
+			UriComponentsBuilder queryBuilder = UriComponentsBuilder.fromHttpUrl(urlHelper.getSimpleConceptsUrl(branchPath))
+					.queryParam("active", true)
+					.queryParam("expand", "fsn()")
+					.queryParam("termActive", true)
+					.queryParam("limit", pageSize)
+					.queryParam(stated ? "statedEcl" : "ecl", ecl);
+			if (searchAfter != null) {
+				queryBuilder.queryParam("searchAfter", searchAfter);
+			}
+			RequestEntity<Void> request = RequestEntity.get(queryBuilder.build().encode().toUri())
+					.header(COOKIE, authenticationToken)
+					.build();
+			ItemsPageParser page = readItemsPage(request, SIMPLE_CONCEPT_DECODER, conceptConsumer);
+			if (page == null) {
+				throw new ResourceNotFoundException("ECL query returned null result.");
+			}
+			count += page.getItemCount();
+			searchAfter = page.getSearchAfter();
+			if (page.getItemCount() < pageSize || searchAfter == null) {
+				return count;
+			}
+		}
+	}
+
+	private class EclPageIterator {
+		private final String branchPath;
+		private final String ecl;
+		private final boolean stated;
+		private final int totalLimit;
+		private final String authenticationToken;
+		private String searchAfter;
+		private int fetched;
+		private boolean complete;
+		private Set<String> nextPage;
+
+		private EclPageIterator(String branchPath, String ecl, boolean stated, int totalLimit, String authenticationToken) {
+			this.branchPath = branchPath;
+			this.ecl = ecl;
+			this.stated = stated;
+			this.totalLimit = totalLimit;
+			this.authenticationToken = authenticationToken;
+		}
+
+		private boolean hasNextPage() throws RestClientException {
+			if (nextPage == null && !complete) {
+				int pageLimit = Math.min(pageSize, totalLimit - fetched);
+				RequestEntity<Void> request = createEclRequest(branchPath, ecl, 0, searchAfter, pageLimit, stated, authenticationToken);
+				Set<String> conceptIds = new HashSet<>();
+				ItemsPageParser page = readItemsPage(request, ItemsPageParser.ID_DECODER, conceptIds::add);
+				if (page == null) {
+					throw new ResourceNotFoundException("ECL query returned null result.");
+				}
+				fetched += conceptIds.size();
+				searchAfter = page.getSearchAfter();
+				complete = conceptIds.size() < pageLimit || fetched >= totalLimit || searchAfter == null;
+				nextPage = conceptIds.isEmpty() ? null : conceptIds;
+			}
+			return nextPage != null;
+		}
+
+		private Set<String> nextPage() {
+			Set<String> page = nextPage;
+			nextPage = null;
+			return page;
+		}
+	}
+
 	private Set<String> doEclQueryWithoutPaging(String branchPath, String ecl, int offset, int limit, boolean stated) throws RestClientException {
 		RequestEntity<Void> countRequest = createEclRequest(branchPath, ecl, offset, limit, stated);
-		ConceptIdsResponse conceptIdsResponse = doExchange(countRequest, ConceptIdsResponse.class);
-		if (conceptIdsResponse == null) {
+		Set<String> conceptIds = new HashSet<>();
+		if (readItemsPage(countRequest, ItemsPageParser.ID_DECODER, conceptIds::add) == null) {
 			throw new ResourceNotFoundException("ECL query returned null result.");
 		}
-		return conceptIdsResponse.getConceptIds();
+		return conceptIds;
 	}
 
 	public boolean eclQueryHasAnyMatches(String branchPath, String ecl) throws RestClientException {
@@ -406,19 +804,123 @@ public class SnowstormRestClient {
 	}
 	
 	public boolean eclQueryHasAnyMatches(String branchPath, String ecl, boolean stated) throws RestClientException {
-		RequestEntity<Void> countRequest = createEclRequest(branchPath, ecl, 0, 1, stated);
+		return eclQueryCount(branchPath, ecl, stated, getAuthenticationToken()) > 0;
+	}
+
+	/**
+	 * Evaluates many named ECL expressions against one branch, running up to the batch concurrency at once.
+	 * See {@link #eclQueryBulk(String, Map, EclResultType, boolean, boolean)}.
+	 */
+	public Map<String, EclQueryResult> eclQueryBulk(String branchPath, Map<String, String> namedEcl, EclResultType resultType, boolean stated) throws RestClientException {
+		return eclQueryBulk(branchPath, namedEcl, resultType, stated, false);
+	}
+
+	/**
+	 * Evaluates many named ECL expressions against one branch, running up to the batch concurrency at once.
+	 * EXISTS and COUNT cost a single request per expression. IDS pages through the full result of each expression.
+	 *
+	 * @param mergeSmallExpressions first check short expressions in groups, joined into a single disjunction.
+	 *                              A group with no matches answers all its expressions with one request. A group with
+	 *                              matches is evaluated expression by expression, because a disjunction's result can not
+	 *                              be split back per expression. This pays off when most expressions are expected to
+	 *                              match nothing, as is usual for validation rules.
+	 * @return a result per name, in the iteration order of <code>namedEcl</code>.
+	 */
+	public Map<String, EclQueryResult> eclQueryBulk(String branchPath, Map<String, String> namedEcl, EclResultType resultType,
+			boolean stated, boolean mergeSmallExpressions) throws RestClientException {
+		notNull(resultType, "Result type is required.");
+		String authenticationToken = getAuthenticationToken();
+		List<List<String>> groups = new ArrayList<>();
+		List<String> mergeable = new ArrayList<>();
+		for (Map.Entry<String, String> entry : namedEcl.entrySet()) {
+			if (mergeSmallExpressions && entry.getValue().length() <= MERGE_MAX_ECL_LENGTH) {
+				mergeable.add(entry.getKey());
+			} else {
+				groups.add(Collections.singletonList(entry.getKey()));
+			}
+		}
+		groups.addAll(Lists.partition(mergeable, MERGE_GROUP_SIZE));
+
+		List<List<EclQueryResult>> groupResults = newBatchRequestExecutor("eclQueryBulk").execute(groups, names -> {
+			if (names.size() > 1) {
+				String disjunction = names.stream().map(name -> "(" + namedEcl.get(name) + ")").collect(Collectors.joining(" OR "));
+				if (eclQueryCount(branchPath, disjunction, stated, authenticationToken) == 0) {
+					return names.stream().map(name -> EclQueryResult.empty(name, namedEcl.get(name), resultType == EclResultType.IDS)).toList();
+				}
+			}
+			List<EclQueryResult> results = new ArrayList<>();
+			for (String name : names) {
+				results.add(evaluateEcl(branchPath, name, namedEcl.get(name), resultType, stated, authenticationToken));
+			}
+			return results;
+		});
+
+		Map<String, EclQueryResult> resultsByName = new HashMap<>();
+		groupResults.forEach(results -> results.forEach(result -> resultsByName.put(result.getName(), result)));
+		Map<String, EclQueryResult> ordered = new LinkedHashMap<>();
+		namedEcl.keySet().forEach(name -> ordered.put(name, resultsByName.get(name)));
+		return ordered;
+	}
+
+	/**
+	 * Evaluates one ECL expression on each of the branches in parallel, up to the batch concurrency, so that
+	 * the result on each can be compared with the baseline branch.
+	 * The ids of each branch are collected page by page into a {@link ConceptIdSet}.
+	 *
+	 * @param baselineBranchPath evaluated as well if it is not one of <code>branchPaths</code>.
+	 */
+	public EclBranchComparison eclQueryAcrossBranches(List<String> branchPaths, String baselineBranchPath, String ecl, boolean stated) throws RestClientException {
+		notNull(baselineBranchPath, "Baseline branch is required.");
+		String authenticationToken = getAuthenticationToken();
+		Set<String> allBranchPaths = new LinkedHashSet<>(branchPaths);
+		allBranchPaths.add(baselineBranchPath);
+		List<String> orderedBranchPaths = new ArrayList<>(allBranchPaths);
+
+		List<ConceptIdSet> results = newBatchRequestExecutor("eclQueryAcrossBranches").execute(orderedBranchPaths, 1, batch -> {
+			ConceptIdSet.Builder builder = new ConceptIdSet.Builder();
+			EclPageIterator pages = new EclPageIterator(batch.get(0), ecl, stated, Integer.MAX_VALUE, authenticationToken);
+			while (pages.hasNextPage()) {
+				builder.addAll(pages.nextPage());
+			}
+			return builder.build();
+		});
+
+		Map<String, ConceptIdSet> membership = new LinkedHashMap<>();
+		for (int i = 0; i < orderedBranchPaths.size(); i++) {
+			membership.put(orderedBranchPaths.get(i), results.get(i));
+		}
+		return new EclBranchComparison(ecl, baselineBranchPath, membership);
+	}
+
+	private EclQueryResult evaluateEcl(String branchPath, String name, String ecl, EclResultType resultType, boolean stated, String authenticationToken) throws RestClientException {
+		if (resultType != EclResultType.IDS) {
+			return new EclQueryResult(name, ecl, eclQueryCount(branchPath, ecl, stated, authenticationToken), null);
+		}
+		Set<String> conceptIds = new HashSet<>();
+		EclPageIterator pages = new EclPageIterator(branchPath, ecl, stated, Integer.MAX_VALUE, authenticationToken);
+		while (pages.hasNextPage()) {
+			conceptIds.addAll(pages.nextPage());
+		}
+		return new EclQueryResult(name, ecl, conceptIds.size(), conceptIds);
+	}
+
+	private long eclQueryCount(String branchPath, String ecl, boolean stated, String authenticationToken) throws RestClientException {
+		RequestEntity<Void> countRequest = createEclRequest(branchPath, ecl, 0, null, 1, stated, authenticationToken);
 		ConceptIdsResponse conceptIdsResponse = doExchange(countRequest, ConceptIdsResponse.class);
 		if (conceptIdsResponse == null) {
 			throw new ResourceNotFoundException("ECL query returned null result.");
 		}
-		return conceptIdsResponse.getTotal() > 0;
+		return conceptIdsResponse.getTotal();
 	}
 	
 	
 	private RequestEntity<Void> createConceptsRequest(String branchPath, String ecl,
 			String termPrefix, Collection<String> concepts, int limit, boolean stated) {
-		String authenticationToken = singleSignOnCookie != null ?
-				singleSignOnCookie : SecurityUtil.getAuthenticationToken();
+		return createConceptsRequest(branchPath, ecl, termPrefix, concepts, limit, stated, getAuthenticationToken());
+	}
+
+	private RequestEntity<Void> createConceptsRequest(String branchPath, String ecl,
+			String termPrefix, Collection<String> concepts, int limit, boolean stated, String authenticationToken) {
 		UriComponentsBuilder queryBuilder = UriComponentsBuilder.fromHttpUrl
 				(urlHelper.getSimpleConceptsUrl(branchPath))
 				.queryParam("active", true)
@@ -450,11 +952,18 @@ public class SnowstormRestClient {
 	}
 
 	private RequestEntity<Void> createEclRequest(final String branchPath, String ecl, int offset, int limit, boolean stated) {
-		String authenticationToken = singleSignOnCookie != null ? singleSignOnCookie : SecurityUtil.getAuthenticationToken();
+		return createEclRequest(branchPath, ecl, offset, null, limit, stated, getAuthenticationToken());
+	}
+
+	private RequestEntity<Void> createEclRequest(final String branchPath, String ecl, int offset, String searchAfter, int limit, boolean stated, String authenticationToken) {
 		UriComponentsBuilder queryBuilder = UriComponentsBuilder.fromHttpUrl(urlHelper.getSimpleConceptsUrl(branchPath))
 				.queryParam("active", true)
-				.queryParam("offset", offset)
 				.queryParam("limit", limit);
+		if (searchAfter != null) {
+			queryBuilder.queryParam("searchAfter", searchAfter);
+		} else {
+			queryBuilder.queryParam("offset", offset);
+		}
 		if (stated) {
 			queryBuilder.queryParam("statedEcl", ecl);
 		} else {
@@ -475,6 +984,91 @@ public class SnowstormRestClient {
 				.build();
 	}
 
+	/**
+	 * @return where to read and cache components of the branch, or {@code null} if caching is disabled
+	 * or the branch could not be found.
+	 */
+	private BranchHeadAwareCache.BranchView getCacheView(String branchPath) throws RestClientException {
+		if (componentCache == null) {
+			return null;
+		}
+		return componentCache.getBranchView(branchPath, this::getBranch, this::getChangedConcepts);
+	}
+
+	/**
+	 * Uses a branch review to find the concepts changed on a branch since it was last based on its parent.
+	 * @return {@code null} if the review did not complete.
+	 */
+	private Set<String> getChangedConcepts(String branchPath, String parentPath) throws RestClientException {
+		Map<String, String> request = new HashMap<>();
+		request.put("source", branchPath);
+		request.put("target", parentPath);
+		String reviewId = createEntity(urlHelper.getBranchReviewsUri(), request);
+		if (reviewId == null) {
+			return null;
+		}
+		BranchReview review;
+		try {
+			review = join(statusPoller.poll(() -> {
+				BranchReview current = getEntity(urlHelper.getBranchReviewUri(reviewId), BranchReview.class);
+				if (current == null) {
+					throw new ResourceNotFoundException("Branch review", reviewId);
+				}
+				return current.getStatus() != BranchReview.ReviewStatus.PENDING ? current : null;
+			}, getTimeoutDate(mergeReviewTimeoutMinutes), "branch review " + reviewId));
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new RestClientException("Interrupted waiting for branch review " + reviewId, e);
+		}
+		if (review.getStatus() != BranchReview.ReviewStatus.CURRENT) {
+			logger.info("Branch review {} of {} ended {}, not reading it through the cache of {}", reviewId, branchPath, review.getStatus(), parentPath);
+			return null;
+		}
+		BranchReviewConceptChanges changes = getEntity(urlHelper.getBranchReviewConceptChangesUri(reviewId), BranchReviewConceptChanges.class);
+		if (changes == null) {
+			return null;
+		}
+		return changes.getChangedConcepts() != null ? changes.getChangedConcepts() : Collections.emptySet();
+	}
+
+	/**
+	 * Resolved on the calling thread so that batch requests running on worker threads carry the caller's credentials.
+	 */
+	private String getAuthenticationToken() {
+		return singleSignOnCookie != null ? singleSignOnCookie : SecurityUtil.getAuthenticationToken();
+	}
+
+	private BatchRequestExecutor newBatchRequestExecutor(String operation) {
+		return new BatchRequestExecutor(batchConcurrency, batchRetries, metrics, operation);
+	}
+
+	/**
+	 * Reads a page of items straight from the response body into the consumer, one item at a time,
+	 * rather than deserialising the whole page first.
+	 * @return the page, already read and closed, for its total and cursor, or {@code null} if it was not found.
+	 */
+	private <T> ItemsPageParser readItemsPage(RequestEntity<Void> requestEntity, ItemsPageParser.ItemDecoder<T> decoder, Consumer<T> itemConsumer) throws RestClientException {
+		try {
+			return restTemplate.execute(requestEntity.getUrl(), HttpMethod.GET, request -> {
+				request.getHeaders().putAll(requestEntity.getHeaders());
+				request.getHeaders().setAccept(Collections.singletonList(MediaType.APPLICATION_JSON));
+			}, response -> {
+				try (ItemsPageParser page = new ItemsPageParser(response.getBody())) {
+					T item;
+					while ((item = page.nextItem(decoder)) != null) {
+						itemConsumer.accept(item);
+					}
+					return page;
+				}
+			});
+		} catch (HttpStatusCodeException e) {
+			if (e.getStatusCode().value() == 404) {
+				return null;
+			}
+			throw new RestClientException("Failed to retrieve page of items, status code: " + e.getStatusCode() + " URI: " + requestEntity.getUrl(), e);
+		}
+	}
+
 	private <T> T getEntity(URI uri, Class<T> responseType) throws RestClientException {
 		RequestEntity<Void> get = RequestEntity.get(uri)
 				.header(COOKIE, singleSignOnCookie)
@@ -484,13 +1078,38 @@ public class SnowstormRestClient {
 	}
 
 	private <T, R> T doExchange(RequestEntity<R> request, Class<T> responseType) throws RestClientException {
+		return doExchange(request, responseType, null);
+	}
+
+	/**
+	 * @param preparation applied to a response once, before it may be shared with coalesced callers, or {@code null}.
+	 */
+	private <T, R> T doExchange(RequestEntity<R> request, Class<T> responseType, Consumer<T> preparation) throws RestClientException {
+		RequestCoalescer coalescer = requestCoalescer;
+		if (coalescer != null && HttpMethod.GET.equals(request.getMethod()) && request.getBody() == null) {
+			return coalescer.execute(request.getUrl(), request.getHeaders().getFirst(COOKIE), responseType,
+					() -> prepare(sendExchange(request, responseType), preparation));
+		}
+		return prepare(sendExchange(request, responseType), preparation);
+	}
+
+	private static <T> T prepare(T response, Consumer<T> preparation) {
+		if (response != null && preparation != null) {
+			preparation.accept(response);
+		}
+		return response;
+	}
+
+	private <T, R> T sendExchange(RequestEntity<R> request, Class<T> responseType) throws RestClientException {
 		HttpStatusCode statusCode;
 		ResponseEntity<T> responseEntity = null;
+		HttpStatusCodeException failure = null;
 		try {
 			responseEntity = restTemplate.exchange(request, responseType);
 			statusCode = responseEntity.getStatusCode();
 		} catch (HttpStatusCodeException e) {
 			statusCode = e.getStatusCode();
+			failure = e;
 		}
 
 		if (statusCode.value() == 404) {
@@ -499,7 +1118,8 @@ public class SnowstormRestClient {
 			String errorMessage = "Failed to retrieve " + responseType.getSimpleName() + 
 					", status code: " + statusCode + 
 					" URI: " + request.getUrl().toString();
-			throw new RestClientException(errorMessage);
+			// The status is kept as the cause so that batch requests can tell whether to retry
+			throw new RestClientException(errorMessage, failure);
 		}
 		return responseEntity.getBody();
 	}
@@ -652,47 +1272,101 @@ public class SnowstormRestClient {
 	public Set getMergeReviewsDetails(String mergeId) throws RestClientException{
 		return getEntity(urlHelper.getMergeReviewsDetailsUri(mergeId), Set.class);
 	}
+
+	/**
+	 * @return the concepts changed on both sides of the review, typed.
+	 */
+	public Set<MergeReviewConceptVersions> getMergeReviewConflicts(String mergeReviewId) throws RestClientException {
+		MergeReviewConceptVersions[] conflicts = getEntity(urlHelper.getMergeReviewsDetailsUri(mergeReviewId), MergeReviewConceptVersions[].class);
+		if (conflicts == null) {
+			throw new ResourceNotFoundException("Merge review", mergeReviewId);
+		}
+		return new LinkedHashSet<>(Arrays.asList(conflicts));
+	}
+
+	/**
+	 * Returns a future which completes with the review once Snowstorm has finished collecting its changes,
+	 * ie it is no longer PENDING.
+	 */
+	public CompletableFuture<MergeReviewsResults> waitForMergeReviewAsync(String mergeReviewId) {
+		return statusPoller.poll(() -> {
+			MergeReviewsResults review = getMergeReviewsResult(mergeReviewId);
+			if (review == null) {
+				throw new ResourceNotFoundException("Merge review", mergeReviewId);
+			}
+			return review.getStatus() != MergeReviewsResults.MergeReviewStatus.PENDING ? review : null;
+		}, getTimeoutDate(mergeReviewTimeoutMinutes), "merge review " + mergeReviewId);
+	}
+
+	/**
+	 * Runs merge reviews for many source and target branch pairs at once. Reviews are created and their details read
+	 * with up to the batch concurrency, and all are polled together on the status poller.
+	 * Each outcome is handed to the consumer, on the calling thread, as soon as its review has finished, so work
+	 * such as promotion can start on one branch while others are still being reviewed. A review which can not be
+	 * created or read is reported as a failed outcome rather than stopping the others.
+	 * Returns once every outcome has been consumed.
+	 *
+	 * @param sourceToTargetPaths the target branch path for each source branch path.
+	 */
+	public void mergeReviews(Map<String, String> sourceToTargetPaths, Consumer<MergeReviewOutcome> outcomeConsumer) throws InterruptedException {
+		if (sourceToTargetPaths.isEmpty()) {
+			return;
+		}
+		ExecutorService executorService = Executors.newFixedThreadPool(Math.min(batchConcurrency, sourceToTargetPaths.size()));
+		BlockingQueue<MergeReviewOutcome> outcomes = new LinkedBlockingQueue<>();
+		List<CompletableFuture<?>> reviews = new ArrayList<>();
+		List<CompletableFuture<?>> polls = new CopyOnWriteArrayList<>();
+		try {
+			sourceToTargetPaths.forEach((sourcePath, targetPath) -> reviews.add(CompletableFuture.supplyAsync(() -> {
+						try {
+							String reviewId = createBranchMergeReviews(sourcePath, targetPath);
+							if (reviewId == null) {
+								throw new RestClientException("Failed to create merge review of " + sourcePath + " to " + targetPath);
+							}
+							return reviewId;
+						} catch (RestClientException e) {
+							throw new CompletionException(e);
+						}
+					}, executorService)
+					.thenCompose(reviewId -> trackPoll(polls, waitForMergeReviewAsync(reviewId))
+							.thenApplyAsync(review -> readMergeReviewOutcome(sourcePath, targetPath, review), executorService)
+							.exceptionally(throwable -> MergeReviewOutcome.failed(sourcePath, targetPath, reviewId, unwrap(throwable))))
+					.exceptionally(throwable -> MergeReviewOutcome.failed(sourcePath, targetPath, null, unwrap(throwable)))
+					.thenAccept(outcomes::add)));
+			for (int i = 0; i < reviews.size(); i++) {
+				outcomeConsumer.accept(outcomes.take());
+			}
+		} finally {
+			// Stops polling for reviews nobody is waiting on any more, when interrupted
+			polls.forEach(poll -> poll.cancel(true));
+			reviews.forEach(review -> review.cancel(true));
+			executorService.shutdownNow();
+		}
+	}
+
+	private static <T> CompletableFuture<T> trackPoll(List<CompletableFuture<?>> polls, CompletableFuture<T> poll) {
+		polls.add(poll);
+		return poll;
+	}
+
+	private MergeReviewOutcome readMergeReviewOutcome(String sourcePath, String targetPath, MergeReviewsResults review) {
+		if (review.getStatus() != MergeReviewsResults.MergeReviewStatus.CURRENT) {
+			logger.warn("Merge review {} of {} to {} finished with status {}", review.getId(), sourcePath, targetPath, review.getStatus());
+			return MergeReviewOutcome.completed(sourcePath, targetPath, review, null);
+		}
+		try {
+			return MergeReviewOutcome.completed(sourcePath, targetPath, review, getMergeReviewConflicts(review.getId()));
+		} catch (RestClientException e) {
+			throw new CompletionException(e);
+		}
+	}
 	
 	public boolean importRF2Archive(String projectName, String taskName, final InputStream rf2ZipFileStream)
 			throws RestClientException {
 		notNull(rf2ZipFileStream, "Archive to import should not be null.");
 
 		try {
-			// Create import
-			String branchPath = urlHelper.getBranchPath(projectName, taskName);
-			logger.info("Create import, branch '{}'", branchPath);
-
-			JSONObject params = new JSONObject();
-			params.put("type", "DELTA");
-			params.put("branchPath", branchPath);
-			params.put("languageRefSetId", US_EN_LANG_REFSET);
-			params.put("createVersions", "false");
-			resty.withHeader("Accept", JSON_CONTENT_TYPE);
-			JSONResource json = resty.json(urlHelper.getImportsUrl(), RestyHelper.content(params, JSON_CONTENT_TYPE));
-			String location = json.getUrlConnection().getHeaderField("Location");
-			String importId = location.substring(location.lastIndexOf("/") + 1);
-
-			// Create file from stream
-			File tempDirectory = Files.createTempDirectory(getClass().getSimpleName()).toFile();
-			File tempFile = new File(tempDirectory, "SnomedCT_Release_INT_20150101.zip");
-			try {
-				try (FileOutputStream output = new FileOutputStream(tempFile)) {
-					IOUtils.copy(rf2ZipFileStream, output);
-				}
-
-				// Post file to TS
-				MultipartEntityBuilder multipartEntityBuilder = MultipartEntityBuilder.create();
-				multipartEntityBuilder.addBinaryBody("file", tempFile, ContentType.create("application/zip"), tempFile.getName());
-				multipartEntityBuilder.setMode(HttpMultipartMode.BROWSER_COMPATIBLE);
-				HttpEntity httpEntity = multipartEntityBuilder.build();
-				resty.withHeader("Accept", ANY_CONTENT_TYPE);
-				resty.json(urlHelper.getImportArchiveUrl(importId), new HttpEntityContent(httpEntity));
-
-			} finally {
-				tempFile.delete();
-				tempDirectory.delete();
-			}
-
+			String importId = startImport(projectName, taskName, rf2ZipFileStream);
 			// Poll import entity until complete or times-out
 			logger.info("Snowstorm processing import, this will probably take a few minutes. (Import ID '{}')", importId);
 			return waitForStatus(urlHelper.getImportUrl(importId), getTimeoutDate(importTimeoutMinutes), ProcessingStatus.COMPLETED,
@@ -701,6 +1375,49 @@ public class SnowstormRestClient {
 			throw new RestClientException("Import failed.", e);
 		}
 	}
+
+	/**
+	 * Uploads the archive on the calling thread, then returns a future which completes once Snowstorm has
+	 * finished processing the import. No thread is held while the import is running.
+	 */
+	public CompletableFuture<Boolean> importRF2ArchiveAsync(String projectName, String taskName, final InputStream rf2ZipFileStream) {
+		notNull(rf2ZipFileStream, "Archive to import should not be null.");
+
+		String importId;
+		try {
+			importId = startImport(projectName, taskName, rf2ZipFileStream);
+		} catch (Exception e) {
+			return CompletableFuture.failedFuture(new RestClientException("Import failed.", e));
+		}
+		logger.info("Snowstorm processing import, this will probably take a few minutes. (Import ID '{}')", importId);
+		return waitForStatusAsync(urlHelper.getImportUrl(importId), getTimeoutDate(importTimeoutMinutes), ProcessingStatus.COMPLETED,
+				"import");
+	}
+
+	private String startImport(String projectName, String taskName, final InputStream rf2ZipFileStream) throws Exception {
+		// Create import
+		String branchPath = urlHelper.getBranchPath(projectName, taskName);
+		logger.info("Create import, branch '{}'", branchPath);
+
+		JSONObject params = new JSONObject();
+		params.put("type", "DELTA");
+		params.put("branchPath", branchPath);
+		params.put("languageRefSetId", US_EN_LANG_REFSET);
+		params.put("createVersions", "false");
+		resty.withHeader("Accept", JSON_CONTENT_TYPE);
+		JSONResource json = resty.json(urlHelper.getImportsUrl(), RestyHelper.content(params, JSON_CONTENT_TYPE));
+		String location = json.getUrlConnection().getHeaderField("Location");
+		String importId = location.substring(location.lastIndexOf("/") + 1);
+
+		// Stream the archive straight into the upload body, chunked as its length is unknown
+		MultipartEntityBuilder multipartEntityBuilder = MultipartEntityBuilder.create();
+		multipartEntityBuilder.addBinaryBody("file", rf2ZipFileStream, ContentType.create("application/zip"), "SnomedCT_Release_INT_20150101.zip");
+		multipartEntityBuilder.setMode(HttpMultipartMode.BROWSER_COMPATIBLE);
+		HttpEntity httpEntity = multipartEntityBuilder.build();
+		resty.withHeader("Accept", ANY_CONTENT_TYPE);
+		resty.json(urlHelper.getImportArchiveUrl(importId), new HttpEntityContent(httpEntity));
+		return importId;
+	}
 	
 	public String createBranchMergeReviews(String sourceBranchPath, String targetBranchPath) throws RestClientException{
 		Map<String, String> request = new HashMap<>();
@@ -751,24 +1468,48 @@ public class SnowstormRestClient {
 		results = waitForClassificationToComplete(results);
 		return results;
 	}
+
+	/**
+	 * Initiates a classification and returns a future which completes with the results once the classifier has finished.
+	 */
+	public CompletableFuture<ClassificationResults> classifyAsync(String branchPath) {
+		try {
+			return waitForClassificationToCompleteAsync(startClassification(branchPath));
+		} catch (RestClientException e) {
+			return CompletableFuture.failedFuture(e);
+		}
+	}
 	
 	public ClassificationResults waitForClassificationToComplete(ClassificationResults results) throws RestClientException, InterruptedException {
+		return join(waitForClassificationToCompleteAsync(results));
+	}
+
+	public CompletableFuture<ClassificationResults> waitForClassificationToCompleteAsync(ClassificationResults results) {
 		String classificationLocation = results.getClassificationLocation();
 		logger.info("Classifier running, this will probably take a few minutes. (Classification URL '{}')", classificationLocation);
-		boolean classifierCompleted = waitForStatus(classificationLocation, getTimeoutDate(classificationTimeoutMinutes), ProcessingStatus.COMPLETED, "classifier");
-		if (classifierCompleted) {
-			// Fetch classification to get result summary flags.
-			ResponseEntity<ClassificationResults> exchange = restTemplate.exchange(
-					RequestEntity.get(URI.create(classificationLocation)).header(COOKIE, singleSignOnCookie).build(), ClassificationResults.class);
-			if (!exchange.getStatusCode().is2xxSuccessful()) {
-				throw new RestClientException("Failed to fetch completed classification.");
-			}
-			ClassificationResults classificationResults = exchange.getBody();
-			classificationResults.setClassificationLocation(classificationLocation);
-			return classificationResults;
-		} else {
-			throw new RestClientException("Classification failed, see logs for details.");
+		return waitForStatusAsync(classificationLocation, getTimeoutDate(classificationTimeoutMinutes), ProcessingStatus.COMPLETED, "classifier")
+				.thenCompose(classifierCompleted -> {
+					if (!classifierCompleted) {
+						return CompletableFuture.failedFuture(new RestClientException("Classification failed, see logs for details."));
+					}
+					try {
+						return CompletableFuture.completedFuture(fetchCompletedClassification(classificationLocation));
+					} catch (RestClientException e) {
+						return CompletableFuture.failedFuture(e);
+					}
+				});
+	}
+
+	private ClassificationResults fetchCompletedClassification(String classificationLocation) throws RestClientException {
+		// Fetch classification to get result summary flags.
+		ResponseEntity<ClassificationResults> exchange = restTemplate.exchange(
+				RequestEntity.get(URI.create(classificationLocation)).header(COOKIE, singleSignOnCookie).build(), ClassificationResults.class);
+		if (!exchange.getStatusCode().is2xxSuccessful()) {
+			throw new RestClientException("Failed to fetch completed classification.");
 		}
+		ClassificationResults classificationResults = exchange.getBody();
+		classificationResults.setClassificationLocation(classificationLocation);
+		return classificationResults;
 	}
 
 	public String getLatestClassificationOnBranch(String branchPath) throws RestClientException {
@@ -800,20 +1541,30 @@ public class SnowstormRestClient {
 
 	public void saveClassification(String branchPath, String classificationId) throws RestClientException,
 			InterruptedException {
+		join(saveClassificationAsync(branchPath, classificationId));
+	}
+
+	public CompletableFuture<Void> saveClassificationAsync(String branchPath, String classificationId) {
 		String classifyURL = urlHelper.getClassificationsUrl(branchPath);
 		try {
 			logger.debug("Saving classification via {}", classifyURL);
 			JSONObject jsonObj = new JSONObject().put("status", "SAVED");
 			resty.put(classifyURL, jsonObj, JSON_CONTENT_TYPE);
-			//We'll wait the same time for saving as we do for the classification
-			boolean savingCompleted = waitForStatus(classifyURL, getTimeoutDate(classificationTimeoutMinutes),
-					ProcessingStatus.SAVED, "classifier result saving");
-			if (!savingCompleted) {
-				throw new IOException("Classifier reported non-saved status when saving");
-			}
 		} catch (Exception e) {
-			throw new RestClientException("Failed to save classification via URL " + classifyURL, e);
+			return CompletableFuture.failedFuture(new RestClientException("Failed to save classification via URL " + classifyURL, e));
 		}
+		//We'll wait the same time for saving as we do for the classification
+		return waitForStatusAsync(classifyURL, getTimeoutDate(classificationTimeoutMinutes), ProcessingStatus.SAVED, "classifier result saving")
+				.handle((savingCompleted, throwable) -> {
+					if (throwable != null) {
+						throw new CompletionException(new RestClientException("Failed to save classification via URL " + classifyURL, unwrap(throwable)));
+					}
+					if (!savingCompleted) {
+						throw new CompletionException(new RestClientException("Failed to save classification via URL " + classifyURL,
+								new IOException("Classifier reported non-saved status when saving")));
+					}
+					return null;
+				});
 	}
 
 	private JSONArray getItems(String url) throws Exception {
@@ -842,13 +1593,7 @@ public class SnowstormRestClient {
 
 	public File export(ExportConfigurationBuilder exportConfigurationBuilder)
 			throws BusinessServiceException {
-		String exportConfigString = null;
-		try {
-			exportConfigString = mapper.writeValueAsString(exportConfigurationBuilder);
-		} catch (JsonProcessingException e) {
-			throw new BusinessServiceException("Failed to create export configuration.", e);
-		}
-		String exportUrl = initiateExport(exportConfigString);
+		String exportUrl = initiateExport(toExportConfigString(exportConfigurationBuilder));
 		return recoverExportedArchive(exportUrl);
 	}
 
@@ -861,7 +1606,59 @@ public class SnowstormRestClient {
 
 		return recoverExportedArchive(exportLocationURL);
 	}
-	
+
+	/**
+	 * Hands the exported archive to the handler while it is still being downloaded, without writing it to disk.
+	 * The stream is closed once the handler returns.
+	 */
+	public <T> T exportStream(ExportConfigurationBuilder exportConfigurationBuilder, ArchiveStreamHandler<T> handler)
+			throws BusinessServiceException {
+		String exportUrl = initiateExport(toExportConfigString(exportConfigurationBuilder));
+		return streamExportedArchive(exportUrl, handler);
+	}
+
+	/**
+	 * Visits each file in the exported archive as it is downloaded, for example to read the Delta Concept file
+	 * before the rest of the archive has arrived. Nothing is written to disk.
+	 */
+	public void exportEntries(ExportConfigurationBuilder exportConfigurationBuilder, ArchiveEntryVisitor visitor)
+			throws BusinessServiceException {
+		exportStream(exportConfigurationBuilder, archive -> visitEntries(archive, visitor));
+	}
+
+	public void exportEntries(String branchPath, String effectiveDate, Set<String> moduleIds, ExportCategory exportCategory, ExportType exportType,
+			ArchiveEntryVisitor visitor) throws BusinessServiceException {
+		JSONObject exportConfigJson = prepareExportJSON(branchPath, effectiveDate, moduleIds, exportCategory, exportType);
+		String exportLocationURL = initiateExport(exportConfigJson.toString());
+		streamExportedArchive(exportLocationURL, archive -> visitEntries(archive, visitor));
+	}
+
+	private String toExportConfigString(ExportConfigurationBuilder exportConfigurationBuilder) throws BusinessServiceException {
+		try {
+			return mapper.writeValueAsString(exportConfigurationBuilder);
+		} catch (JsonProcessingException e) {
+			throw new BusinessServiceException("Failed to create export configuration.", e);
+		}
+	}
+
+	private static Void visitEntries(InputStream archive, ArchiveEntryVisitor visitor) throws IOException {
+		ZipInputStream zipInputStream = new ZipInputStream(archive);
+		// The visitor must not be able to close the archive stream part way through
+		InputStream entryContent = new FilterInputStream(zipInputStream) {
+			@Override
+			public void close() {
+			}
+		};
+		ZipEntry entry;
+		while ((entry = zipInputStream.getNextEntry()) != null) {
+			if (!entry.isDirectory()) {
+				visitor.visit(entry.getName(), entryContent);
+			}
+			zipInputStream.closeEntry();
+		}
+		return null;
+	}
+
 	private JSONObject prepareExportJSON(String branchPath, String effectiveDate, Set<String> moduleIds, ExportCategory exportCategory, ExportType exportType)
 			throws BusinessServiceException {
 		JSONObject jsonObj = new JSONObject();
@@ -939,6 +1736,15 @@ public class SnowstormRestClient {
 		return exportedArchive;
 	}
 
+	private <T> T streamExportedArchive(String exportLocationURL, ArchiveStreamHandler<T> handler) {
+		logger.debug("Streaming exported archive from {}", exportLocationURL);
+		return restTemplate.execute(exportLocationURL, HttpMethod.GET, null, response -> {
+			try (InputStream archive = response.getBody()) {
+				return handler.handle(archive);
+			}
+		});
+	}
+
 	/**
 	 * Task rebase should be performed via the authoring-services API
 	 */
@@ -974,30 +1780,52 @@ public class SnowstormRestClient {
 
 	private boolean waitForStatus(String url, Date timeoutDate, ProcessingStatus targetStatus, final String waitingFor)
 			throws RestClientException, InterruptedException {
-		String status = "";
-		boolean finalStateAchieved = false;
-		while (!finalStateAchieved) {
+		return join(waitForStatusAsync(url, timeoutDate, targetStatus, waitingFor));
+	}
+
+	private CompletableFuture<Boolean> waitForStatusAsync(String url, Date timeoutDate, ProcessingStatus targetStatus, final String waitingFor) {
+		return statusPoller.poll(() -> {
+			String status;
 			try {
 				Object statusObj = resty.json(url).get("status");
-				status = statusObj.toString() ;
+				status = statusObj.toString();
 			} catch (Exception e) {
 				throw new RestClientException("Rest client error while checking status of " + waitingFor + ".", e);
 			}
-			finalStateAchieved = !("RUNNING".equals(status) || "SCHEDULED".equals(status) || "SAVING_IN_PROGRESS".equals(status));
-			if (!finalStateAchieved && timeoutDate != null && new Date().after(timeoutDate)) {
-				throw new RestClientException("Client timeout waiting for " + waitingFor + ".");
+			boolean finalStateAchieved = !("RUNNING".equals(status) || "SCHEDULED".equals(status) || "SAVING_IN_PROGRESS".equals(status));
+			return finalStateAchieved ? status : null;
+		}, timeoutDate, waitingFor).thenApply(status -> {
+			boolean targetStatusAchieved = targetStatus.toString().equals(status);
+			if (!targetStatusAchieved) {
+				logger.warn("TS reported non-complete status {} from URL {}", status, url);
 			}
-			
-			if (!finalStateAchieved) {
-				Thread.sleep(1000 * 10);
+			return targetStatusAchieved;
+		});
+	}
+
+	/**
+	 * Waits on a future returned by one of the async methods, rethrowing its failure as it would have been thrown
+	 * by the equivalent blocking method. Polling is stopped if the waiting thread is interrupted.
+	 */
+	private static <T> T join(CompletableFuture<T> future) throws RestClientException, InterruptedException {
+		try {
+			return future.get();
+		} catch (InterruptedException e) {
+			future.cancel(true);
+			throw e;
+		} catch (ExecutionException e) {
+			Throwable cause = e.getCause();
+			if (cause instanceof RestClientException restClientException) {
+				throw restClientException;
+			} else if (cause instanceof RuntimeException runtimeException) {
+				throw runtimeException;
 			}
+			throw new RestClientException(cause.getMessage(), cause);
 		}
+	}
 
-		boolean targetStatusAchieved = targetStatus.toString().equals(status);
-		if (!targetStatusAchieved) {
-			logger.warn("TS reported non-complete status {} from URL {}", status, url);
-		}
-		return targetStatusAchieved;
+	private static Throwable unwrap(Throwable throwable) {
+		return throwable instanceof CompletionException && throwable.getCause() != null ? throwable.getCause() : throwable;
 	}
 
 	private Date getTimeoutDate(int importTimeoutMinutes) {
@@ -1042,6 +1870,32 @@ public class SnowstormRestClient {
 		this.importTimeoutMinutes = importTimeoutMinutes;
 	}
 
+	public void setMergeReviewTimeoutMinutes(int mergeReviewTimeoutMinutes) {
+		this.mergeReviewTimeoutMinutes = mergeReviewTimeoutMinutes;
+	}
+
+	public void setBulkChangeTimeoutMinutes(int bulkChangeTimeoutMinutes) {
+		this.bulkChangeTimeoutMinutes = bulkChangeTimeoutMinutes;
+	}
+
+	/**
+	 * @param bulkChangeBatchSize the number of concepts sent in each bulk change by {@link #saveConcepts}.
+	 */
+	public void setBulkChangeBatchSize(int bulkChangeBatchSize) {
+		if (bulkChangeBatchSize < 1) {
+			throw new IllegalArgumentException("Bulk change batch size must be at least 1");
+		}
+		this.bulkChangeBatchSize = bulkChangeBatchSize;
+	}
+
+	/**
+	 * @param bulkChangeIsolateFailures whether {@link #saveConcepts} sends a rejected batch again in halves, to find
+	 *                                  the concepts at fault. On by default.
+	 */
+	public void setBulkChangeIsolateFailures(boolean bulkChangeIsolateFailures) {
+		this.bulkChangeIsolateFailures = bulkChangeIsolateFailures;
+	}
+
 	public void setClassificationTimeoutMinutes(int classificationTimeoutMinutes) {
 		this.classificationTimeoutMinutes = classificationTimeoutMinutes;
 	}
@@ -1050,6 +1904,163 @@ public class SnowstormRestClient {
 		this.flatIndexExportStyle = flatIndexExportStyle;
 	}
 
+	/**
+	 * @param batchSize the number of concept ids sent in each request of batched lookups such as {@link #getFsns}.
+	 */
+	public void setBatchSize(int batchSize) {
+		if (batchSize < 1) {
+			throw new IllegalArgumentException("Batch size must be at least 1");
+		}
+		this.batchSize = batchSize;
+	}
+
+	/**
+	 * @param pageSize the number of items requested per page when paging through ECL results and refset members,
+	 *                 at most 10,000.
+	 */
+	public void setPageSize(int pageSize) {
+		if (pageSize < 1 || pageSize > MAX_PAGE_SIZE) {
+			throw new IllegalArgumentException("Page size must be between 1 and " + MAX_PAGE_SIZE);
+		}
+		this.pageSize = pageSize;
+	}
+
+	public void setBatchConcurrency(int batchConcurrency) {
+		this.batchConcurrency = batchConcurrency;
+	}
+
+	public void setBatchRetries(int batchRetries) {
+		this.batchRetries = batchRetries;
+	}
+
+	/**
+	 * Enables caching of concepts and FSNs read through this client. Pass {@code null} to disable it again.
+	 */
+	public void setComponentCache(BranchHeadAwareCache componentCache) {
+		this.componentCache = componentCache;
+		if (metrics != null && componentCache != null) {
+			metrics.bindComponentCache(componentCache);
+		}
+	}
+
+	public BranchHeadAwareCache getComponentCache() {
+		return componentCache;
+	}
+
+	/**
+	 * Starts publishing request metrics for this client. Requests sent through Resty, such as imports and status
+	 * polling, are not included.
+	 */
+	public void setMetrics(SnowstormClientMetrics metrics) {
+		List<ClientHttpRequestInterceptor> interceptors = new ArrayList<>(restTemplate.getInterceptors());
+		if (this.metrics != null) {
+			interceptors.remove(this.metrics);
+		}
+		if (metrics != null) {
+			// First, so that the time taken by the other interceptors is included
+			interceptors.add(0, metrics);
+		}
+		restTemplate.setInterceptors(interceptors);
+		this.metrics = metrics;
+		if (metrics != null && compressionInterceptor != null) {
+			metrics.bindCompressionStatistics(compressionInterceptor.getStatistics());
+		}
+		if (metrics != null && componentCache != null) {
+			metrics.bindComponentCache(componentCache);
+		}
+	}
+
+	public SnowstormClientMetrics getMetrics() {
+		return metrics;
+	}
+
+	/**
+	 * Limits the requests sent through the RestTemplate with the given limiter, eg
+	 * {@link SnowstormConcurrencyLimiter#forServer(String)} to share one limit with all clients of the same server.
+	 * Pass {@code null} to stop limiting. Requests sent through Resty are not limited.
+	 */
+	public void setConcurrencyLimiter(SnowstormConcurrencyLimiter concurrencyLimiter) {
+		List<ClientHttpRequestInterceptor> interceptors = new ArrayList<>(restTemplate.getInterceptors());
+		if (this.concurrencyLimiter != null) {
+			interceptors.remove(this.concurrencyLimiter);
+		}
+		if (concurrencyLimiter != null) {
+			// After metrics, so that time spent waiting for a slot is included in request timings
+			interceptors.add(metrics != null ? 1 : 0, concurrencyLimiter);
+		}
+		restTemplate.setInterceptors(interceptors);
+		this.concurrencyLimiter = concurrencyLimiter;
+	}
+
+	public SnowstormConcurrencyLimiter getConcurrencyLimiter() {
+		return concurrencyLimiter;
+	}
+
+	/**
+	 * Asks Snowstorm for gzip or deflate compressed responses, on both the RestTemplate and Resty paths, and decodes
+	 * them while they are parsed. On by default when the client is given an {@link HttpTransportConfiguration}
+	 * with compression enabled.
+	 */
+	public void setResponseCompression(boolean responseCompression) {
+		if (responseCompression == (compressionInterceptor != null)) {
+			return;
+		}
+		setCompressionInterceptor(responseCompression ? new CompressionInterceptor() : null);
+	}
+
+	/**
+	 * @return bytes received compressed against the bytes they decoded to, or {@code null} if compression is off.
+	 */
+	public CompressionStatistics getCompressionStatistics() {
+		return compressionInterceptor != null ? compressionInterceptor.getStatistics() : null;
+	}
+
+	private void setCompressionInterceptor(CompressionInterceptor compressionInterceptor) {
+		List<ClientHttpRequestInterceptor> interceptors = new ArrayList<>(restTemplate.getInterceptors());
+		if (this.compressionInterceptor != null) {
+			interceptors.remove(this.compressionInterceptor);
+		}
+		if (compressionInterceptor != null) {
+			// Last, nearest the wire, so the other interceptors see the decoded response
+			interceptors.add(compressionInterceptor);
+		}
+		restTemplate.setInterceptors(interceptors);
+		resty.setCompressionStatistics(compressionInterceptor != null ? compressionInterceptor.getStatistics() : null);
+		this.compressionInterceptor = compressionInterceptor;
+		if (metrics != null && compressionInterceptor != null) {
+			metrics.bindCompressionStatistics(compressionInterceptor.getStatistics());
+		}
+	}
+
+	/**
+	 * When enabled, concurrent identical GET requests made through this client (same url and credentials), such as
+	 * {@link #getBranch(String)}, {@link #getConcept(String, String)} and {@link #eclQueryHasAnyMatches(String, String)},
+	 * share one request to Snowstorm and are all given the same deserialised object, which must not be modified.
+	 * Disabled by default.
+	 */
+	public void setRequestCoalescing(boolean requestCoalescing) {
+		this.requestCoalescer = requestCoalescing ? new RequestCoalescer() : null;
+	}
+
+	public boolean isRequestCoalescing() {
+		return requestCoalescer != null;
+	}
+
+	/**
+	 * @return the number of reads which were answered by another caller's in flight request, 0 when coalescing is disabled.
+	 */
+	public long getCoalescedRequestCount() {
+		RequestCoalescer coalescer = requestCoalescer;
+		return coalescer != null ? coalescer.getCoalescedCount() : 0;
+	}
+
+	/**
+	 * Replaces the poller shared by all clients, for example to use a different backoff.
+	 */
+	public void setStatusPoller(StatusPoller statusPoller) {
+		this.statusPoller = Objects.requireNonNull(statusPoller);
+	}
+
 	public static class ExportConfigurationBuilder {
 
 		private String branchPath = "MAIN";
@@ -1221,6 +2232,20 @@ public class SnowstormRestClient {
 		return getEntity(uri, CodeSystemUpgradeJob.class);
 	}
 
+	/**
+	 * Returns a future which completes with the upgrade job once it is no longer running.
+	 * @param jobId as found at the end of the location returned by {@link #upgradeCodeSystem(String, Integer, Boolean)}
+	 */
+	public CompletableFuture<CodeSystemUpgradeJob> waitForCodeSystemUpgradeAsync(String jobId) {
+		return statusPoller.poll(() -> {
+			CodeSystemUpgradeJob job = getCodeSystemUpgradeJob(jobId);
+			if (job == null) {
+				throw new ResourceNotFoundException("Code system upgrade job " + jobId + " not found.");
+			}
+			return job.getStatus() != CodeSystemUpgradeJob.UpgradeStatus.RUNNING ? job : null;
+		}, null, "code system upgrade");
+	}
+
 	public IntegrityIssueReport integrityCheck(String branch) {
 		URI uri = urlHelper.getIntegrityCheckUrl(branch);
 		RequestEntity<?> post = RequestEntity.post(uri)
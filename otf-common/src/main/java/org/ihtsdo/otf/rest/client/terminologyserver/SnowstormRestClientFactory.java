@@ -4,6 +4,7 @@ import com.fasterxml.jackson.annotation.JsonInclude;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.google.common.cache.Cache;
 import com.google.common.cache.CacheBuilder;
+import org.ihtsdo.otf.rest.client.HttpTransportConfiguration;
 import org.ihtsdo.sso.integration.SecurityUtil;
 
 import java.util.concurrent.TimeUnit;
@@ -13,6 +14,7 @@ public class SnowstormRestClientFactory {
 	private final String reasonerId;
 	private final Cache<String, SnowstormRestClient> clientCache;
 	private final ObjectMapper objectMapper;
+	private HttpTransportConfiguration transportConfiguration;
 
 	public SnowstormRestClientFactory(String snowstormUrl, String reasonerId) {
 		this.snowstormUrl = snowstormUrl;
@@ -34,7 +36,7 @@ public class SnowstormRestClientFactory {
 			synchronized (clientCache) {
 				client = clientCache.getIfPresent(authenticationToken);
 				if (client == null) {
-					client = new SnowstormRestClient(snowstormUrl, authenticationToken);
+					client = new SnowstormRestClient(snowstormUrl, authenticationToken, transportConfiguration);
 					client.setReasonerId(reasonerId);
 					client.setUseExternalClassificationService(true);
 					clientCache.put(authenticationToken, client);
@@ -44,4 +46,11 @@ public class SnowstormRestClientFactory {
 		return client;
 	}
 
+	/**
+	 * Sets the transport shared by all clients created from now on, so they draw on one connection pool.
+	 */
+	public void setTransportConfiguration(HttpTransportConfiguration transportConfiguration) {
+		this.transportConfiguration = transportConfiguration;
+	}
+
 }
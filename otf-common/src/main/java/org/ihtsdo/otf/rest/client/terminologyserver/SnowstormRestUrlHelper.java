@@ -37,6 +37,10 @@ public class SnowstormRestUrlHelper {
 		return getUri (snowstormUrl + "/" + branchPath + "/members" + "?referenceSet=" + referenceSet + "&limit=" + limit);
 	}
 
+	public String getMembersUrl(String branchPath) {
+		return snowstormUrl + "/" + branchPath + "/members";
+	}
+
 	public String getBranchChildrenUrl(String branchPath) {
 		return snowstormUrl + "/branches/" + branchPath + "/children";
 	}
@@ -106,6 +110,18 @@ public class SnowstormRestUrlHelper {
 		return getUri(getMergeReviewsUrl() + "/" + mergeId + "/details");
 	}
 
+	public URI getBranchReviewsUri() {
+		return getUri(snowstormUrl + "/reviews");
+	}
+
+	public URI getBranchReviewUri(String reviewId) {
+		return getUri(snowstormUrl + "/reviews/" + reviewId);
+	}
+
+	public URI getBranchReviewConceptChangesUri(String reviewId) {
+		return getUri(snowstormUrl + "/reviews/" + reviewId + "/concept-changes");
+	}
+
 	public URI getMergeUri(String mergeId) {
 		return getUri(getMergesUrl() + "/" + mergeId);
 	}
@@ -161,6 +177,14 @@ public class SnowstormRestUrlHelper {
 		return getUri(getBulkConceptsUrl(branchPath));
 	}
 
+	public URI getBulkConceptChangesUri(String branchPath) {
+		return getUri(snowstormUrl + "/browser/" + branchPath + "/concepts/bulk");
+	}
+
+	public URI getBulkConceptChangeUri(String branchPath, String bulkChangeId) {
+		return getUri(snowstormUrl + "/browser/" + branchPath + "/concepts/bulk/" + bulkChangeId);
+	}
+
 	public URI getCodeSystemUrl(String codeSystemShortname) {
 		return getUri(snowstormUrl + "/codesystems/" + codeSystemShortname);
 	}
@@ -0,0 +1,160 @@
+package org.ihtsdo.otf.rest.client.terminologyserver;
+
+import org.ihtsdo.otf.rest.client.RestClientException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Date;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Polls long running Snowstorm jobs (imports, classifications, upgrades...) on a small shared scheduler
+ * rather than parking a thread per job. The scheduler only times the checks, which run on a small pool of their own.
+ * The delay between two checks of the same job starts short and grows with each check that finds the job
+ * still in progress, up to a maximum.
+ */
+public class StatusPoller {
+
+	private static final Logger LOGGER = LoggerFactory.getLogger(StatusPoller.class);
+
+	private static final int DEFAULT_THREADS = 4;
+	private static final long DEFAULT_INITIAL_DELAY_MILLIS = 1_000;
+	private static final long DEFAULT_MAX_DELAY_MILLIS = 30_000;
+	private static final double DEFAULT_BACKOFF_MULTIPLIER = 1.5;
+
+	private static volatile StatusPoller shared;
+
+	interface StatusCheck<T> {
+		/**
+		 * @return the final result once the job has finished, or {@code null} while it is still in progress.
+		 */
+		T check() throws Exception;
+	}
+
+	private final ScheduledExecutorService scheduler;
+	private final ExecutorService checkExecutor;
+	private final long initialDelayMillis;
+	private final long maxDelayMillis;
+	private final double backoffMultiplier;
+
+	/**
+	 * @param threads number of status checks which may run at once. The scheduler only times the checks,
+	 *                so one slow response does not hold up checks of other jobs.
+	 */
+	public StatusPoller(int threads, long initialDelayMillis, long maxDelayMillis, double backoffMultiplier) {
+		this.scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+			Thread thread = new Thread(runnable, "snowstorm-status-poller-scheduler");
+			thread.setDaemon(true);
+			return thread;
+		});
+		AtomicInteger threadCount = new AtomicInteger();
+		this.checkExecutor = Executors.newFixedThreadPool(Math.max(1, threads), runnable -> {
+			Thread thread = new Thread(runnable, "snowstorm-status-poller-" + threadCount.incrementAndGet());
+			thread.setDaemon(true);
+			return thread;
+		});
+		this.initialDelayMillis = initialDelayMillis;
+		this.maxDelayMillis = Math.max(initialDelayMillis, maxDelayMillis);
+		this.backoffMultiplier = Math.max(1.0, backoffMultiplier);
+	}
+
+	/**
+	 * @return the poller shared by every client which has not been given its own.
+	 */
+	public static StatusPoller getShared() {
+		if (shared == null) {
+			synchronized (StatusPoller.class) {
+				if (shared == null) {
+					shared = new StatusPoller(DEFAULT_THREADS, DEFAULT_INITIAL_DELAY_MILLIS, DEFAULT_MAX_DELAY_MILLIS, DEFAULT_BACKOFF_MULTIPLIER);
+				}
+			}
+		}
+		return shared;
+	}
+
+	/**
+	 * Runs the check straight away and then with increasing delays until it returns a result,
+	 * fails, or the timeout passes. Cancelling the returned future, or any stage depending on it
+	 * such as one returned by thenApply or thenCompose, stops the polling.
+	 *
+	 * @param timeoutDate {@code null} means wait forever.
+	 */
+	<T> CompletableFuture<T> poll(StatusCheck<T> statusCheck, Date timeoutDate, String waitingFor) {
+		CompletableFuture<T> future = new PollFuture<>(null);
+		schedule(future, statusCheck, timeoutDate, waitingFor, 0, initialDelayMillis);
+		return future;
+	}
+
+	private <T> void schedule(CompletableFuture<T> future, StatusCheck<T> statusCheck, Date timeoutDate, String waitingFor, long delayMillis, long nextDelayMillis) {
+		Runnable check = () -> {
+			try {
+				checkExecutor.execute(() -> attempt(future, statusCheck, timeoutDate, waitingFor, nextDelayMillis));
+			} catch (RejectedExecutionException e) {
+				future.completeExceptionally(new RestClientException("Status poller is shut down, can not wait for " + waitingFor + ".", e));
+			}
+		};
+		if (delayMillis == 0) {
+			check.run();
+			return;
+		}
+		try {
+			scheduler.schedule(check, delayMillis, TimeUnit.MILLISECONDS);
+		} catch (RejectedExecutionException e) {
+			future.completeExceptionally(new RestClientException("Status poller is shut down, can not wait for " + waitingFor + ".", e));
+		}
+	}
+
+	private <T> void attempt(CompletableFuture<T> future, StatusCheck<T> statusCheck, Date timeoutDate, String waitingFor, long delayMillis) {
+		if (future.isDone()) {
+			return;
+		}
+		try {
+			T result = statusCheck.check();
+			if (result != null) {
+				future.complete(result);
+			} else if (timeoutDate != null && new Date().after(timeoutDate)) {
+				future.completeExceptionally(new RestClientException("Client timeout waiting for " + waitingFor + "."));
+			} else {
+				LOGGER.debug("Still waiting for {}, checking again in {}ms", waitingFor, delayMillis);
+				long nextDelayMillis = Math.min(maxDelayMillis, (long) (delayMillis * backoffMultiplier));
+				schedule(future, statusCheck, timeoutDate, waitingFor, delayMillis, nextDelayMillis);
+			}
+		} catch (RestClientException | RuntimeException e) {
+			future.completeExceptionally(e);
+		} catch (Exception e) {
+			future.completeExceptionally(new RestClientException("Rest client error while checking status of " + waitingFor + ".", e));
+		}
+	}
+
+	public void shutdown() {
+		scheduler.shutdownNow();
+		checkExecutor.shutdownNow();
+	}
+
+	/**
+	 * Future of a poll which is also used for every stage depending on it, so that cancelling a dependent stage,
+	 * as a caller does when interrupted while waiting on it, cancels the poll and stops checking the job.
+	 */
+	private static final class PollFuture<T> extends CompletableFuture<T> {
+		private final PollFuture<?> poll;
+
+		private PollFuture(PollFuture<?> poll) {
+			this.poll = poll;
+		}
+
+		@Override
+		public <U> CompletableFuture<U> newIncompleteFuture() {
+			return new PollFuture<>(poll != null ? poll : this);
+		}
+
+		@Override
+		public boolean cancel(boolean mayInterruptIfRunning) {
+			boolean cancelled = super.cancel(mayInterruptIfRunning);
+			if (poll != null) {
+				poll.cancel(mayInterruptIfRunning);
+			}
+			return cancelled;
+		}
+	}
+}
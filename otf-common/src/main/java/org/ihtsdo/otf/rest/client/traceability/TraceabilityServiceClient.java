@@ -8,6 +8,7 @@ import com.google.gson.internal.LinkedTreeMap;
 import org.apache.commons.lang.StringUtils;
 import org.ihtsdo.otf.exception.TermServerScriptException;
 import org.ihtsdo.otf.rest.client.ExpressiveErrorHandler;
+import org.ihtsdo.otf.rest.client.HttpTransportConfiguration;
 import org.ihtsdo.otf.utils.DateUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -42,6 +43,13 @@ public class TraceabilityServiceClient {
 	private final ObjectMapper mapper = new ObjectMapper();
 
 	public TraceabilityServiceClient(String serverUrl, String cookie) {
+		this(serverUrl, cookie, null);
+	}
+
+	/**
+	 * @param transportConfiguration pooled transport to share with other clients, or {@code null} for the JDK defaults.
+	 */
+	public TraceabilityServiceClient(String serverUrl, String cookie, HttpTransportConfiguration transportConfiguration) {
 		headers = new HttpHeaders();
 		this.serverUrl = serverUrl;
 		headers.add("Cookie", cookie);
@@ -53,12 +61,20 @@ public class TraceabilityServiceClient {
 				.setConnectTimeout(Duration.ofMinutes(3)) // 3 minutes
 				.setReadTimeout(Duration.ofMinutes(3))
 				.build();
+		if (transportConfiguration != null) {
+			// Timeouts then come from the transport configuration
+			restTemplate.setRequestFactory(transportConfiguration.getRequestFactory());
+		}
 		
 		//Add a ClientHttpRequestInterceptor to the RestTemplate
  		restTemplate.getInterceptors().add((request, body, execution) -> {
              request.getHeaders().addAll(headers);
              return execution.execute(request, body);
          });
+		if (transportConfiguration != null && transportConfiguration.isCompression()) {
+			// The pooled transport leaves decoding to the interceptor
+			restTemplate.getInterceptors().add(transportConfiguration.createCompressionInterceptor());
+		}
 
 		mapper.configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
 		mapper.configure(DeserializationFeature.READ_UNKNOWN_ENUM_VALUES_USING_DEFAULT_VALUE, true);
@@ -1,5 +1,8 @@
 package us.monoid.web;
 
+import org.ihtsdo.otf.rest.client.CompressionStatistics;
+
+import java.io.IOException;
 import java.net.URLConnection;
 
 /**
@@ -8,6 +11,8 @@ import java.net.URLConnection;
 @Deprecated
 public class RestyMod extends Resty {
 
+	private CompressionStatistics compressionStatistics;
+
 	public RestyMod(Option... someOptions) {
 		super(someOptions);
 	}
@@ -16,6 +21,25 @@ public class RestyMod extends Resty {
 	// Don't add the resource's Accept header
 	protected <T extends AbstractResource> void addStandardHeaders(URLConnection con, T resource) {
 		con.setRequestProperty("User-Agent", userAgent);
+		if (compressionStatistics != null) {
+			con.setRequestProperty("Accept-Encoding", CompressionStatistics.ACCEPT_ENCODING);
+		}
+	}
+
+	@Override
+	// Decode compressed responses before the resource parses them
+	protected <T extends AbstractResource> T fillResourceFromURL(URLConnection con, T resource) throws IOException {
+		T filled = super.fillResourceFromURL(con, resource);
+		if (compressionStatistics != null && filled.inputStream != null) {
+			filled.inputStream = compressionStatistics.decode(con.getContentEncoding(), filled.inputStream);
+		}
+		return filled;
 	}
-}
 
+	/**
+	 * Asks for compressed responses and counts them in the given statistics, or stops asking if {@code null}.
+	 */
+	public void setCompressionStatistics(CompressionStatistics compressionStatistics) {
+		this.compressionStatistics = compressionStatistics;
+	}
+}
@@ -8,6 +8,7 @@ import org.junit.jupiter.api.Test;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.util.StreamUtils;
+import software.amazon.awssdk.services.s3.model.DeleteObjectsResponse;
 import software.amazon.awssdk.services.s3.model.S3Exception;
 import software.amazon.awssdk.services.s3.model.S3Object;
 
@@ -213,6 +214,23 @@ public class OfflineS3ClientImplTest {
 		assertEquals(0, s3Client.listObjects(TEST_BUCKET, "").contents().size());
 	}
 
+	@Test
+	public void testDeleteObjects() throws IOException {
+		String productDir = "products/123/";
+		s3Client.putObject(TEST_BUCKET, productDir + "execA/file1.txt", getTestFileStream(), fileSize);
+		s3Client.putObject(TEST_BUCKET, productDir + "execA/file2.txt", getTestFileStream(), fileSize);
+		s3Client.putObject(TEST_BUCKET, productDir + "execB/file1.txt", getTestFileStream(), fileSize);
+
+		DeleteObjectsResponse response = s3Client.deleteObjects(TEST_BUCKET,
+				List.of(productDir + "execA/file1.txt", productDir + "execA/file2.txt", productDir + "file-does-not-exist.txt"));
+
+		assertEquals(3, response.deleted().size());
+		assertTrue(response.errors().isEmpty());
+		List<S3Object> objectSummaries = s3Client.listObjects(TEST_BUCKET, "").contents();
+		assertEquals(1, objectSummaries.size());
+		assertEquals("products/123/execB/file1.txt", objectSummaries.get(0).key());
+	}
+
 	@AfterEach
 	public void tearDown() {
 		for (InputStream inputStream : streamsToClose) {
@@ -0,0 +1,141 @@
+package org.ihtsdo.otf.rest.client;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpRequest;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.HttpStatusCode;
+import org.springframework.http.client.ClientHttpResponse;
+import org.springframework.http.client.SimpleClientHttpRequestFactory;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.GZIPOutputStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CompressionInterceptorTest {
+
+	private static final byte[] PAYLOAD = "{\"conceptId\":\"138875005\",\"active\":true}\n".repeat(500).getBytes(StandardCharsets.UTF_8);
+
+	private final CompressionInterceptor interceptor = new CompressionInterceptor();
+	private final CompressionStatistics statistics = interceptor.getStatistics();
+
+	@Test
+	void decodesGzip() throws IOException {
+		byte[] wire = gzip(PAYLOAD);
+		HttpRequest request = createRequest();
+
+		ClientHttpResponse response = interceptor.intercept(request, new byte[0], (r, body) -> response(HttpStatus.OK, "gzip", wire));
+
+		assertEquals(CompressionStatistics.ACCEPT_ENCODING, request.getHeaders().getFirst(HttpHeaders.ACCEPT_ENCODING));
+		assertNull(response.getHeaders().getFirst(HttpHeaders.CONTENT_ENCODING));
+		assertNull(response.getHeaders().getFirst(HttpHeaders.CONTENT_LENGTH));
+		assertArrayEquals(PAYLOAD, response.getBody().readAllBytes());
+		assertCounts(1, wire.length, PAYLOAD.length);
+		assertEquals(PAYLOAD.length - wire.length, statistics.getSavedBytes());
+	}
+
+	@Test
+	void decodesZlibDeflate() throws IOException {
+		byte[] wire = deflate(PAYLOAD);
+
+		ClientHttpResponse response = interceptor.intercept(createRequest(), new byte[0], (r, body) -> response(HttpStatus.OK, "deflate", wire));
+
+		assertArrayEquals(PAYLOAD, response.getBody().readAllBytes());
+		assertCounts(1, wire.length, PAYLOAD.length);
+		assertEquals(PAYLOAD.length - wire.length, statistics.getSavedBytes());
+	}
+
+	@Test
+	void leavesEmptyBodyUncounted() throws IOException {
+		ClientHttpResponse response = interceptor.intercept(createRequest(), new byte[0], (r, body) -> response(HttpStatus.NO_CONTENT, "gzip", new byte[0]));
+
+		assertEquals(HttpStatus.NO_CONTENT, response.getStatusCode());
+		assertEquals(-1, response.getBody().read());
+		assertCounts(0, 0, 0);
+		assertEquals(0, statistics.getSavedBytes());
+	}
+
+	@Test
+	void passesUnsupportedEncodingThrough() throws IOException {
+		byte[] wire = "not brotli really".getBytes(StandardCharsets.UTF_8);
+		ClientHttpResponse original = response(HttpStatus.OK, "br", wire);
+
+		ClientHttpResponse response = interceptor.intercept(createRequest(), new byte[0], (r, body) -> original);
+
+		assertSame(original, response);
+		assertEquals("br", response.getHeaders().getFirst(HttpHeaders.CONTENT_ENCODING));
+		InputStream body = new ByteArrayInputStream(wire);
+		assertSame(body, statistics.decode("br", body));
+		assertArrayEquals(wire, response.getBody().readAllBytes());
+		assertCounts(0, 0, 0);
+	}
+
+	private void assertCounts(long compressedResponses, long wireBytes, long decodedBytes) {
+		assertEquals(compressedResponses, statistics.getCompressedResponses());
+		assertEquals(wireBytes, statistics.getWireBytes());
+		assertEquals(decodedBytes, statistics.getDecodedBytes());
+	}
+
+	private static byte[] gzip(byte[] payload) throws IOException {
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		try (OutputStream gzip = new GZIPOutputStream(bytes)) {
+			gzip.write(payload);
+		}
+		return bytes.toByteArray();
+	}
+
+	private static byte[] deflate(byte[] payload) throws IOException {
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		// zlib wrapped, as servers send for Content-Encoding: deflate
+		try (OutputStream deflate = new DeflaterOutputStream(bytes)) {
+			deflate.write(payload);
+		}
+		return bytes.toByteArray();
+	}
+
+	private static HttpRequest createRequest() throws IOException {
+		// Not connected until executed, which these tests never do
+		return new SimpleClientHttpRequestFactory().createRequest(URI.create("http://localhost/"), HttpMethod.GET);
+	}
+
+	private static ClientHttpResponse response(HttpStatusCode status, String contentEncoding, byte[] body) {
+		HttpHeaders headers = new HttpHeaders();
+		headers.set(HttpHeaders.CONTENT_ENCODING, contentEncoding);
+		headers.setContentLength(body.length);
+		InputStream bodyStream = new ByteArrayInputStream(body);
+		return new ClientHttpResponse() {
+			@Override
+			public HttpStatusCode getStatusCode() {
+				return status;
+			}
+
+			@Override
+			public String getStatusText() {
+				return "";
+			}
+
+			@Override
+			public HttpHeaders getHeaders() {
+				return headers;
+			}
+
+			@Override
+			public InputStream getBody() {
+				return bodyStream;
+			}
+
+			@Override
+			public void close() {
+			}
+		};
+	}
+}
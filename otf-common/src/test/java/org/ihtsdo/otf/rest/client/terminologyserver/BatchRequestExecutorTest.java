@@ -0,0 +1,61 @@
+package org.ihtsdo.otf.rest.client.terminologyserver;
+
+import org.ihtsdo.otf.rest.client.RestClientException;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.client.HttpClientErrorException;
+import org.springframework.web.client.HttpServerErrorException;
+import org.springframework.web.client.ResourceAccessException;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BatchRequestExecutorTest {
+
+	@Test
+	void retriesSingleBatchOnServerError() throws RestClientException {
+		AtomicInteger attempts = new AtomicInteger();
+		BatchRequestExecutor executor = new BatchRequestExecutor(4, 2, null, "test");
+
+		List<Integer> results = executor.execute(List.of("1", "2"), 200, batch -> {
+			if (attempts.incrementAndGet() == 1) {
+				throw new RestClientException("Unavailable", new HttpServerErrorException(HttpStatus.SERVICE_UNAVAILABLE));
+			}
+			return batch.size();
+		});
+
+		assertEquals(List.of(2), results);
+		assertEquals(2, attempts.get());
+	}
+
+	@Test
+	void doesNotRetryClientError() {
+		AtomicInteger attempts = new AtomicInteger();
+		BatchRequestExecutor executor = new BatchRequestExecutor(4, 2, null, "test");
+
+		RestClientException exception = assertThrows(RestClientException.class, () -> executor.execute(List.of("1", "2"), 200, batch -> {
+			attempts.incrementAndGet();
+			throw new RestClientException("Bad request", new HttpClientErrorException(HttpStatus.BAD_REQUEST));
+		}));
+
+		assertEquals("Bad request", exception.getMessage());
+		assertEquals(1, attempts.get());
+	}
+
+	@Test
+	void doesNotRetryWhenCircuitIsOpen() {
+		AtomicInteger attempts = new AtomicInteger();
+		BatchRequestExecutor executor = new BatchRequestExecutor(4, 2, null, "test");
+
+		assertThrows(RestClientException.class, () -> executor.execute(List.of("1", "2"), 200, batch -> {
+			attempts.incrementAndGet();
+			// As RestTemplate reports the limiter refusing the request
+			SnowstormConcurrencyLimiter.CircuitOpenException circuitOpen = new SnowstormConcurrencyLimiter.CircuitOpenException("Circuit open");
+			throw new RestClientException("Failed", new ResourceAccessException("I/O error", circuitOpen));
+		}));
+
+		assertEquals(1, attempts.get());
+	}
+}
@@ -0,0 +1,106 @@
+package org.ihtsdo.otf.rest.client.terminologyserver;
+
+import org.ihtsdo.otf.rest.client.RestClientException;
+import org.ihtsdo.otf.rest.client.terminologyserver.pojo.Branch;
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.ihtsdo.otf.rest.client.terminologyserver.BranchHeadAwareCache.ComponentType.FSN;
+import static org.junit.jupiter.api.Assertions.*;
+
+class BranchHeadAwareCacheTest {
+
+	@Test
+	void entriesAreDroppedWhenBranchMoves() throws RestClientException {
+		BranchHeadAwareCache cache = new BranchHeadAwareCache(100, 0, 0);
+		AtomicLong head = new AtomicLong(1000L);
+
+		long headTimestamp = cache.getHeadTimestamp("MAIN", branchPath -> head.get());
+		cache.put("MAIN", headTimestamp, FSN, "404684003", "Clinical finding (finding)");
+		assertEquals("Clinical finding (finding)", cache.get("MAIN", cache.getHeadTimestamp("MAIN", branchPath -> head.get()), FSN, "404684003"));
+
+		head.set(2000L);
+		headTimestamp = cache.getHeadTimestamp("MAIN", branchPath -> head.get());
+		assertNull(cache.get("MAIN", headTimestamp, FSN, "404684003"));
+		assertEquals(0, cache.size());
+		assertEquals(1, cache.getBranchMoveCount());
+		assertEquals(1, cache.getHitCount());
+		assertEquals(1, cache.getMissCount());
+	}
+
+	@Test
+	void headIsNotReloadedWithinCheckInterval() throws RestClientException {
+		BranchHeadAwareCache cache = new BranchHeadAwareCache(100, 0, 60_000);
+		AtomicLong loads = new AtomicLong();
+
+		cache.getHeadTimestamp("MAIN/PROJECT", branchPath -> loads.incrementAndGet());
+		cache.getHeadTimestamp("MAIN/PROJECT", branchPath -> loads.incrementAndGet());
+		assertEquals(1, loads.get());
+	}
+
+	@Test
+	void taskReadsUnchangedConceptsFromProjectEntries() throws RestClientException {
+		BranchHeadAwareCache cache = new BranchHeadAwareCache(100, 0, 60_000);
+		cache.setBranchInheritance(true);
+		Map<String, Branch> branches = Map.of(
+				"MAIN", branch(1000, 0),
+				"MAIN/PROJECT", branch(2000, 500),
+				"MAIN/PROJECT/TASK-1", branch(3000, 2000),
+				"MAIN/PROJECT/TASK-2", branch(3500, 2000));
+		AtomicLong changeSetLoads = new AtomicLong();
+		BranchHeadAwareCache.ChangedConceptsLoader changes = (branchPath, parentPath) -> {
+			changeSetLoads.incrementAndGet();
+			return branchPath.endsWith("TASK-1") ? Set.of("22298006") : Set.of();
+		};
+
+		BranchHeadAwareCache.BranchView task1 = cache.getBranchView("MAIN/PROJECT/TASK-1", branches::get, changes);
+		assertNull(task1.get(FSN, "404684003"));
+		task1.put(FSN, "404684003", "Clinical finding (finding)");
+		task1.put(FSN, "22298006", "Myocardial infarction (disorder) - edited");
+
+		// The project is behind MAIN, so an unchanged concept is cached against the project, not MAIN
+		BranchHeadAwareCache.BranchView task2 = cache.getBranchView("MAIN/PROJECT/TASK-2", branches::get, changes);
+		assertEquals("Clinical finding (finding)", task2.get(FSN, "404684003"));
+		assertNull(task2.get(FSN, "22298006"));
+		assertEquals(1, cache.getInheritedHitCount());
+		assertEquals(2, changeSetLoads.get());
+
+		cache.getBranchView("MAIN/PROJECT/TASK-1", branches::get, changes);
+		assertEquals(2, cache.getChangeSetLoadCount());
+	}
+
+	@Test
+	void failedChangeSetLoadIsRememberedUntilBranchMoves() throws RestClientException {
+		BranchHeadAwareCache cache = new BranchHeadAwareCache(100, 0, 0);
+		cache.setBranchInheritance(true);
+		Map<String, Branch> branches = new HashMap<>(Map.of(
+				"MAIN", branch(1000, 0),
+				"MAIN/TASK-1", branch(2000, 1000)));
+		AtomicLong reviews = new AtomicLong();
+		// As when the review comes back stale
+		BranchHeadAwareCache.ChangedConceptsLoader changes = (branchPath, parentPath) -> {
+			reviews.incrementAndGet();
+			return null;
+		};
+
+		cache.getBranchView("MAIN/TASK-1", branches::get, changes);
+		cache.getBranchView("MAIN/TASK-1", branches::get, changes);
+		assertEquals(1, reviews.get());
+
+		branches.put("MAIN/TASK-1", branch(2500, 1000));
+		cache.getBranchView("MAIN/TASK-1", branches::get, changes);
+		assertEquals(2, reviews.get());
+		assertEquals(0, cache.getChangeSetLoadCount());
+	}
+
+	private static Branch branch(long headTimestamp, long baseTimestamp) {
+		Branch branch = new Branch();
+		branch.setHeadTimestamp(headTimestamp);
+		branch.setBaseTimestamp(baseTimestamp);
+		return branch;
+	}
+}
@@ -0,0 +1,36 @@
+package org.ihtsdo.otf.rest.client.terminologyserver;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ConceptIdSetTest {
+
+	@Test
+	void builderSortsAndRemovesDuplicates() {
+		ConceptIdSet ids = new ConceptIdSet.Builder()
+				.add("404684003")
+				.add("138875005")
+				.add("404684003")
+				.build();
+
+		assertEquals(2, ids.size());
+		assertArrayEquals(new long[] {138875005L, 404684003L}, ids.toArray());
+		assertTrue(ids.contains("404684003"));
+		assertFalse(ids.contains(71388002L));
+	}
+
+	@Test
+	void difference() {
+		ConceptIdSet baseline = ConceptIdSet.of(List.of("138875005", "404684003", "71388002"));
+		ConceptIdSet branch = ConceptIdSet.of(List.of("404684003", "71388002", "123037004"));
+
+		assertEquals(Set.of("123037004"), branch.difference(baseline).toStringSet());
+		assertEquals(Set.of("138875005"), baseline.difference(branch).toStringSet());
+		assertTrue(branch.difference(branch).isEmpty());
+		assertEquals(branch, branch.difference(ConceptIdSet.empty()));
+	}
+}
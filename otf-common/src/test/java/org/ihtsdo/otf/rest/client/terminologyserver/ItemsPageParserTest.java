@@ -0,0 +1,47 @@
+package org.ihtsdo.otf.rest.client.terminologyserver;
+
+import org.ihtsdo.otf.rest.client.terminologyserver.pojo.SimpleConceptPojo;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ItemsPageParserTest {
+
+	@Test
+	void readsItemsOneAtATimeAndFieldsAfterThem() throws IOException {
+		String json = "{\"items\":[" +
+				"{\"conceptId\":\"404684003\",\"id\":\"404684003\",\"active\":true,\"fsn\":{\"term\":\"Clinical finding (finding)\",\"lang\":\"en\"}}," +
+				"{\"conceptId\":\"71388002\",\"id\":\"71388002\",\"active\":true,\"fsn\":{\"term\":\"Procedure (procedure)\",\"lang\":\"en\"}}]," +
+				"\"total\":2,\"limit\":2,\"offset\":0,\"searchAfter\":\"WzcxMzg4MDAyXQ==\",\"searchAfterArray\":[71388002]}";
+
+		List<String> terms = new ArrayList<>();
+		try (ItemsPageParser page = new ItemsPageParser(new ByteArrayInputStream(json.getBytes(StandardCharsets.UTF_8)))) {
+			SimpleConceptPojo concept;
+			while ((concept = page.nextItem(ItemsPageParser.decoderFor(SimpleConceptPojo.class))) != null) {
+				terms.add(concept.getFsn().getTerm());
+			}
+			assertEquals(List.of("Clinical finding (finding)", "Procedure (procedure)"), terms);
+			assertEquals(2, page.getItemCount());
+			assertEquals(2, page.getTotal());
+			assertEquals("WzcxMzg4MDAyXQ==", page.getSearchAfter());
+		}
+	}
+
+	@Test
+	void readsIdsWhenTotalComesFirst() throws IOException {
+		String json = "{\"total\":1,\"items\":[{\"id\":\"138875005\",\"fsn\":{\"term\":\"SNOMED CT Concept\"}}]}";
+
+		try (ItemsPageParser page = new ItemsPageParser(new ByteArrayInputStream(json.getBytes(StandardCharsets.UTF_8)))) {
+			assertEquals("138875005", page.nextItem(ItemsPageParser.ID_DECODER));
+			assertNull(page.nextItem(ItemsPageParser.ID_DECODER));
+			assertEquals(1, page.getTotal());
+			assertNull(page.getSearchAfter());
+		}
+	}
+}
@@ -0,0 +1,70 @@
+package org.ihtsdo.otf.rest.client.terminologyserver;
+
+import org.ihtsdo.otf.rest.client.RestClientException;
+import org.junit.jupiter.api.Test;
+
+import java.net.URI;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RequestCoalescerTest {
+
+	private static final URI BRANCH_URI = URI.create("http://localhost:8080/snowstorm/branches/MAIN");
+
+	@Test
+	void concurrentIdenticalRequestsShareOneResult() throws Exception {
+		RequestCoalescer coalescer = new RequestCoalescer();
+		AtomicInteger sent = new AtomicInteger();
+		CountDownLatch release = new CountDownLatch(1);
+		RequestCoalescer.Request<String> request = () -> {
+			sent.incrementAndGet();
+			try {
+				release.await();
+			} catch (InterruptedException e) {
+				throw new RestClientException("Interrupted", e);
+			}
+			return "MAIN";
+		};
+
+		ExecutorService executorService = Executors.newFixedThreadPool(2);
+		try {
+			Future<String> first = executorService.submit(() -> coalescer.execute(BRANCH_URI, "token", String.class, request));
+			while (coalescer.getInFlightCount() == 0) {
+				Thread.sleep(1);
+			}
+			Future<String> second = executorService.submit(() -> coalescer.execute(BRANCH_URI, "token", String.class, request));
+			while (coalescer.getCoalescedCount() == 0) {
+				Thread.sleep(1);
+			}
+			release.countDown();
+
+			assertSame(first.get(5, TimeUnit.SECONDS), second.get(5, TimeUnit.SECONDS));
+			assertEquals(1, sent.get());
+			assertEquals(0, coalescer.getInFlightCount());
+		} finally {
+			executorService.shutdownNow();
+		}
+	}
+
+	@Test
+	void differentCredentialsAreNotShared() throws RestClientException {
+		RequestCoalescer coalescer = new RequestCoalescer();
+		AtomicInteger sent = new AtomicInteger();
+		RequestCoalescer.Request<Integer> request = () -> coalescer.execute(BRANCH_URI, "other-token", Integer.class, sent::incrementAndGet);
+
+		coalescer.execute(BRANCH_URI, "token", Integer.class, request);
+		assertEquals(1, sent.get());
+		assertEquals(0, coalescer.getCoalescedCount());
+	}
+
+	@Test
+	void failureIsPassedOnAndNotKept() {
+		RequestCoalescer coalescer = new RequestCoalescer();
+		assertThrows(RestClientException.class, () -> coalescer.execute(BRANCH_URI, "token", String.class, () -> {
+			throw new RestClientException("Failed to retrieve Branch, status code: 500");
+		}));
+		assertEquals(0, coalescer.getInFlightCount());
+	}
+}
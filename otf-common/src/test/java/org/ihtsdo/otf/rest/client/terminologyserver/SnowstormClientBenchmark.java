@@ -0,0 +1,242 @@
+package org.ihtsdo.otf.rest.client.terminologyserver;
+
+import io.micrometer.core.instrument.Meter;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.config.MeterFilter;
+import io.micrometer.core.instrument.distribution.DistributionStatisticConfig;
+import io.micrometer.core.instrument.distribution.HistogramSnapshot;
+import io.micrometer.core.instrument.distribution.ValueAtPercentile;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.ihtsdo.otf.rest.client.HttpTransportConfiguration;
+import org.ihtsdo.otf.snowstorm.testserver.FakeSnowstormServer;
+import org.ihtsdo.otf.snowstorm.testserver.SyntheticDataSet;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadInfo;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+/**
+ * Measures the throughput of the paged and batched operations of {@link SnowstormRestClient} against a
+ * {@link FakeSnowstormServer}, across page sizes, batch sizes and batch concurrency, to tune their defaults.
+ * For each configuration it prints the p50 and p99 request latency, requests and concepts per second, and the
+ * bytes allocated by the client per concept. Not run as part of the build, start it from the test classpath:
+ * <pre>
+ * mvn -pl otf-common test-compile exec:java -Dexec.classpathScope=test \
+ *     -Dexec.mainClass=org.ihtsdo.otf.rest.client.terminologyserver.SnowstormClientBenchmark
+ * </pre>
+ * Settings are system properties: <code>benchmark.concepts</code>, <code>benchmark.lookups</code>,
+ * <code>benchmark.latencyMillis</code>, <code>benchmark.iterations</code>, <code>benchmark.pageSizes</code>,
+ * <code>benchmark.batchSizes</code> and <code>benchmark.concurrency</code>, lists being comma separated.
+ */
+public class SnowstormClientBenchmark {
+
+	private static final String BRANCH = "MAIN";
+	private static final String SERVER_THREAD_PREFIX = "fake-snowstorm-";
+	private static final String SAMPLER_THREAD = "benchmark-allocation-sampler";
+
+	private interface Operation {
+		/**
+		 * @return the number of concepts or members read.
+		 */
+		long run(SnowstormRestClient client) throws Exception;
+	}
+
+	public static void main(String[] args) throws Exception {
+		int conceptCount = Integer.getInteger("benchmark.concepts", 200_000);
+		int lookupCount = Integer.getInteger("benchmark.lookups", 20_000);
+		int iterations = Integer.getInteger("benchmark.iterations", 3);
+		List<Integer> pageSizes = intList("benchmark.pageSizes", "1000,5000,10000");
+		List<Integer> batchSizes = intList("benchmark.batchSizes", "50,200,500,1000");
+		List<Integer> concurrencyLevels = intList("benchmark.concurrency", "1,4,8");
+
+		try (FakeSnowstormServer server = new FakeSnowstormServer(conceptCount)) {
+			server.setLatencyMillis(Long.getLong("benchmark.latencyMillis", 2));
+			server.setThreads(32);
+			server.start();
+			HttpTransportConfiguration transport = new HttpTransportConfiguration()
+					.setMaxConnectionsTotal(64)
+					.setMaxConnectionsPerRoute(64);
+			List<String> lookupIds = sampleConceptIds(server.getDataSet(), lookupCount);
+			SnowstormClientBenchmark benchmark = new SnowstormClientBenchmark(server, transport, iterations);
+
+			benchmark.printHeader();
+			for (int pageSize : pageSizes) {
+				benchmark.run("eclPaging", pageSize, 0, 1, client -> {
+					AtomicLong count = new AtomicLong();
+					client.eclQuery(BRANCH, "*", false, page -> count.addAndGet(page.size()));
+					return count.get();
+				});
+			}
+			for (int pageSize : pageSizes) {
+				benchmark.run("forEachConcept", pageSize, 0, 1, client -> client.forEachConcept(BRANCH, "*", false, concept -> {}));
+			}
+			for (int pageSize : pageSizes) {
+				benchmark.run("memberPaging", pageSize, 0, 1, client -> {
+					try (Stream<?> members = client.streamMembers(BRANCH, SyntheticDataSet.REFSET_ID, null, null, null)) {
+						return members.count();
+					}
+				});
+			}
+			for (int batchSize : batchSizes) {
+				for (int concurrency : concurrencyLevels) {
+					benchmark.run("getFsns", 0, batchSize, concurrency, client -> client.getFsns(BRANCH, lookupIds).size());
+					benchmark.run("getDescriptions", 0, batchSize, concurrency, client -> client.getDescriptions(BRANCH, lookupIds).size());
+				}
+			}
+		}
+	}
+
+	private final FakeSnowstormServer server;
+	private final HttpTransportConfiguration transport;
+	private final int iterations;
+
+	private SnowstormClientBenchmark(FakeSnowstormServer server, HttpTransportConfiguration transport, int iterations) {
+		this.server = server;
+		this.transport = transport;
+		this.iterations = iterations;
+	}
+
+	private void run(String name, int pageSize, int batchSize, int concurrency, Operation operation) throws Exception {
+		SnowstormRestClient client = new SnowstormRestClient(server.getUrl(), "benchmark", transport);
+		if (pageSize > 0) {
+			client.setPageSize(pageSize);
+		}
+		if (batchSize > 0) {
+			client.setBatchSize(batchSize);
+		}
+		client.setBatchConcurrency(concurrency);
+
+		// Warm up before anything is recorded
+		operation.run(client);
+
+		SimpleMeterRegistry registry = new SimpleMeterRegistry();
+		registry.config().meterFilter(new MeterFilter() {
+			@Override
+			public DistributionStatisticConfig configure(Meter.Id id, DistributionStatisticConfig config) {
+				return DistributionStatisticConfig.builder()
+						.percentiles(0.5, 0.99)
+						.build()
+						.merge(config);
+			}
+		});
+		client.setMetrics(new SnowstormClientMetrics(registry, server.getUrl(), false));
+
+		long concepts = 0;
+		long allocatedBytes;
+		long start = System.nanoTime();
+		try (AllocationSampler allocation = new AllocationSampler()) {
+			for (int i = 0; i < iterations; i++) {
+				concepts += operation.run(client);
+			}
+			allocatedBytes = allocation.getAllocatedBytes();
+		}
+		double seconds = (System.nanoTime() - start) / 1e9;
+
+		long requests = 0;
+		double p50 = 0;
+		double p99 = 0;
+		for (Timer timer : registry.find("snowstorm.client.requests").timers()) {
+			// Every request of one operation goes to the same endpoint, so there is one timer of note
+			if (timer.count() > requests) {
+				requests = timer.count();
+				HistogramSnapshot snapshot = timer.takeSnapshot();
+				for (ValueAtPercentile percentile : snapshot.percentileValues()) {
+					if (percentile.percentile() == 0.5) {
+						p50 = percentile.value(TimeUnit.MILLISECONDS);
+					} else if (percentile.percentile() == 0.99) {
+						p99 = percentile.value(TimeUnit.MILLISECONDS);
+					}
+				}
+			}
+		}
+		System.out.printf("%-16s %6s %6s %5d %10d %8d %9.1f %9.1f %10.1f %12.0f %12.0f%n",
+				name, pageSize > 0 ? pageSize : "-", batchSize > 0 ? batchSize : "-", concurrency, concepts, requests,
+				p50, p99, requests / seconds, concepts / seconds, concepts > 0 ? (double) allocatedBytes / concepts : 0);
+	}
+
+	private void printHeader() {
+		System.out.printf("%-16s %6s %6s %5s %10s %8s %9s %9s %10s %12s %12s%n",
+				"operation", "page", "batch", "conc", "concepts", "requests", "p50 ms", "p99 ms", "req/s", "concepts/s", "bytes/concept");
+	}
+
+	private static List<String> sampleConceptIds(SyntheticDataSet dataSet, int count) {
+		int step = Math.max(1, dataSet.getConceptCount() / Math.max(1, count));
+		return IntStream.range(0, Math.min(count, dataSet.getConceptCount()))
+				.mapToObj(i -> dataSet.getConceptId(i * step))
+				.collect(Collectors.toList());
+	}
+
+	private static List<Integer> intList(String property, String defaultValue) {
+		return Arrays.stream(System.getProperty(property, defaultValue).split(","))
+				.map(String::trim)
+				.map(Integer::valueOf)
+				.collect(Collectors.toList());
+	}
+
+	/**
+	 * Totals the heap allocated by the threads of this JVM other than the fake server's. The batch executor's threads
+	 * only live for one call, so their counts are sampled while they run; the last few milliseconds of a thread which
+	 * ends between samples are missed, making the figure a slight underestimate.
+	 */
+	private static class AllocationSampler implements AutoCloseable {
+
+		private final com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+		private final Map<Long, Long> startBytes = new HashMap<>();
+		private final Map<Long, Long> lastBytes = new ConcurrentHashMap<>();
+		private final ScheduledExecutorService sampler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+			Thread thread = new Thread(runnable, SAMPLER_THREAD);
+			thread.setDaemon(true);
+			return thread;
+		});
+
+		private AllocationSampler() {
+			sample(startBytes);
+			sampler.scheduleAtFixedRate(() -> sample(lastBytes), 5, 5, TimeUnit.MILLISECONDS);
+		}
+
+		private synchronized void sample(Map<Long, Long> into) {
+			long[] ids = threads.getAllThreadIds();
+			ThreadInfo[] infos = threads.getThreadInfo(ids, 0);
+			List<Long> clientIds = new ArrayList<>();
+			for (ThreadInfo info : infos) {
+				if (info != null && !info.getThreadName().startsWith(SERVER_THREAD_PREFIX) && !info.getThreadName().equals(SAMPLER_THREAD)
+						&& !info.getThreadName().startsWith("HTTP-Dispatcher")) {
+					clientIds.add(info.getThreadId());
+				}
+			}
+			long[] sampleIds = clientIds.stream().mapToLong(Long::longValue).toArray();
+			long[] allocated = threads.getThreadAllocatedBytes(sampleIds);
+			for (int i = 0; i < sampleIds.length; i++) {
+				if (allocated[i] >= 0) {
+					into.put(sampleIds[i], allocated[i]);
+				}
+			}
+		}
+
+		private long getAllocatedBytes() {
+			sample(lastBytes);
+			long total = 0;
+			for (Map.Entry<Long, Long> entry : lastBytes.entrySet()) {
+				total += entry.getValue() - startBytes.getOrDefault(entry.getKey(), 0L);
+			}
+			return total;
+		}
+
+		@Override
+		public void close() {
+			sampler.shutdownNow();
+		}
+	}
+}
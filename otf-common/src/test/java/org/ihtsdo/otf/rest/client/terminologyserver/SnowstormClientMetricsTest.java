@@ -0,0 +1,44 @@
+package org.ihtsdo.otf.rest.client.terminologyserver;
+
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.web.client.RestTemplate;
+
+import java.net.URI;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SnowstormClientMetricsTest {
+
+	private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+	private final SnowstormClientMetrics metrics = new SnowstormClientMetrics(registry, "https://snowstorm.example.org/snowstorm/snomed-ct/", false);
+
+	@Test
+	void endpointTemplateHidesBranchesAndIds() {
+		assertEquals("/{branch}/concepts", template("/MAIN/PROJECT/TASK-12/concepts?ecl=%3C%3C404684003&limit=10000"));
+		assertEquals("/browser/{branch}/concepts/{id}", template("/browser/MAIN/PROJECT/concepts/404684003"));
+		assertEquals("/branches/{branch}/children", template("/branches/MAIN/PROJECT/children"));
+		assertEquals("/codesystems/{codeSystem}/versions/{id}", template("/codesystems/SNOMEDCT-XX/versions/20250101"));
+		assertEquals("/merge-reviews/{id}/details", template("/merge-reviews/3f1a2b4c-5d6e-4f70-8a9b-0c1d2e3f4a5b/details"));
+	}
+
+	@Test
+	void runtimeFailureIsRecordedAsError() {
+		RestTemplate restTemplate = new RestTemplate((uri, method) -> {
+			throw new IllegalStateException("No connection available");
+		});
+		restTemplate.getInterceptors().add(metrics);
+
+		assertThrows(IllegalStateException.class,
+				() -> restTemplate.getForObject("https://snowstorm.example.org/snowstorm/snomed-ct/MAIN/concepts", String.class));
+
+		Timer timer = registry.find("snowstorm.client.requests").tags("endpoint", "/{branch}/concepts", "status", "ERROR").timer();
+		assertNotNull(timer);
+		assertEquals(1, timer.count());
+	}
+
+	private String template(String path) {
+		return metrics.toEndpointTemplate(URI.create("https://snowstorm.example.org/snowstorm/snomed-ct" + path));
+	}
+}
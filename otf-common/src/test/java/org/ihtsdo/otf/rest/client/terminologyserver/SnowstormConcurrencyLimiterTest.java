@@ -0,0 +1,66 @@
+package org.ihtsdo.otf.rest.client.terminologyserver;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.ihtsdo.otf.rest.client.terminologyserver.SnowstormConcurrencyLimiter.CircuitState.*;
+import static org.junit.jupiter.api.Assertions.*;
+
+class SnowstormConcurrencyLimiterTest {
+
+	private final AtomicLong now = new AtomicLong();
+
+	@Test
+	void limitHalvesOnFailureAndGrowsWhileUsed() throws IOException {
+		SnowstormConcurrencyLimiter limiter = new SnowstormConcurrencyLimiter("test", 8, 1, 10, 100, 1000, 0, now::get);
+
+		limiter.acquire();
+		limiter.release(false, false);
+		assertEquals(4, limiter.getLimit());
+
+		for (int i = 0; i < 4; i++) {
+			limiter.acquire();
+		}
+		assertThrows(IOException.class, limiter::acquire);
+		for (int i = 0; i < 4; i++) {
+			limiter.release(false, true);
+		}
+
+		for (int round = 0; round < 10; round++) {
+			int slots = limiter.getLimit();
+			for (int i = 0; i < slots; i++) {
+				limiter.acquire();
+			}
+			for (int i = 0; i < slots; i++) {
+				limiter.release(false, true);
+			}
+		}
+		assertTrue(limiter.getLimit() > 4);
+		assertTrue(limiter.getLimit() <= 10);
+		assertEquals(0, limiter.getInFlight());
+	}
+
+	@Test
+	void circuitOpensAfterConsecutiveFailuresAndClosesAfterTrial() throws IOException {
+		SnowstormConcurrencyLimiter limiter = new SnowstormConcurrencyLimiter("test", 10, 1, 10, 3, 1000, 0, now::get);
+		// Admitted before the circuit opens
+		assertFalse(limiter.acquire());
+		for (int i = 0; i < 3; i++) {
+			limiter.acquire();
+			limiter.release(false, false);
+		}
+		assertEquals(OPEN, limiter.getCircuitState());
+		assertThrows(SnowstormConcurrencyLimiter.CircuitOpenException.class, limiter::acquire);
+
+		now.addAndGet(1000);
+		assertTrue(limiter.acquire());
+		assertEquals(HALF_OPEN, limiter.getCircuitState());
+		assertThrows(SnowstormConcurrencyLimiter.CircuitOpenException.class, limiter::acquire);
+		limiter.release(false, true);
+		assertEquals(HALF_OPEN, limiter.getCircuitState());
+		limiter.release(true, true);
+		assertEquals(CLOSED, limiter.getCircuitState());
+	}
+}
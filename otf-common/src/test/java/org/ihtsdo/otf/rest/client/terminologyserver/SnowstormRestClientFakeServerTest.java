@@ -0,0 +1,305 @@
+package org.ihtsdo.otf.rest.client.terminologyserver;
+
+import org.ihtsdo.otf.rest.client.CompressionStatistics;
+import org.ihtsdo.otf.rest.client.terminologyserver.pojo.ConceptPojo;
+import org.ihtsdo.otf.rest.client.terminologyserver.pojo.DescriptionPojo;
+import org.ihtsdo.otf.rest.client.terminologyserver.pojo.MergeReviewConceptVersions;
+import org.ihtsdo.otf.rest.client.terminologyserver.pojo.MergeReviewsResults;
+import org.ihtsdo.otf.rest.client.terminologyserver.pojo.RefsetMemberPojo;
+import org.ihtsdo.otf.snowstorm.testserver.FakeSnowstormServer;
+import org.ihtsdo.otf.snowstorm.testserver.SyntheticDataSet;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.zip.ZipInputStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SnowstormRestClientFakeServerTest {
+
+	private static final int CONCEPT_COUNT = 12_345;
+
+	private static FakeSnowstormServer server;
+	private static SnowstormRestClient client;
+
+	@BeforeAll
+	static void startServer() throws IOException {
+		server = new FakeSnowstormServer(CONCEPT_COUNT);
+		server.setJobDurationMillis(50);
+		server.start();
+		client = new SnowstormRestClient(server.getUrl(), "test-cookie");
+	}
+
+	@AfterAll
+	static void stopServer() {
+		server.stop();
+	}
+
+	@Test
+	void pagesThroughLargeEclResult() {
+		try (Stream<String> ids = client.eclQueryStream("MAIN", "<< 138875005", false)) {
+			assertEquals(CONCEPT_COUNT, ids.distinct().count());
+		}
+	}
+
+	@Test
+	void readsFsnsInBatches() throws Exception {
+		SyntheticDataSet dataSet = server.getDataSet();
+		List<String> conceptIds = List.of(dataSet.getConceptId(0), dataSet.getConceptId(42), dataSet.getConceptId(CONCEPT_COUNT - 1));
+
+		Map<String, String> fsns = client.getFsns("MAIN", conceptIds);
+
+		assertEquals(dataSet.getFsn(42), fsns.get(dataSet.getConceptId(42)));
+		assertEquals(3, fsns.size());
+	}
+
+	@Test
+	void streamsFilteredMembers() {
+		try (Stream<RefsetMemberPojo> members = client.streamMembers("MAIN", SyntheticDataSet.REFSET_ID, null, false, null)) {
+			List<RefsetMemberPojo> inactive = members.collect(Collectors.toList());
+			assertEquals(CONCEPT_COUNT / 10, inactive.size());
+			assertTrue(inactive.stream().noneMatch(RefsetMemberPojo::isActive));
+		}
+	}
+
+	@Test
+	void importsArchiveAndWaitsForCompletion() throws Exception {
+		byte[] archive = new byte[100_000];
+		long uploadedBefore = server.getUploadedBytes();
+
+		assertTrue(client.importRF2ArchiveAsync("projectA", "task1", new ByteArrayInputStream(archive)).get(30, TimeUnit.SECONDS));
+		assertTrue(server.getUploadedBytes() - uploadedBefore > archive.length);
+	}
+
+	@Test
+	void decodesCompressedResponsesOnBothTransports() throws Exception {
+		SnowstormRestClient compressingClient = new SnowstormRestClient(server.getUrl(), "test-cookie");
+		compressingClient.setResponseCompression(true);
+		CompressionStatistics statistics = compressingClient.getCompressionStatistics();
+		server.setCompression(true);
+		SyntheticDataSet dataSet = server.getDataSet();
+		List<String> conceptIds = new ArrayList<>();
+		for (int i = 0; i < 500; i++) {
+			conceptIds.add(dataSet.getConceptId(i));
+		}
+
+		// RestTemplate
+		Map<String, String> fsns = compressingClient.getFsns("MAIN", conceptIds);
+		assertEquals(500, fsns.size());
+		assertEquals(dataSet.getFsn(499), fsns.get(dataSet.getConceptId(499)));
+		assertTrue(statistics.getCompressedResponses() > 0);
+		assertTrue(statistics.getSavedBytes() > 0);
+		assertTrue(statistics.getWireBytes() < statistics.getDecodedBytes());
+
+		// Resty, which creates and polls the import
+		long compressedResponses = statistics.getCompressedResponses();
+		assertTrue(compressingClient.importRF2ArchiveAsync("projectA", "task2", new ByteArrayInputStream(new byte[1_000])).get(30, TimeUnit.SECONDS));
+		assertTrue(statistics.getCompressedResponses() > compressedResponses);
+
+		compressingClient.setResponseCompression(false);
+		assertNull(compressingClient.getCompressionStatistics());
+	}
+
+	@Test
+	void evaluatesEclInBulkScreeningGroupsWithDisjunction() throws Exception {
+		SyntheticDataSet dataSet = server.getDataSet();
+		String matchingId = dataSet.getConceptId(5);
+		// Twelve short expressions: a first group of ten matching nothing, then a group of two with one match
+		Map<String, String> namedEcl = new LinkedHashMap<>();
+		for (int i = 0; i < 10; i++) {
+			namedEcl.put("rule-" + (20 - i), dataSet.getConceptId(CONCEPT_COUNT + i));
+		}
+		namedEcl.put("rule-b-match", matchingId);
+		namedEcl.put("rule-a-miss", dataSet.getConceptId(CONCEPT_COUNT + 10));
+
+		server.resetCounters();
+		Map<String, EclQueryResult> counts = client.eclQueryBulk("MAIN", namedEcl, SnowstormRestClient.EclResultType.COUNT, false, true);
+		// One request for the first group, one for the second group's disjunction and one per expression of the second group
+		assertEquals(4, server.getRequestCount());
+		assertEquals(new ArrayList<>(namedEcl.keySet()), new ArrayList<>(counts.keySet()));
+		assertEquals(1, counts.get("rule-b-match").getCount());
+		assertEquals(0, counts.get("rule-a-miss").getCount());
+		assertEquals(0, counts.get("rule-20").getCount());
+		assertNull(counts.get("rule-b-match").getConceptIds());
+
+		Map<String, EclQueryResult> ids = client.eclQueryBulk("MAIN", namedEcl, SnowstormRestClient.EclResultType.IDS, false, true);
+		assertEquals(Set.of(matchingId), ids.get("rule-b-match").getConceptIds());
+		assertEquals(Set.of(), ids.get("rule-a-miss").getConceptIds());
+		assertEquals(Set.of(), ids.get("rule-11").getConceptIds());
+
+		Map<String, EclQueryResult> exists = client.eclQueryBulk("MAIN", namedEcl, SnowstormRestClient.EclResultType.EXISTS, false);
+		assertTrue(exists.get("rule-b-match").hasMatches());
+		assertFalse(exists.get("rule-a-miss").hasMatches());
+		assertEquals(new ArrayList<>(namedEcl.keySet()), new ArrayList<>(exists.keySet()));
+	}
+
+	@Test
+	void readsExportedEntriesWithoutTempArchive() throws Exception {
+		File tempDirectory = new File(System.getProperty("java.io.tmpdir"));
+		Set<String> tempArchivesBefore = listTempArchives(tempDirectory);
+		Map<String, Long> lineCounts = new HashMap<>();
+
+		client.exportEntries(new SnowstormRestClient.ExportConfigurationBuilder(), (entryName, content) ->
+				lineCounts.put(entryName, new BufferedReader(new InputStreamReader(content, StandardCharsets.UTF_8)).lines().count()));
+
+		assertEquals(1, lineCounts.size());
+		String entryName = lineCounts.keySet().iterator().next();
+		assertTrue(entryName.contains("sct2_Concept_Delta"));
+		// Header and one row per concept
+		assertEquals(CONCEPT_COUNT + 1, lineCounts.get(entryName));
+		assertEquals(tempArchivesBefore, listTempArchives(tempDirectory));
+	}
+
+	@Test
+	void exportStreamCanBeClosedEarly() throws Exception {
+		String header = client.exportStream(new SnowstormRestClient.ExportConfigurationBuilder(), archive -> {
+			ZipInputStream zip = new ZipInputStream(archive);
+			assertNotNull(zip.getNextEntry());
+			// Only the first line is read, the rest of the archive is left unread
+			return new BufferedReader(new InputStreamReader(zip, StandardCharsets.UTF_8)).readLine();
+		});
+
+		assertEquals("id\teffectiveTime\tactive\tmoduleId\tdefinitionStatusId", header);
+		// The client is still usable afterwards
+		assertNotNull(client.getFsns("MAIN", List.of(server.getDataSet().getConceptId(1))));
+	}
+
+	@Test
+	void savesConceptsInBulkAndIsolatesFailures() throws Exception {
+		SnowstormRestClient bulkClient = new SnowstormRestClient(server.getUrl(), "test-cookie");
+		bulkClient.setBulkChangeBatchSize(2);
+		String existingId = server.getDataSet().getConceptId(7);
+		List<ConceptPojo> concepts = new ArrayList<>();
+		for (int i = 0; i < 5; i++) {
+			ConceptPojo concept = i == 0 ? new ConceptPojo(existingId) : new ConceptPojo();
+			String term = i == 3 ? "Concept " + FakeSnowstormServer.INVALID_TERM_MARKER : "Concept " + i;
+			concept.setDescriptions(Set.of(new DescriptionPojo(term)));
+			concepts.add(concept);
+		}
+
+		List<ConceptChangeOutcome> outcomes = bulkClient.saveConcepts("MAIN/projectA", concepts);
+
+		assertEquals(5, outcomes.size());
+		assertEquals(existingId, outcomes.get(0).getConceptId());
+		assertTrue(outcomes.get(1).isSuccess());
+		assertNotNull(outcomes.get(1).getConceptId());
+		assertTrue(outcomes.get(2).isSuccess());
+		assertFalse(outcomes.get(3).isSuccess());
+		assertSame(concepts.get(3), outcomes.get(3).getConcept());
+		assertTrue(outcomes.get(4).isSuccess());
+	}
+
+	@Test
+	void stopsSplittingBatchWhenHalvesFailTheSameWay() throws Exception {
+		SnowstormRestClient bulkClient = new SnowstormRestClient(server.getUrl(), "test-cookie");
+		bulkClient.setBulkChangeBatchSize(8);
+		List<ConceptPojo> concepts = new ArrayList<>();
+		for (int i = 0; i < 8; i++) {
+			ConceptPojo concept = new ConceptPojo();
+			concept.setDescriptions(Set.of(new DescriptionPojo("Concept " + FakeSnowstormServer.INVALID_TERM_MARKER)));
+			concepts.add(concept);
+		}
+
+		List<ConceptChangeOutcome> outcomes = bulkClient.saveConcepts("MAIN/projectA", concepts);
+
+		assertEquals(8, outcomes.size());
+		assertTrue(outcomes.stream().noneMatch(ConceptChangeOutcome::isSuccess));
+		// Only the two halves were sent again
+		assertEquals(2, outcomes.stream().map(ConceptChangeOutcome::getBatchId).distinct().count());
+	}
+
+	@Test
+	void taskBranchesShareUnchangedConceptsThroughProjectCache() throws Exception {
+		SnowstormRestClient cachingClient = new SnowstormRestClient(server.getUrl(), "test-cookie");
+		BranchHeadAwareCache cache = new BranchHeadAwareCache(1_000, 0, 60_000);
+		cache.setBranchInheritance(true);
+		cachingClient.setComponentCache(cache);
+		String unchangedId = server.getDataSet().getConceptId(11);
+		String changedId = server.getDataSet().getConceptId(12);
+		server.commitToBranch("MAIN/projectB/task1", changedId);
+
+		assertNotNull(cachingClient.getConcept("MAIN/projectB/task1", unchangedId));
+		assertNotNull(cachingClient.getConcept("MAIN/projectB/task1", changedId));
+		assertNotNull(cachingClient.getConcept("MAIN/projectB/task2", unchangedId));
+		assertNotNull(cachingClient.getConcept("MAIN/projectB/task2", changedId));
+
+		assertEquals(1, cache.getInheritedHitCount());
+		assertEquals(3, cache.getMissCount());
+
+		// Changes made by one caller are not seen by the next
+		ConceptPojo modified = cachingClient.getConcept("MAIN/projectB/task1", unchangedId);
+		String moduleId = modified.getModuleId();
+		modified.setModuleId("999999999999");
+		assertEquals(moduleId, cachingClient.getConcept("MAIN/projectB/task1", unchangedId).getModuleId());
+	}
+
+	@Test
+	void reportsMergeReviewOutcomesAsEachFinishes() throws Exception {
+		SnowstormRestClient reviewClient = new SnowstormRestClient(server.getUrl(), "test-cookie");
+		StatusPoller statusPoller = new StatusPoller(4, 10, 10, 1.0);
+		reviewClient.setStatusPoller(statusPoller);
+		String conflictId = server.getDataSet().getConceptId(21);
+		server.commitToBranch("MAIN/projectD/task1", conflictId, server.getDataSet().getConceptId(22));
+		server.commitToBranch("MAIN/projectD", conflictId);
+		Map<String, String> sourceToTarget = new LinkedHashMap<>();
+		sourceToTarget.put("MAIN/projectD/task1", "MAIN/projectD");
+		sourceToTarget.put("MAIN/projectD/task2", "MAIN/projectD");
+		sourceToTarget.put("MAIN/projectD/" + FakeSnowstormServer.UNREVIEWABLE_BRANCH_MARKER, "MAIN/projectD");
+		// Long enough that the refused review is reported well before the others can finish
+		long jobDurationMillis = 1_000;
+		server.setJobDurationMillis(jobDurationMillis);
+		Map<String, MergeReviewOutcome> outcomes = new LinkedHashMap<>();
+		List<Long> elapsedMillis = new ArrayList<>();
+		try {
+			long start = System.currentTimeMillis();
+			reviewClient.mergeReviews(sourceToTarget, outcome -> {
+				elapsedMillis.add(System.currentTimeMillis() - start);
+				outcomes.put(outcome.getSourcePath(), outcome);
+			});
+		} finally {
+			server.setJobDurationMillis(50);
+			statusPoller.shutdown();
+		}
+
+		assertEquals(sourceToTarget.keySet(), outcomes.keySet());
+		MergeReviewOutcome refused = outcomes.values().iterator().next();
+		assertTrue(refused.getSourcePath().contains(FakeSnowstormServer.UNREVIEWABLE_BRANCH_MARKER));
+		assertNotNull(refused.getFailure());
+		assertNull(refused.getReviewId());
+		assertTrue(elapsedMillis.get(0) < jobDurationMillis);
+		assertTrue(elapsedMillis.get(1) >= jobDurationMillis);
+
+		MergeReviewOutcome conflicting = outcomes.get("MAIN/projectD/task1");
+		assertNull(conflicting.getFailure());
+		assertTrue(conflicting.isCurrent());
+		assertEquals("MAIN/projectD", conflicting.getReview().getTargetPath());
+		assertEquals(List.of(conflictId), conflicting.getConflicts().stream().map(MergeReviewConceptVersions::getConceptId).collect(Collectors.toList()));
+
+		MergeReviewOutcome clean = outcomes.get("MAIN/projectD/task2");
+		assertTrue(clean.isCurrent());
+		assertFalse(clean.hasConflicts());
+		assertEquals(MergeReviewsResults.MergeReviewStatus.CURRENT, reviewClient.getMergeReviewsResult(clean.getReviewId()).getStatus());
+		assertEquals(Set.of(), reviewClient.getMergeReviewConflicts(clean.getReviewId()));
+	}
+
+	private static Set<String> listTempArchives(File directory) {
+		String[] names = directory.list((dir, name) -> name.startsWith("ts-extract") && name.endsWith(".zip"));
+		return names != null ? Set.of(names) : Set.of();
+	}
+}
@@ -0,0 +1,37 @@
+package org.ihtsdo.otf.rest.client.terminologyserver;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class StatusPollerTest {
+
+	private final StatusPoller statusPoller = new StatusPoller(2, 10, 10, 1.0);
+
+	@AfterEach
+	void shutdown() {
+		statusPoller.shutdown();
+	}
+
+	@Test
+	void cancellingDependentStageStopsPolling() throws InterruptedException {
+		AtomicInteger checks = new AtomicInteger();
+		CompletableFuture<String> poll = statusPoller.poll(() -> {
+			checks.incrementAndGet();
+			return null;
+		}, null, "job");
+		CompletableFuture<Integer> dependent = poll.thenApply(String::length).thenCompose(CompletableFuture::completedFuture);
+
+		Thread.sleep(50);
+		dependent.cancel(true);
+		assertTrue(poll.isCancelled());
+		int checksWhenCancelled = checks.get();
+		Thread.sleep(100);
+
+		assertTrue(checks.get() <= checksWhenCancelled + 1);
+	}
+}
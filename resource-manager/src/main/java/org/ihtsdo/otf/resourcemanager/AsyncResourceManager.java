@@ -0,0 +1,261 @@
+package org.ihtsdo.otf.resourcemanager;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Queue;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Runs {@link ResourceManager} operations in the background, returning a {@code CompletableFuture} for each,
+ * so that work on many objects can overlap its S3 round trips without each caller managing a thread pool.
+ * <p>
+ * Operations run on a bounded executor. No more than a maximum number run at once against the same bucket;
+ * the rest wait in a queue without holding a thread. Facades created with {@link #forResourceManager(ResourceManager)}
+ * share the executor and the per bucket limits, so that several resource managers using one bucket are limited together.
+ * <p>
+ * A failed operation completes its future exceptionally with the exception thrown by the resource manager,
+ * typically an {@code IOException}. An operation which can not be started because the executor has been shut down
+ * completes exceptionally with a {@code RejectedExecutionException}.
+ */
+public class AsyncResourceManager implements AutoCloseable {
+
+	private static final String LOCAL_STORAGE = "";
+
+	private interface ResourceOperation<T> {
+		T run() throws IOException;
+	}
+
+	private final ResourceManager resourceManager;
+	private final ExecutorService executor;
+	private final boolean ownsExecutor;
+	private final int maxConcurrencyPerBucket;
+	private final Map<String, BucketQueue> bucketQueues;
+
+	/**
+	 * Creates the facade with its own pool of daemon threads, shut down by {@link #close()}.
+	 *
+	 * @param resourceManager         Resource manager to run the operations.
+	 * @param threads                 Number of threads running operations, across all buckets.
+	 * @param maxConcurrencyPerBucket Maximum number of operations running at once against one bucket.
+	 */
+	public AsyncResourceManager(final ResourceManager resourceManager, final int threads, final int maxConcurrencyPerBucket) {
+		this(resourceManager, newExecutor(threads), true, maxConcurrencyPerBucket, new ConcurrentHashMap<>());
+	}
+
+	/**
+	 * Creates the facade on an executor owned by the caller, which is not shut down by {@link #close()}.
+	 *
+	 * @param resourceManager         Resource manager to run the operations.
+	 * @param executor                Executor running the operations.
+	 * @param maxConcurrencyPerBucket Maximum number of operations running at once against one bucket.
+	 */
+	public AsyncResourceManager(final ResourceManager resourceManager, final ExecutorService executor, final int maxConcurrencyPerBucket) {
+		this(resourceManager, executor, false, maxConcurrencyPerBucket, new ConcurrentHashMap<>());
+	}
+
+	private AsyncResourceManager(ResourceManager resourceManager, ExecutorService executor, boolean ownsExecutor,
+								 int maxConcurrencyPerBucket, Map<String, BucketQueue> bucketQueues) {
+		if (maxConcurrencyPerBucket < 1) {
+			throw new IllegalArgumentException("Maximum concurrency per bucket must be at least 1.");
+		}
+		this.resourceManager = Objects.requireNonNull(resourceManager);
+		this.executor = Objects.requireNonNull(executor);
+		this.ownsExecutor = ownsExecutor;
+		this.maxConcurrencyPerBucket = maxConcurrencyPerBucket;
+		this.bucketQueues = bucketQueues;
+	}
+
+	private static ExecutorService newExecutor(int threads) {
+		final AtomicInteger threadNumber = new AtomicInteger();
+		return Executors.newFixedThreadPool(threads, runnable -> {
+			Thread thread = new Thread(runnable, "async-resource-manager-" + threadNumber.incrementAndGet());
+			thread.setDaemon(true);
+			return thread;
+		});
+	}
+
+	/**
+	 * @return a facade for another resource manager, sharing this one's executor and per bucket limits.
+	 */
+	public AsyncResourceManager forResourceManager(final ResourceManager otherResourceManager) {
+		return new AsyncResourceManager(otherResourceManager, executor, false, maxConcurrencyPerBucket, bucketQueues);
+	}
+
+	/**
+	 * Opens the resource in the background. Only opening the stream is asynchronous, reading it is up to the caller.
+	 *
+	 * @see ResourceManager#readResourceStream(String)
+	 */
+	public CompletableFuture<InputStream> readResourceStream(final String resourcePath) {
+		return submit(() -> resourceManager.readResourceStream(resourcePath));
+	}
+
+	/**
+	 * Downloads the resource to a temporary file in the background.
+	 *
+	 * @see ResourceManager#doReadResourceFile(String)
+	 */
+	public CompletableFuture<File> readResourceFile(final String resourcePath) {
+		return submit(() -> resourceManager.doReadResourceFile(resourcePath));
+	}
+
+	/**
+	 * @see ResourceManager#writeResource(String, InputStream)
+	 */
+	public CompletableFuture<Void> writeResource(final String resourcePath, final InputStream resourceInputStream) {
+		return submit(() -> {
+			resourceManager.writeResource(resourcePath, resourceInputStream);
+			return null;
+		});
+	}
+
+	/**
+	 * @see ResourceManager#writeResource(String, File)
+	 */
+	public CompletableFuture<Void> writeResource(final String resourcePath, final File file) {
+		return submit(() -> {
+			resourceManager.writeResource(resourcePath, file);
+			return null;
+		});
+	}
+
+	/**
+	 * @see ResourceManager#doesObjectExist(String)
+	 */
+	public CompletableFuture<Boolean> doesObjectExist(final String resourcePath) {
+		return submit(() -> resourceManager.doesObjectExist(resourcePath));
+	}
+
+	/**
+	 * @see ResourceManager#moveResource(String, String)
+	 */
+	public CompletableFuture<Void> moveResource(final String fromResourcePath, final String toResourcePath) {
+		return submit(() -> {
+			resourceManager.moveResource(fromResourcePath, toResourcePath);
+			return null;
+		});
+	}
+
+	/**
+	 * @see ResourceManager#copyResource(String, String)
+	 */
+	public CompletableFuture<Void> copyResource(final String fromResourcePath, final String toResourcePath) {
+		return submit(() -> {
+			resourceManager.copyResource(fromResourcePath, toResourcePath);
+			return null;
+		});
+	}
+
+	/**
+	 * @see ResourceManager#deleteResource(String)
+	 */
+	public CompletableFuture<Void> deleteResource(final String resourcePath) {
+		return submit(() -> {
+			resourceManager.deleteResource(resourcePath);
+			return null;
+		});
+	}
+
+	public ResourceManager getResourceManager() {
+		return resourceManager;
+	}
+
+	/**
+	 * Shuts down the executor if it was created by this facade. Operations already running are completed, those still
+	 * waiting for their bucket are failed with a {@code RejectedExecutionException}.
+	 */
+	@Override
+	public void close() {
+		if (ownsExecutor) {
+			executor.shutdown();
+		}
+	}
+
+	private <T> CompletableFuture<T> submit(final ResourceOperation<T> operation) {
+		final QueuedOperation<T> queued = new QueuedOperation<>(operation);
+		final String bucketName = resourceManager.getBucketName();
+		final BucketQueue queue = bucketQueues.computeIfAbsent(bucketName != null ? bucketName : LOCAL_STORAGE, key -> new BucketQueue());
+		queue.submit(queued);
+		return queued.future;
+	}
+
+	private static final class QueuedOperation<T> implements Runnable {
+		private final ResourceOperation<T> operation;
+		private final CompletableFuture<T> future = new CompletableFuture<>();
+
+		private QueuedOperation(ResourceOperation<T> operation) {
+			this.operation = operation;
+		}
+
+		@Override
+		public void run() {
+			if (future.isDone()) {
+				// Cancelled while waiting
+				return;
+			}
+			try {
+				future.complete(operation.run());
+			} catch (Throwable e) {
+				future.completeExceptionally(e);
+			}
+		}
+
+		private void fail(Throwable throwable) {
+			future.completeExceptionally(throwable);
+		}
+	}
+
+	/**
+	 * Operations waiting for one bucket, started on the executor as running ones finish.
+	 */
+	private final class BucketQueue {
+		private final Queue<QueuedOperation<?>> waiting = new ConcurrentLinkedQueue<>();
+		private final AtomicInteger running = new AtomicInteger();
+
+		private void submit(QueuedOperation<?> operation) {
+			waiting.add(operation);
+			startWaiting();
+		}
+
+		private void startWaiting() {
+			while (!waiting.isEmpty()) {
+				final int current = running.get();
+				if (current >= maxConcurrencyPerBucket) {
+					// Started by a running operation when it finishes
+					return;
+				}
+				if (!running.compareAndSet(current, current + 1)) {
+					continue;
+				}
+				final QueuedOperation<?> next = waiting.poll();
+				if (next == null) {
+					running.decrementAndGet();
+					continue;
+				}
+				try {
+					executor.execute(() -> {
+						try {
+							next.run();
+						} finally {
+							running.decrementAndGet();
+							startWaiting();
+						}
+					});
+				} catch (RejectedExecutionException e) {
+					// The executor has been shut down, so nothing waiting can be started any more
+					running.decrementAndGet();
+					next.fail(e);
+					QueuedOperation<?> remaining;
+					while ((remaining = waiting.poll()) != null) {
+						remaining.fail(e);
+					}
+					return;
+				}
+			}
+		}
+	}
+}
@@ -0,0 +1,51 @@
+package org.ihtsdo.otf.resourcemanager;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Outcome of a bulk operation on many resources. The operation carries on past a failed resource,
+ * so some resources may have succeeded while others failed.
+ */
+public class BulkResourceResult {
+
+	private final List<String> succeeded = new ArrayList<>();
+	private final Map<String, String> failed = new LinkedHashMap<>();
+
+	synchronized void addSucceeded(final String resourcePath) {
+		succeeded.add(resourcePath);
+	}
+
+	synchronized void addFailed(final String resourcePath, final String reason) {
+		failed.put(resourcePath, reason);
+	}
+
+	/**
+	 * @return paths of the resources the operation succeeded for. For copies and moves, these are the source paths.
+	 */
+	public synchronized List<String> getSucceeded() {
+		return new ArrayList<>(succeeded);
+	}
+
+	/**
+	 * @return reason for failure by path of each resource the operation failed for.
+	 * For copies and moves, these are the source paths.
+	 */
+	public synchronized Map<String, String> getFailed() {
+		return new LinkedHashMap<>(failed);
+	}
+
+	public synchronized boolean isSuccessful() {
+		return failed.isEmpty();
+	}
+
+	@Override
+	public synchronized String toString() {
+		return "BulkResourceResult{" +
+				"succeeded=" + succeeded.size() +
+				", failed=" + failed +
+				'}';
+	}
+}
@@ -0,0 +1,310 @@
+package org.ihtsdo.otf.resourcemanager;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import software.amazon.awssdk.core.ResponseInputStream;
+import software.amazon.awssdk.core.sync.RequestBody;
+import software.amazon.awssdk.services.s3.S3Client;
+import software.amazon.awssdk.services.s3.model.*;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Moves large objects to and from S3 a part at a time, several parts at once: uploads as a multipart upload and
+ * downloads as byte range GETs. Objects smaller than the threshold take a single request.
+ *
+ * @see ResourceConfiguration.Transfer
+ */
+class ParallelS3Transfer {
+	private static final Logger LOGGER = LoggerFactory.getLogger(ParallelS3Transfer.class);
+	private static final AtomicInteger POOL_NUMBER = new AtomicInteger();
+	// A part is held in memory, in a byte array
+	private static final long MAX_PART_SIZE_BYTES = 2047L * 1024 * 1024;
+
+	private final S3Client s3Client;
+	private final long thresholdBytes;
+	private final int partSizeBytes;
+	private final int parallelism;
+	private final ExecutorService executor;
+
+	ParallelS3Transfer(final S3Client s3Client, final long thresholdBytes, final long partSizeBytes, final int parallelism) {
+		if (partSizeBytes < 5 * 1024 * 1024) {
+			// Below the S3 minimum for all but the last part of a multipart upload
+			throw new IllegalArgumentException("Transfer part size must be at least 5MB.");
+		}
+		if (partSizeBytes > MAX_PART_SIZE_BYTES) {
+			throw new IllegalArgumentException("Transfer part size must be at most 2047MB.");
+		}
+		if (parallelism < 1) {
+			throw new IllegalArgumentException("Transfer parallelism must be at least 1.");
+		}
+		this.s3Client = s3Client;
+		this.thresholdBytes = thresholdBytes;
+		this.partSizeBytes = (int) partSizeBytes;
+		this.parallelism = parallelism;
+		final String threadPrefix = "resource-transfer-" + POOL_NUMBER.incrementAndGet() + "-";
+		final AtomicInteger threadNumber = new AtomicInteger();
+		this.executor = Executors.newFixedThreadPool(parallelism, runnable -> {
+			Thread thread = new Thread(runnable, threadPrefix + threadNumber.incrementAndGet());
+			thread.setDaemon(true);
+			return thread;
+		});
+	}
+
+	/**
+	 * Stops the transfer threads. Transfers in progress are interrupted, and no new transfer can be started.
+	 */
+	void shutdown() {
+		executor.shutdownNow();
+	}
+
+	/**
+	 * Opens the object. The first part is read before returning; the rest of an object over the threshold is read
+	 * ahead in parallel, holding at most one part per thread in memory.
+	 *
+	 * @throws FileNotFoundException If the object does not exist.
+	 */
+	InputStream download(final String bucketName, final String key) throws IOException {
+		final byte[] firstPart;
+		final GetObjectResponse response;
+		try (ResponseInputStream<GetObjectResponse> inputStream = s3Client.getObject(getRange(bucketName, key, null, 0, partSizeBytes))) {
+			firstPart = inputStream.readAllBytes();
+			response = inputStream.response();
+		} catch (NoSuchKeyException e) {
+			throw new FileNotFoundException("s3://" + bucketName + "/" + key);
+		} catch (S3Exception e) {
+			if (e.statusCode() == 416) {
+				// Range not satisfiable, the object is empty
+				return new ByteArrayInputStream(new byte[0]);
+			}
+			throw e;
+		}
+
+		final long totalBytes = getTotalBytes(response, firstPart.length);
+		if (totalBytes <= firstPart.length) {
+			return new ByteArrayInputStream(firstPart);
+		}
+		// Later ranges must come from the same version of the object
+		final String eTag = response.eTag();
+		if (totalBytes < thresholdBytes) {
+			return new SequenceInputStream(new ByteArrayInputStream(firstPart),
+					s3Client.getObject(getRange(bucketName, key, eTag, firstPart.length, totalBytes - firstPart.length)));
+		}
+		LOGGER.debug("Downloading {} bytes of s3://{}/{} in parts of {}", totalBytes, bucketName, key, partSizeBytes);
+		return new PartInputStream(bucketName, key, eTag, totalBytes, firstPart);
+	}
+
+	/**
+	 * Uploads the file, as a multipart upload when it is over the threshold. A failed multipart upload is aborted.
+	 */
+	void upload(final String bucketName, final String key, final Path file) throws IOException {
+		final long size = file.toFile().length();
+		if (size < thresholdBytes) {
+			s3Client.putObject(PutObjectRequest.builder().bucket(bucketName).key(key).build(), RequestBody.fromFile(file));
+			return;
+		}
+
+		final String uploadId = s3Client.createMultipartUpload(CreateMultipartUploadRequest.builder().bucket(bucketName).key(key).build()).uploadId();
+		final int partCount = (int) ((size + partSizeBytes - 1) / partSizeBytes);
+		LOGGER.debug("Uploading {} bytes to s3://{}/{} in {} parts", size, bucketName, key, partCount);
+		final List<Future<CompletedPart>> futures = new ArrayList<>(partCount);
+		try {
+			for (int i = 0; i < partCount; i++) {
+				final int partNumber = i + 1;
+				final long offset = (long) i * partSizeBytes;
+				final int length = (int) Math.min(partSizeBytes, size - offset);
+				futures.add(executor.submit(() -> uploadPart(bucketName, key, uploadId, partNumber, file, offset, length)));
+			}
+			final List<CompletedPart> parts = new ArrayList<>(partCount);
+			for (Future<CompletedPart> future : futures) {
+				parts.add(await(future));
+			}
+			s3Client.completeMultipartUpload(CompleteMultipartUploadRequest.builder()
+					.bucket(bucketName)
+					.key(key)
+					.uploadId(uploadId)
+					.multipartUpload(CompletedMultipartUpload.builder().parts(parts).build())
+					.build());
+		} catch (IOException | RuntimeException e) {
+			futures.forEach(future -> future.cancel(true));
+			abort(bucketName, key, uploadId);
+			throw e;
+		}
+	}
+
+	private CompletedPart uploadPart(String bucketName, String key, String uploadId, int partNumber, Path file, long offset, int length) throws IOException {
+		final ByteBuffer buffer = ByteBuffer.allocate(length);
+		try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+			while (buffer.hasRemaining()) {
+				if (channel.read(buffer, offset + buffer.position()) == -1) {
+					throw new EOFException("File " + file + " changed during upload.");
+				}
+			}
+		}
+		buffer.flip();
+		final UploadPartResponse response = s3Client.uploadPart(UploadPartRequest.builder()
+				.bucket(bucketName)
+				.key(key)
+				.uploadId(uploadId)
+				.partNumber(partNumber)
+				.contentLength((long) length)
+				.build(), RequestBody.fromByteBuffer(buffer));
+		return CompletedPart.builder().partNumber(partNumber).eTag(response.eTag()).build();
+	}
+
+	private void abort(String bucketName, String key, String uploadId) {
+		try {
+			s3Client.abortMultipartUpload(AbortMultipartUploadRequest.builder().bucket(bucketName).key(key).uploadId(uploadId).build());
+		} catch (S3Exception e) {
+			LOGGER.error("Failed to abort multipart upload {} of s3://{}/{}", uploadId, bucketName, key, e);
+		}
+	}
+
+	private byte[] downloadPart(String bucketName, String key, String eTag, long offset, long length) throws IOException {
+		try (ResponseInputStream<GetObjectResponse> inputStream = s3Client.getObject(getRange(bucketName, key, eTag, offset, length))) {
+			final byte[] part = inputStream.readAllBytes();
+			if (part.length != length) {
+				throw new EOFException("Expected " + length + " bytes at offset " + offset + " of s3://" + bucketName + "/" + key + " but got " + part.length + ".");
+			}
+			return part;
+		}
+	}
+
+	private static GetObjectRequest getRange(String bucketName, String key, String eTag, long offset, long length) {
+		return GetObjectRequest.builder()
+				.bucket(bucketName)
+				.key(key)
+				.ifMatch(eTag)
+				.range("bytes=" + offset + "-" + (offset + length - 1))
+				.build();
+	}
+
+	/**
+	 * @return the object size, from a content range such as <code>bytes 0-8388607/52428800</code>.
+	 */
+	private static long getTotalBytes(GetObjectResponse response, long partBytes) {
+		final String contentRange = response.contentRange();
+		if (contentRange != null) {
+			final int slash = contentRange.lastIndexOf('/');
+			if (slash != -1 && !contentRange.endsWith("*")) {
+				return Long.parseLong(contentRange.substring(slash + 1).trim());
+			}
+		}
+		return partBytes;
+	}
+
+	private static <T> T await(Future<T> future) throws IOException {
+		try {
+			return future.get();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new InterruptedIOException("Interrupted waiting for transfer.");
+		} catch (ExecutionException e) {
+			final Throwable cause = e.getCause();
+			if (cause instanceof IOException ioException) {
+				throw ioException;
+			} else if (cause instanceof RuntimeException runtimeException) {
+				throw runtimeException;
+			}
+			throw new IOException(cause);
+		}
+	}
+
+	/**
+	 * Reads the object part by part in order, keeping up to one part per thread downloading ahead of the reader.
+	 */
+	private class PartInputStream extends InputStream {
+		private final String bucketName;
+		private final String key;
+		private final String eTag;
+		private final long totalBytes;
+		private final ArrayDeque<Future<byte[]>> pending = new ArrayDeque<>();
+		private long nextOffset;
+		private final byte[] single = new byte[1];
+		private byte[] current;
+		private int position;
+		private boolean closed;
+
+		private PartInputStream(String bucketName, String key, String eTag, long totalBytes, byte[] firstPart) {
+			this.bucketName = bucketName;
+			this.key = key;
+			this.eTag = eTag;
+			this.totalBytes = totalBytes;
+			this.current = firstPart;
+			this.nextOffset = firstPart.length;
+			fillWindow();
+		}
+
+		private void fillWindow() {
+			while (pending.size() < parallelism && nextOffset < totalBytes) {
+				final long offset = nextOffset;
+				final long length = Math.min(partSizeBytes, totalBytes - offset);
+				pending.add(executor.submit(() -> downloadPart(bucketName, key, eTag, offset, length)));
+				nextOffset += length;
+			}
+		}
+
+		private boolean nextPart() throws IOException {
+			final Future<byte[]> next = pending.poll();
+			if (next == null) {
+				return false;
+			}
+			try {
+				current = await(next);
+			} catch (IOException | RuntimeException e) {
+				close();
+				throw e;
+			}
+			position = 0;
+			fillWindow();
+			return true;
+		}
+
+		@Override
+		public int read() throws IOException {
+			return read(single, 0, 1) == -1 ? -1 : single[0] & 0xFF;
+		}
+
+		@Override
+		public int read(byte[] b, int off, int len) throws IOException {
+			if (closed) {
+				throw new IOException("Stream closed.");
+			}
+			if (len == 0) {
+				return 0;
+			}
+			while (position == current.length) {
+				if (!nextPart()) {
+					return -1;
+				}
+			}
+			final int read = Math.min(len, current.length - position);
+			System.arraycopy(current, position, b, off, read);
+			position += read;
+			return read;
+		}
+
+		@Override
+		public int available() {
+			return closed ? 0 : current.length - position;
+		}
+
+		@Override
+		public void close() {
+			if (!closed) {
+				closed = true;
+				pending.forEach(future -> future.cancel(true));
+				pending.clear();
+			}
+		}
+	}
+}
@@ -12,6 +12,13 @@ import java.util.Objects;
  * - tasks.storage.local.path
  * - tasks.storage.cloud.bucketName
  * - tasks.storage.cloud.path
+ * - tasks.storage.diskCache.path (optional, caches objects read from the cloud on local disk)
+ * - tasks.storage.diskCache.maxSizeMegabytes
+ * - tasks.storage.transfer.thresholdMegabytes (optional, objects this large are transferred in parallel parts)
+ * - tasks.storage.transfer.partSizeMegabytes
+ * - tasks.storage.transfer.parallelism
+ * - tasks.storage.listingCacheSeconds (optional, how long cloud listings are reused)
+ * - tasks.storage.bulkCopyParallelism (optional, copies run at once by bulk copies and moves)
  *
  * TasksResourceConfiguration would be autowired into your spring configuration and then passed to the constructor of ResourceManager.
  */
@@ -19,9 +26,13 @@ public abstract class ResourceConfiguration {
 
 	private boolean readonly;
 	private boolean useCloud;
+	private long listingCacheSeconds;
+	private int bulkCopyParallelism = 8;
 
 	private Local local;
 	private Cloud cloud;
+	private DiskCache diskCache;
+	private Transfer transfer;
 
 	public boolean isReadonly() {
 		return readonly;
@@ -39,6 +50,32 @@ public abstract class ResourceConfiguration {
 		this.useCloud = useCloud;
 	}
 
+	public long getListingCacheSeconds() {
+		return listingCacheSeconds;
+	}
+
+	/**
+	 * @param listingCacheSeconds How long a listing of cloud resources is reused for listings and existence checks
+	 *                            under the same prefix. Listings are not cached when 0, the default. Writes, moves and
+	 *                            deletes made through the same resource manager drop the listings they affect.
+	 *                            An existence check is answered from a cached listing covering it, but does not cache
+	 *                            a listing of its own. The 100 most recently used listings are kept.
+	 */
+	public void setListingCacheSeconds(long listingCacheSeconds) {
+		this.listingCacheSeconds = listingCacheSeconds;
+	}
+
+	public int getBulkCopyParallelism() {
+		return bulkCopyParallelism;
+	}
+
+	/**
+	 * @param bulkCopyParallelism Number of cloud objects copied at once by a bulk copy or move. 8 by default.
+	 */
+	public void setBulkCopyParallelism(int bulkCopyParallelism) {
+		this.bulkCopyParallelism = bulkCopyParallelism;
+	}
+
 	public Local getLocal() {
 		return local;
 	}
@@ -55,6 +92,22 @@ public abstract class ResourceConfiguration {
 		this.cloud = cloud;
 	}
 
+	public DiskCache getDiskCache() {
+		return diskCache;
+	}
+
+	public void setDiskCache(DiskCache diskCache) {
+		this.diskCache = diskCache;
+	}
+
+	public Transfer getTransfer() {
+		return transfer;
+	}
+
+	public void setTransfer(Transfer transfer) {
+		this.transfer = transfer;
+	}
+
 	public String getBucketName() {
 		if (cloud != null) {
 			return cloud.getBucketName();
@@ -80,8 +133,12 @@ public abstract class ResourceConfiguration {
 		return "ResourceConfiguration{" +
 				"readonly=" + readonly +
 				", useCloud=" + useCloud +
+				", listingCacheSeconds=" + listingCacheSeconds +
+				", bulkCopyParallelism=" + bulkCopyParallelism +
 				", local=" + local +
 				", cloud=" + cloud +
+				", diskCache=" + diskCache +
+				", transfer=" + transfer +
 				'}';
 	}
 
@@ -151,6 +208,123 @@ public abstract class ResourceConfiguration {
 		}
 	}
 
+	/**
+	 * Read-through cache, on local disk, of the objects read from the cloud.
+	 * The cache is used when both a path and a maximum size are set. With parallel transfer also enabled, objects are
+	 * downloaded into the cache, and those too large for it read, in parallel parts.
+	 *
+	 * @see ResourceDiskCache
+	 */
+	public static class DiskCache {
+
+		private String path;
+		private long maxSizeMegabytes;
+
+		public DiskCache() {
+		}
+
+		public DiskCache(final String path,
+						 final long maxSizeMegabytes) {
+			this.path = path;
+			this.maxSizeMegabytes = maxSizeMegabytes;
+		}
+
+		public String getPath() {
+			return path;
+		}
+
+		public void setPath(String path) {
+			this.path = path;
+		}
+
+		public long getMaxSizeMegabytes() {
+			return maxSizeMegabytes;
+		}
+
+		public void setMaxSizeMegabytes(long maxSizeMegabytes) {
+			this.maxSizeMegabytes = maxSizeMegabytes;
+		}
+
+		public boolean isEnabled() {
+			return path != null && !path.isBlank() && maxSizeMegabytes > 0;
+		}
+
+		@Override
+		public String toString() {
+			return "DiskCache{" +
+					"path='" + path + '\'' +
+					", maxSizeMegabytes=" + maxSizeMegabytes +
+					'}';
+		}
+	}
+
+	/**
+	 * Parallel transfer of large objects to and from the cloud: objects of at least the threshold size are uploaded
+	 * as a multipart upload and downloaded as byte ranges, a number of parts at a time.
+	 * Parallel transfer is used when a threshold is set.
+	 */
+	public static class Transfer {
+
+		private long thresholdMegabytes;
+		private int partSizeMegabytes = 16;
+		private int parallelism = 4;
+
+		public Transfer() {
+		}
+
+		public Transfer(final long thresholdMegabytes,
+						final int partSizeMegabytes,
+						final int parallelism) {
+			this.thresholdMegabytes = thresholdMegabytes;
+			this.partSizeMegabytes = partSizeMegabytes;
+			this.parallelism = parallelism;
+		}
+
+		public long getThresholdMegabytes() {
+			return thresholdMegabytes;
+		}
+
+		public void setThresholdMegabytes(long thresholdMegabytes) {
+			this.thresholdMegabytes = thresholdMegabytes;
+		}
+
+		public int getPartSizeMegabytes() {
+			return partSizeMegabytes;
+		}
+
+		/**
+		 * @param partSizeMegabytes Size of each part, from 5, the S3 minimum, to 2047, as each part is held in memory.
+		 *                          16 by default.
+		 */
+		public void setPartSizeMegabytes(int partSizeMegabytes) {
+			this.partSizeMegabytes = partSizeMegabytes;
+		}
+
+		public int getParallelism() {
+			return parallelism;
+		}
+
+		/**
+		 * @param parallelism Number of parts transferred at once, across all transfers of a resource manager. 4 by default.
+		 */
+		public void setParallelism(int parallelism) {
+			this.parallelism = parallelism;
+		}
+
+		public boolean isEnabled() {
+			return thresholdMegabytes > 0;
+		}
+
+		@Override
+		public String toString() {
+			return "Transfer{" +
+					"thresholdMegabytes=" + thresholdMegabytes +
+					", partSizeMegabytes=" + partSizeMegabytes +
+					", parallelism=" + parallelism +
+					'}';
+		}
+	}
+
 	static String normalisePath(String path) {
 		if (path == null || path.isEmpty()) {
 			return "";
@@ -171,12 +345,16 @@ public abstract class ResourceConfiguration {
 		ResourceConfiguration that = (ResourceConfiguration) o;
 		return readonly == that.readonly &&
 				useCloud == that.useCloud &&
+				listingCacheSeconds == that.listingCacheSeconds &&
+				bulkCopyParallelism == that.bulkCopyParallelism &&
 				Objects.equals(local, that.local) &&
-				Objects.equals(cloud, that.cloud);
+				Objects.equals(cloud, that.cloud) &&
+				Objects.equals(diskCache, that.diskCache) &&
+				Objects.equals(transfer, that.transfer);
 	}
 
 	@Override
 	public int hashCode() {
-		return Objects.hash(readonly, useCloud, local, cloud);
+		return Objects.hash(readonly, useCloud, listingCacheSeconds, bulkCopyParallelism, local, cloud, diskCache, transfer);
 	}
 }
@@ -0,0 +1,371 @@
+package org.ihtsdo.otf.resourcemanager;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import software.amazon.awssdk.core.ResponseInputStream;
+import software.amazon.awssdk.services.s3.S3Client;
+import software.amazon.awssdk.services.s3.model.*;
+
+import java.io.Closeable;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.Instant;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Read-through cache of S3 objects on local disk, holding up to a maximum number of bytes and evicting the least
+ * recently read objects first. Every read checks the object with a HEAD request: an object whose ETag, or last modified
+ * date and size when it has no ETag, still matches the cached copy is opened from disk, otherwise it is downloaded again.
+ * <p>
+ * A new version of an object is written to a new file, so a reader keeps the version it opened. Each cache keeps its
+ * files in a directory of its own, created under the configured one, so that caches configured with the same path
+ * do not share or delete each other's files. Cached objects are not reused after a restart; the directory is deleted
+ * when the cache is closed.
+ * <p>
+ * When given a {@link ParallelS3Transfer}, objects are downloaded through it, both into the cache and when read
+ * straight from S3 for being larger than the cache.
+ *
+ * @see ResourceConfiguration.DiskCache
+ */
+public class ResourceDiskCache implements Closeable {
+	private static final Logger LOGGER = LoggerFactory.getLogger(ResourceDiskCache.class);
+	private static final String FILE_SUFFIX = ".cached";
+	private static final String DOWNLOAD_SUFFIX = ".download";
+	private static final String DIRECTORY_PREFIX = "resource-cache-";
+
+	private final S3Client s3Client;
+	// May be null, downloads then take a single request
+	private final ParallelS3Transfer transfer;
+	private final Path directory;
+	private final long maxSizeBytes;
+
+	// Access ordered, least recently read first. Guarded by itself, as is sizeBytes.
+	private final LinkedHashMap<String, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+	private long sizeBytes;
+
+	// Downloads in progress by cache key, completed once the object is cached or the download failed
+	private final ConcurrentHashMap<String, CompletableFuture<Void>> downloads = new ConcurrentHashMap<>();
+	private final AtomicLong fileSequence = new AtomicLong();
+	private final AtomicLong hits = new AtomicLong();
+	private final AtomicLong misses = new AtomicLong();
+	private final AtomicLong evictions = new AtomicLong();
+
+	/**
+	 * @param s3Client     Client used to check and download objects.
+	 * @param directory    Where cached objects are kept, created if missing. The cache creates a directory of its own in it.
+	 * @param maxSizeBytes Maximum total size of the cached objects. Larger objects are read straight from S3.
+	 * @throws IOException If the directory can not be created.
+	 */
+	public ResourceDiskCache(final S3Client s3Client, final Path directory, final long maxSizeBytes) throws IOException {
+		this(s3Client, directory, maxSizeBytes, null);
+	}
+
+	/**
+	 * @param transfer Downloads objects in parallel parts, or {@code null} to download each in a single request.
+	 */
+	ResourceDiskCache(final S3Client s3Client, final Path directory, final long maxSizeBytes, final ParallelS3Transfer transfer) throws IOException {
+		if (maxSizeBytes <= 0) {
+			throw new IllegalArgumentException("Maximum cache size must be greater than 0.");
+		}
+		this.s3Client = Objects.requireNonNull(s3Client);
+		this.transfer = transfer;
+		this.directory = Files.createTempDirectory(Files.createDirectories(directory), DIRECTORY_PREFIX);
+		this.maxSizeBytes = maxSizeBytes;
+		// Only succeeds if the cache was closed or emptied, files still cached are left to the tmp cleaner
+		this.directory.toFile().deleteOnExit();
+	}
+
+	/**
+	 * Opens the current version of the object, from disk when it is already cached.
+	 *
+	 * @param bucketName Bucket holding the object.
+	 * @param key        Key of the object.
+	 * @return stream of the object content, to be closed by the caller.
+	 * @throws FileNotFoundException If the object does not exist.
+	 * @throws IOException           If the object can not be downloaded or cached.
+	 */
+	public InputStream open(final String bucketName, final String key) throws IOException {
+		final String cacheKey = bucketName + "/" + key;
+		final Version current;
+		try {
+			current = Version.of(s3Client.headObject(HeadObjectRequest.builder().bucket(bucketName).key(key).build()));
+		} catch (S3Exception e) {
+			if (e.statusCode() == 404) {
+				invalidate(bucketName, key);
+				throw new FileNotFoundException("s3://" + cacheKey);
+			}
+			throw e;
+		}
+
+		InputStream cached = openIfCurrent(cacheKey, current);
+		if (cached != null) {
+			hits.incrementAndGet();
+			return cached;
+		}
+		if (current.contentLength > maxSizeBytes) {
+			misses.incrementAndGet();
+			if (transfer != null) {
+				return transfer.download(bucketName, key);
+			}
+			return s3Client.getObject(GetObjectRequest.builder().bucket(bucketName).key(key).build());
+		}
+
+		// One download per object, concurrent readers of the same object wait for it
+		while (true) {
+			final CompletableFuture<Void> download = new CompletableFuture<>();
+			final CompletableFuture<Void> inProgress = downloads.putIfAbsent(cacheKey, download);
+			if (inProgress == null) {
+				try {
+					cached = openIfCurrent(cacheKey, current);
+					if (cached != null) {
+						hits.incrementAndGet();
+						return cached;
+					}
+					misses.incrementAndGet();
+					return download(bucketName, key, cacheKey, current);
+				} finally {
+					downloads.remove(cacheKey, download);
+					download.complete(null);
+				}
+			}
+			try {
+				inProgress.get();
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				throw new InterruptedIOException("Interrupted waiting for s3://" + cacheKey + " to be cached.");
+			} catch (ExecutionException e) {
+				// Never completed exceptionally
+				throw new IllegalStateException(e);
+			}
+		}
+	}
+
+	/**
+	 * Drops the cached copy of the object, if any. Reads check that the cached copy is current anyway; this saves
+	 * the space of a copy known to be out of date.
+	 */
+	public void invalidate(final String bucketName, final String key) {
+		final Entry removed;
+		synchronized (entries) {
+			removed = entries.remove(bucketName + "/" + key);
+			if (removed != null) {
+				sizeBytes -= removed.sizeBytes;
+			}
+		}
+		if (removed != null) {
+			delete(removed.file);
+		}
+	}
+
+	public void invalidateAll() {
+		synchronized (entries) {
+			for (Entry entry : entries.values()) {
+				delete(entry.file);
+			}
+			entries.clear();
+			sizeBytes = 0;
+		}
+	}
+
+	/**
+	 * Deletes the cached objects and the directory of this cache. Streams already opened can still be read on
+	 * platforms which allow deleting open files.
+	 */
+	@Override
+	public void close() {
+		invalidateAll();
+		delete(directory);
+	}
+
+	private InputStream openIfCurrent(String cacheKey, Version current) throws IOException {
+		synchronized (entries) {
+			Entry entry = entries.get(cacheKey);
+			if (entry == null) {
+				return null;
+			}
+			if (!entry.version.matches(current)) {
+				entries.remove(cacheKey);
+				sizeBytes -= entry.sizeBytes;
+				delete(entry.file);
+				return null;
+			}
+			// Opened while holding the lock so that the file can not be evicted first
+			try {
+				return Files.newInputStream(entry.file);
+			} catch (NoSuchFileException e) {
+				// Removed from outside the cache, eg by a tmp cleaner
+				LOGGER.debug("Cached copy of {} has gone, downloading it again", cacheKey);
+				entries.remove(cacheKey);
+				sizeBytes -= entry.sizeBytes;
+				return null;
+			}
+		}
+	}
+
+	private InputStream download(String bucketName, String key, String cacheKey, Version current) throws IOException {
+		final String fileName = Long.toHexString(fileSequence.incrementAndGet());
+		final Path downloading = directory.resolve(fileName + DOWNLOAD_SUFFIX);
+		final Path file = directory.resolve(fileName + FILE_SUFFIX);
+		final Version version;
+		try {
+			if (transfer != null) {
+				try (InputStream inputStream = transfer.download(bucketName, key)) {
+					Files.copy(inputStream, downloading, StandardCopyOption.REPLACE_EXISTING);
+				}
+				// The parts all come from one version, which may be newer than the one checked. Cached as the one
+				// checked, a newer version would then be downloaded again by the next read, never served as out of date.
+				version = current;
+			} else {
+				try (ResponseInputStream<GetObjectResponse> inputStream = s3Client.getObject(GetObjectRequest.builder().bucket(bucketName).key(key).build())) {
+					Files.copy(inputStream, downloading, StandardCopyOption.REPLACE_EXISTING);
+					// The version downloaded, which may be newer than the one checked
+					version = Version.of(inputStream.response());
+				}
+			}
+			Files.move(downloading, file, StandardCopyOption.ATOMIC_MOVE);
+		} catch (NoSuchKeyException e) {
+			delete(downloading);
+			throw new FileNotFoundException("s3://" + cacheKey);
+		} catch (IOException | RuntimeException e) {
+			delete(downloading);
+			throw e;
+		}
+
+		final long size = Files.size(file);
+		synchronized (entries) {
+			Entry previous = entries.put(cacheKey, new Entry(file, version, size));
+			if (previous != null) {
+				sizeBytes -= previous.sizeBytes;
+				delete(previous.file);
+			}
+			sizeBytes += size;
+			evict(cacheKey);
+			return Files.newInputStream(file);
+		}
+	}
+
+	// Called holding the entries lock
+	private void evict(String keep) {
+		Iterator<Map.Entry<String, Entry>> leastRecentlyRead = entries.entrySet().iterator();
+		while (sizeBytes > maxSizeBytes && leastRecentlyRead.hasNext()) {
+			Map.Entry<String, Entry> next = leastRecentlyRead.next();
+			if (next.getKey().equals(keep)) {
+				continue;
+			}
+			leastRecentlyRead.remove();
+			sizeBytes -= next.getValue().sizeBytes;
+			delete(next.getValue().file);
+			evictions.incrementAndGet();
+			LOGGER.debug("Evicted {} from the resource cache", next.getKey());
+		}
+	}
+
+	private static void delete(Path file) {
+		try {
+			Files.deleteIfExists(file);
+		} catch (IOException e) {
+			// A file still open for reading can not be deleted on some platforms
+			LOGGER.debug("Failed to delete {}, will try again on exit", file, e);
+			file.toFile().deleteOnExit();
+		}
+	}
+
+	/**
+	 * @return the directory of this cache, under the configured one.
+	 */
+	public Path getDirectory() {
+		return directory;
+	}
+
+	public long getSizeBytes() {
+		synchronized (entries) {
+			return sizeBytes;
+		}
+	}
+
+	public long getMaxSizeBytes() {
+		return maxSizeBytes;
+	}
+
+	public int getEntryCount() {
+		synchronized (entries) {
+			return entries.size();
+		}
+	}
+
+	public long getHitCount() {
+		return hits.get();
+	}
+
+	public long getMissCount() {
+		return misses.get();
+	}
+
+	public long getEvictionCount() {
+		return evictions.get();
+	}
+
+	@Override
+	public String toString() {
+		return "ResourceDiskCache{" +
+				"directory=" + directory +
+				", sizeBytes=" + getSizeBytes() +
+				", maxSizeBytes=" + maxSizeBytes +
+				", hits=" + getHitCount() +
+				", misses=" + getMissCount() +
+				", evictions=" + getEvictionCount() +
+				'}';
+	}
+
+	private static final class Entry {
+		private final Path file;
+		private final Version version;
+		private final long sizeBytes;
+
+		private Entry(Path file, Version version, long sizeBytes) {
+			this.file = file;
+			this.version = version;
+			this.sizeBytes = sizeBytes;
+		}
+	}
+
+	private static final class Version {
+		private final String eTag;
+		private final Instant lastModified;
+		private final long contentLength;
+
+		private Version(String eTag, Instant lastModified, Long contentLength) {
+			this.eTag = eTag;
+			this.lastModified = lastModified;
+			this.contentLength = contentLength != null ? contentLength : -1;
+		}
+
+		private static Version of(HeadObjectResponse response) {
+			return new Version(response.eTag(), response.lastModified(), response.contentLength());
+		}
+
+		private static Version of(GetObjectResponse response) {
+			return new Version(response.eTag(), response.lastModified(), response.contentLength());
+		}
+
+		private boolean matches(Version other) {
+			if (eTag != null && other.eTag != null) {
+				return eTag.equals(other.eTag);
+			}
+			return lastModified != null && lastModified.equals(other.lastModified) && contentLength == other.contentLength;
+		}
+	}
+}
@@ -1,5 +1,7 @@
 package org.ihtsdo.otf.resourcemanager;
 
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
 import org.apache.commons.io.IOCase;
 import org.apache.commons.io.filefilter.PrefixFileFilter;
 import org.ihtsdo.otf.resourcemanager.ResourceConfiguration.Cloud;
@@ -11,6 +13,7 @@ import org.springframework.core.io.support.PathMatchingResourcePatternResolver;
 import org.springframework.util.ClassUtils;
 import org.springframework.util.ResourceUtils;
 import org.springframework.util.StreamUtils;
+import software.amazon.awssdk.core.exception.SdkException;
 import software.amazon.awssdk.core.sync.RequestBody;
 import software.amazon.awssdk.regions.providers.DefaultAwsRegionProviderChain;
 import software.amazon.awssdk.services.s3.S3Client;
@@ -18,21 +21,36 @@ import software.amazon.awssdk.services.s3.model.*;
 
 import java.io.*;
 import java.nio.file.Files;
+import java.nio.file.Paths;
 import java.nio.file.StandardCopyOption;
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 /**
  * Service to read, write, delete and move file resources from S3 or local
  * disk. Use spring-cloud-aws-autoconfigure dependency to autowire an S3 capable
  * ResourceLoader into your configuration.
  */
-public class ResourceManager {
+public class ResourceManager implements AutoCloseable {
 	private static final Logger LOGGER = LoggerFactory.getLogger(ResourceManager.class);
+	// The most keys S3 returns in one listing request
+	private static final int LIST_PAGE_SIZE = 1000;
+	// Most keys S3 accepts in one multi-object delete request
+	private static final int DELETE_BATCH_SIZE = 1000;
+	// Most listings cached at once, least recently used are dropped first
+	private static final int MAX_CACHED_LISTINGS = 100;
 	private final ResourceConfiguration resourceConfiguration;
 	private final ResourceLoader resourceLoader;
 
 	private S3Client s3Client;
+	private ResourceDiskCache diskCache;
+	private ParallelS3Transfer transfer;
+	private final Cache<String, CachedListing> listingCache = CacheBuilder.newBuilder().maximumSize(MAX_CACHED_LISTINGS).build();
 
 	/**
 	 * Creates the {@link ResourceManager} with the corresponding <code>resourceConfiguration</code>
@@ -52,6 +70,9 @@ public class ResourceManager {
 			s3Client = S3Client.builder()
 					.region(DefaultAwsRegionProviderChain.builder().build().getRegion())
 					.build();
+			// The cache downloads through the transfer, so it is created first
+			this.transfer = createTransfer();
+			this.diskCache = createDiskCache();
 
 		} else {
 			this.resourceLoader = new FileSystemResourceLoader();
@@ -64,11 +85,56 @@ public class ResourceManager {
 		if (resourceConfiguration.isUseCloud()) {
 			this.resourceLoader = checkS3Connection(Objects.requireNonNull(cloudResourceLoader));
 			this.s3Client = s3Client;
+			this.transfer = createTransfer();
+			this.diskCache = createDiskCache();
 		} else {
 			this.resourceLoader = new FileSystemResourceLoader();
 		}
 	}
 
+	private ResourceDiskCache createDiskCache() {
+		final ResourceConfiguration.DiskCache diskCacheConfiguration = resourceConfiguration.getDiskCache();
+		if (diskCacheConfiguration == null || !diskCacheConfiguration.isEnabled() || s3Client == null) {
+			return null;
+		}
+		try {
+			LOGGER.info("Caching resources read from the cloud in {}, up to {}MB.", diskCacheConfiguration.getPath(), diskCacheConfiguration.getMaxSizeMegabytes());
+			return new ResourceDiskCache(s3Client, Paths.get(diskCacheConfiguration.getPath()), diskCacheConfiguration.getMaxSizeMegabytes() * 1024 * 1024, transfer);
+		} catch (IOException e) {
+			throw new UncheckedIOException("Failed to create resource cache in '" + diskCacheConfiguration.getPath() + "'.", e);
+		}
+	}
+
+	private ParallelS3Transfer createTransfer() {
+		final ResourceConfiguration.Transfer transferConfiguration = resourceConfiguration.getTransfer();
+		if (transferConfiguration == null || !transferConfiguration.isEnabled() || s3Client == null) {
+			return null;
+		}
+		return new ParallelS3Transfer(s3Client, transferConfiguration.getThresholdMegabytes() * 1024 * 1024,
+				(long) transferConfiguration.getPartSizeMegabytes() * 1024 * 1024, transferConfiguration.getParallelism());
+	}
+
+	/**
+	 * Stops the parallel transfer threads and deletes the disk cache, if either is configured. Resources can no longer
+	 * be transferred in parallel or read through the cache afterwards. Called by Spring when the bean is destroyed.
+	 */
+	@Override
+	public void close() {
+		if (transfer != null) {
+			transfer.shutdown();
+		}
+		if (diskCache != null) {
+			diskCache.close();
+		}
+	}
+
+	/**
+	 * @return the disk cache of resources read from the cloud, or {@code null} if not configured.
+	 */
+	public ResourceDiskCache getDiskCache() {
+		return diskCache;
+	}
+
 	/**
 	 * Return concatenated bucketName and path.
 	 *
@@ -88,6 +154,13 @@ public class ResourceManager {
 		return Optional.empty();
 	}
 
+	/**
+	 * @return the bucket name, or {@code null} when using local storage.
+	 */
+	String getBucketName() {
+		return resourceConfiguration.isUseCloud() ? resourceConfiguration.getCloud().getBucketName() : null;
+	}
+
 	/**
 	 * Checks to make sure that a GET request to the S3 bucket/path can be
 	 * performed successfully. If not, it will throw an {@link
@@ -123,6 +196,12 @@ public class ResourceManager {
 	public InputStream readResourceStream(final String resourcePath) throws IOException {
 		final String fullPath = getFullPath(resourcePath);
 		try {
+			if (diskCache != null) {
+				return diskCache.open(resourceConfiguration.getCloud().getBucketName(), getCloudKey(resourcePath));
+			}
+			if (transfer != null) {
+				return transfer.download(resourceConfiguration.getCloud().getBucketName(), getCloudKey(resourcePath));
+			}
 			return resourceLoader.getResource(fullPath).getInputStream();
 		} catch (FileNotFoundException e) {
 			//We'll just allow a file not found exception to bubble up.  Anything else we'll annotate further.
@@ -165,73 +244,165 @@ public class ResourceManager {
 	}
 
 	public Set<String> listFilenamesBySuffix(String suffix) throws IOException {
-		Set<String> filenames = listFilenames(null, false);
-		filenames.removeIf(f -> !f.endsWith(suffix));
-		return filenames;
+		return collectFilenames(null, suffix);
 	}
 
-	private Set<String> listFilenames(String prefix, boolean forceLocal) throws IOException {
-		Set<String> fileNames = new HashSet<>();
-		if (resourceConfiguration.isUseCloud() && !forceLocal) {
-			try {
-				Cloud cloud = resourceConfiguration.getCloud();
-				//In case we're running on a PC we need to convert backslashes to forward
-				String configPath = cloud.getPath().replaceAll("\\\\", "/");
-				final String s3Path = configurePath(configPath);
-				final String prefixPath = prefix == null || prefix.isEmpty() ? s3Path : s3Path + prefix;
-				LOGGER.debug("Listing file names in bucket {} with prefix {}", cloud.getBucketName(), prefixPath);
-				ListObjectsRequest listObjectsRequest = ListObjectsRequest.builder().bucket(cloud.getBucketName()).prefix(prefixPath).maxKeys(10000).build();
-				boolean done = false;
-				while (!done) {
-					ListObjectsResponse listObjectsResponse = s3Client.listObjects(listObjectsRequest);
-					for (S3Object object : listObjectsResponse.contents()) {
-						fileNames.add(object.key().substring(s3Path.length()));
-					}
-					if (Boolean.TRUE.equals(listObjectsResponse.isTruncated())) {
-						String nextMarker = listObjectsResponse.contents().get(listObjectsResponse.contents().size() - 1).key();
-						listObjectsRequest = ListObjectsRequest.builder().bucket(cloud.getBucketName()).prefix(prefixPath).maxKeys(10000).marker(nextMarker).build();
-					} else {
-						done = true;
-					}
-				}
-			} catch (S3Exception e) {
-				throw new IOException("Failed to determine existence of '" + prefix + "'.", e);
-			}
+	/**
+	 * Lists the names of the resources starting with the prefix and ending with the suffix. In the cloud, keys are
+	 * listed a page at a time as the stream is consumed and only those with the suffix are kept, so that a large
+	 * listing is never held in memory, unless the listing cache is on.
+	 *
+	 * @param prefix File prefix, or {@code null} for all files.
+	 * @param suffix File suffix, or {@code null} for any.
+	 * @return stream of the matching filenames. If a later page of keys can not be listed,
+	 * an {@link UncheckedIOException} is thrown while consuming it.
+	 * @throws IOException If an error occurs while trying to list the resources.
+	 * @see ResourceConfiguration#setListingCacheSeconds(long)
+	 */
+	public Stream<String> streamFilenames(final String prefix, final String suffix) throws IOException {
+		final Stream<String> fileNames;
+		if (!resourceConfiguration.isUseCloud()) {
+			fileNames = listFilenames(prefix, false).stream();
+		} else if (resourceConfiguration.getListingCacheSeconds() > 0) {
+			fileNames = getCachedListing(prefix).stream();
 		} else {
-			String localPath = resourceConfiguration.getLocal().getPath();
-			if (localPath.startsWith(ResourceLoader.CLASSPATH_URL_PREFIX)) {
-				ClassLoader classLoader = ClassUtils.getDefaultClassLoader();
-				PathMatchingResourcePatternResolver resolver = new PathMatchingResourcePatternResolver(classLoader);
-				Resource[] resources;
-				if (prefix == null || prefix.isEmpty()) {
-					resources = resolver.getResources(configurePath(localPath) + "*.*");
+			fileNames = streamCloudFilenames(prefix);
+		}
+		return suffix == null ? fileNames : fileNames.filter(fileName -> fileName.endsWith(suffix));
+	}
+
+	private Set<String> collectFilenames(String prefix, String suffix) throws IOException {
+		try (Stream<String> fileNames = streamFilenames(prefix, suffix)) {
+			return fileNames.collect(Collectors.toCollection(HashSet::new));
+		} catch (UncheckedIOException e) {
+			throw e.getCause();
+		}
+	}
+
+	private Stream<String> streamCloudFilenames(final String prefix) {
+		final Cloud cloud = resourceConfiguration.getCloud();
+		//In case we're running on a PC we need to convert backslashes to forward
+		final String s3Path = configurePath(cloud.getPath().replaceAll("\\\\", "/"));
+		final String prefixPath = prefix == null || prefix.isEmpty() ? s3Path : s3Path + prefix;
+		LOGGER.debug("Listing file names in bucket {} with prefix {}", cloud.getBucketName(), prefixPath);
+		final Iterator<List<S3Object>> pages = new Iterator<>() {
+			private String marker;
+			private boolean done;
+
+			@Override
+			public boolean hasNext() {
+				return !done;
+			}
+
+			@Override
+			public List<S3Object> next() {
+				if (done) {
+					throw new NoSuchElementException();
+				}
+				final ListObjectsResponse listObjectsResponse;
+				try {
+					listObjectsResponse = s3Client.listObjects(ListObjectsRequest.builder()
+							.bucket(cloud.getBucketName())
+							.prefix(prefixPath)
+							.maxKeys(LIST_PAGE_SIZE)
+							.marker(marker)
+							.build());
+				} catch (S3Exception e) {
+					throw new UncheckedIOException(new IOException("Failed to list resources with prefix '" + prefix + "'.", e));
+				}
+				final List<S3Object> contents = listObjectsResponse.contents();
+				if (Boolean.TRUE.equals(listObjectsResponse.isTruncated()) && !contents.isEmpty()) {
+					marker = contents.get(contents.size() - 1).key();
 				} else {
-					resources = resolver.getResources(configurePath(localPath) + prefix + "*.*");
+					done = true;
 				}
+				return contents;
+			}
+		};
+		return StreamSupport.stream(Spliterators.spliteratorUnknownSize(pages, Spliterator.ORDERED | Spliterator.NONNULL), false)
+				.flatMap(List::stream)
+				.map(object -> object.key().substring(s3Path.length()));
+	}
+
+	/**
+	 * @return the filenames starting with the prefix, from a cached listing of the prefix or of a shorter prefix
+	 * covering it when there is one, otherwise from a new listing which is then cached.
+	 */
+	private List<String> getCachedListing(final String prefix) throws IOException {
+		final String listingPrefix = prefix == null ? "" : prefix;
+		final List<String> cached = findCachedListing(listingPrefix);
+		if (cached != null) {
+			return cached;
+		}
+		final long now = System.currentTimeMillis();
+		final List<String> fileNames;
+		try (Stream<String> listed = streamCloudFilenames(prefix)) {
+			fileNames = List.copyOf(listed.collect(Collectors.toList()));
+		} catch (UncheckedIOException e) {
+			throw e.getCause();
+		}
+		listingCache.put(listingPrefix, new CachedListing(fileNames, now + resourceConfiguration.getListingCacheSeconds() * 1000));
+		return fileNames;
+	}
 
-				fileNames.addAll(Arrays.stream(resources)
-						.map(Resource::getFilename)
-						.filter(Objects::nonNull)
-						.collect(Collectors.toSet()));
+	/**
+	 * @return the filenames starting with the prefix from a cached listing covering it, or {@code null} if there is none.
+	 */
+	private List<String> findCachedListing(final String prefix) {
+		final long now = System.currentTimeMillis();
+		List<String> covering = null;
+		for (Map.Entry<String, CachedListing> entry : listingCache.asMap().entrySet()) {
+			if (entry.getValue().expiresAt <= now) {
+				listingCache.asMap().remove(entry.getKey(), entry.getValue());
+			} else if (covering == null && prefix.startsWith(entry.getKey())) {
+				covering = entry.getValue().fileNames;
+			}
+		}
+		if (covering == null) {
+			return null;
+		}
+		return covering.stream().filter(fileName -> fileName.startsWith(prefix)).collect(Collectors.toList());
+	}
+
+	private Set<String> listFilenames(String prefix, boolean forceLocal) throws IOException {
+		if (resourceConfiguration.isUseCloud() && !forceLocal) {
+			return collectFilenames(prefix, null);
+		}
+		Set<String> fileNames = new HashSet<>();
+		String localPath = resourceConfiguration.getLocal().getPath();
+		if (localPath.startsWith(ResourceLoader.CLASSPATH_URL_PREFIX)) {
+			ClassLoader classLoader = ClassUtils.getDefaultClassLoader();
+			PathMatchingResourcePatternResolver resolver = new PathMatchingResourcePatternResolver(classLoader);
+			Resource[] resources;
+			if (prefix == null || prefix.isEmpty()) {
+				resources = resolver.getResources(configurePath(localPath) + "*.*");
 			} else {
-				File[] files;
-				if (prefix == null) {
-					files = ResourceUtils.getFile(localPath).listFiles();
-				} else {
-					files = ResourceUtils.getFile(localPath).listFiles((FileFilter) new PrefixFileFilter(prefix, IOCase.INSENSITIVE));
-				}
-				Arrays.stream(files).forEach(file -> fileNames.add(file.getName()));
+				resources = resolver.getResources(configurePath(localPath) + prefix + "*.*");
+			}
+
+			fileNames.addAll(Arrays.stream(resources)
+					.map(Resource::getFilename)
+					.filter(Objects::nonNull)
+					.collect(Collectors.toSet()));
+		} else {
+			File[] files;
+			if (prefix == null) {
+				files = ResourceUtils.getFile(localPath).listFiles();
+			} else {
+				files = ResourceUtils.getFile(localPath).listFiles((FileFilter) new PrefixFileFilter(prefix, IOCase.INSENSITIVE));
 			}
+			Arrays.stream(files).forEach(file -> fileNames.add(file.getName()));
 		}
 
 		return fileNames;
 	}
 
 	public Set<String> doListFilenames(String prefix, String suffix) {
-		Set<String> fileNames = doListFilenames(prefix);
-		fileNames.removeIf(p -> !p.endsWith(suffix));
-
-		return fileNames;
+		try {
+			return collectFilenames(prefix, suffix);
+		} catch (IOException e) {
+			return new HashSet<>();
+		}
 	}
 
 	public Set<String> doListFilenames(String prefix) {
@@ -262,9 +433,22 @@ public class ResourceManager {
 	}
 
 	public boolean doesObjectExist(String resourcePath) {
-		try {
-			return listFilenames().contains(resourcePath);
-		} catch (IOException e) {
+		if (!resourceConfiguration.isUseCloud()) {
+			try {
+				return listFilenames().contains(resourcePath);
+			} catch (IOException e) {
+				return false;
+			}
+		}
+		// A cached listing covering the path answers it, but a listing of a single path is not worth caching
+		final List<String> cached = resourceConfiguration.getListingCacheSeconds() > 0 ? findCachedListing(resourcePath) : null;
+		if (cached != null) {
+			return cached.contains(resourcePath);
+		}
+		// Only the keys starting with the path need listing
+		try (Stream<String> fileNames = streamCloudFilenames(resourcePath)) {
+			return fileNames.anyMatch(resourcePath::equals);
+		} catch (UncheckedIOException e) {
 			return false;
 		}
 	}
@@ -280,6 +464,13 @@ public class ResourceManager {
 	 * @throws IOException If an error occurs while trying to load the resource.
 	 */
 	public InputStream readResourceStreamOrNullIfNotExists(final String resourcePath) throws IOException {
+		if (diskCache != null || transfer != null) {
+			try {
+				return readResourceStream(resourcePath);
+			} catch (FileNotFoundException e) {
+				return null;
+			}
+		}
 		try {
 			final Resource resource = resourceLoader.getResource(getFullPath(resourcePath));
 			return resource.exists() ? resource.getInputStream() : null;
@@ -301,6 +492,20 @@ public class ResourceManager {
 	 */
 	public void writeResource(final String resourcePath,
 							  final InputStream resourceInputStream) throws IOException {
+		if (transfer != null) {
+			writeCheck();
+			// Spooled to disk, so that the size is known and parts can be read in parallel
+			final File spooled = Files.createTempFile("resource-upload-", ".tmp").toFile();
+			try {
+				try (InputStream inputStream = resourceInputStream) {
+					FileUtils.copyInputStreamToFile(inputStream, spooled);
+				}
+				writeResource(resourcePath, spooled);
+			} finally {
+				Files.deleteIfExists(spooled.toPath());
+			}
+			return;
+		}
 		try {
 			try (final OutputStream outputStream = openWritableResourceStream(resourcePath);
 				 final InputStream inputStream = resourceInputStream) {
@@ -308,6 +513,35 @@ public class ResourceManager {
 			}
 		} catch (S3Exception e) {
 			throw new IOException("Failed to write resource '" + resourcePath + "'.", e);
+		} finally {
+			invalidateCached(resourcePath);
+		}
+	}
+
+	/**
+	 * Writes the file to the given resource path location. When parallel transfer
+	 * is configured, a file of at least the threshold size is uploaded in parts.
+	 *
+	 * @param resourcePath Which points to the resource that is
+	 *                     going to have the write operation performed
+	 *                     on it.
+	 * @param file         File to upload.
+	 * @throws IOException If an error occurs while trying to write the
+	 *                     file to the specified resource path.
+	 * @see ResourceConfiguration.Transfer
+	 */
+	public void writeResource(final String resourcePath, final File file) throws IOException {
+		if (transfer == null) {
+			writeResource(resourcePath, new FileInputStream(file));
+			return;
+		}
+		writeCheck();
+		try {
+			transfer.upload(resourceConfiguration.getCloud().getBucketName(), getCloudKey(resourcePath), file.toPath());
+		} catch (S3Exception e) {
+			throw new IOException("Failed to write resource '" + resourcePath + "'.", e);
+		} finally {
+			invalidateCached(resourcePath);
 		}
 	}
 
@@ -332,6 +566,7 @@ public class ResourceManager {
 					.build();
 
 			s3Client.putObject(request, RequestBody.empty());
+			invalidateCached(resourcePath);
 		}
 	}
 
@@ -384,6 +619,8 @@ public class ResourceManager {
 			}
 		} catch (S3Exception e) {
 			throw new IOException("Failed to delete the resource: '" + resourcePath + "'.", e);
+		} finally {
+			invalidateCached(resourcePath);
 		}
 	}
 
@@ -396,6 +633,79 @@ public class ResourceManager {
 		}
 	}
 
+	/**
+	 * Deletes the resources. In the cloud they are deleted with multi-object delete requests of up to 1,000 keys each,
+	 * rather than a request per resource. As in S3, deleting a resource which does not exist succeeds.
+	 *
+	 * @param resourcePaths Resources to delete.
+	 * @return the resources deleted and those which could not be deleted, with the reason.
+	 */
+	public BulkResourceResult deleteResources(final Collection<String> resourcePaths) {
+		final BulkResourceResult result = new BulkResourceResult();
+		if (!resourceConfiguration.isUseCloud()) {
+			for (String resourcePath : resourcePaths) {
+				try {
+					deleteResource(resourcePath);
+					result.addSucceeded(resourcePath);
+				} catch (IOException e) {
+					result.addFailed(resourcePath, e.getMessage());
+				}
+			}
+			return result;
+		}
+		final List<String> batch = new ArrayList<>(DELETE_BATCH_SIZE);
+		for (String resourcePath : resourcePaths) {
+			batch.add(resourcePath);
+			if (batch.size() == DELETE_BATCH_SIZE) {
+				s3DeleteResources(batch, result);
+				batch.clear();
+			}
+		}
+		if (!batch.isEmpty()) {
+			s3DeleteResources(batch, result);
+		}
+		return result;
+	}
+
+	/**
+	 * Deletes all resources starting with the prefix.
+	 *
+	 * @param prefix File prefix, which must not be empty.
+	 * @return the resources deleted and those which could not be deleted, with the reason.
+	 * @throws IOException If an error occurs while trying to list the resources.
+	 * @see #deleteResources(Collection)
+	 */
+	public BulkResourceResult deleteResourcesByPrefix(final String prefix) throws IOException {
+		if (prefix == null || prefix.isEmpty()) {
+			throw new IllegalArgumentException("A prefix is required to delete resources by prefix.");
+		}
+		return deleteResources(collectFilenames(prefix, null));
+	}
+
+	private void s3DeleteResources(final List<String> resourcePaths, final BulkResourceResult result) {
+		final Map<String, String> resourcePathsByKey = new LinkedHashMap<>();
+		resourcePaths.forEach(resourcePath -> resourcePathsByKey.put(getCloudKey(resourcePath), resourcePath));
+		try {
+			final List<ObjectIdentifier> objects = resourcePathsByKey.keySet().stream()
+					.map(key -> ObjectIdentifier.builder().key(key).build())
+					.collect(Collectors.toList());
+			// Quiet mode, only the keys which failed are returned
+			final DeleteObjectsResponse response = s3Client.deleteObjects(delete -> delete
+					.bucket(resourceConfiguration.getCloud().getBucketName())
+					.delete(Delete.builder().objects(objects).quiet(true).build()));
+			for (S3Error error : response.errors()) {
+				final String resourcePath = resourcePathsByKey.remove(error.key());
+				result.addFailed(resourcePath != null ? resourcePath : error.key(), error.code() + ": " + error.message());
+			}
+			resourcePathsByKey.values().forEach(result::addSucceeded);
+		} catch (SdkException e) {
+			LOGGER.error("Failed to delete {} resources.", resourcePaths.size(), e);
+			resourcePathsByKey.values().forEach(resourcePath -> result.addFailed(resourcePath, e.getMessage()));
+		} finally {
+			resourcePaths.forEach(this::invalidateCached);
+		}
+	}
+
 	/**
 	 * Gets the resource last modified date from the given <code>resourcePath</code> in millisecond.
 	 *
@@ -481,6 +791,119 @@ public class ResourceManager {
 		}
 	}
 
+	/**
+	 * Copies each resource to its new path. In the cloud the objects are copied server side, a number at a time.
+	 *
+	 * @param fromToResourcePaths Destination path by source path.
+	 * @return the source paths of the resources copied and of those which could not be copied, with the reason.
+	 * @see ResourceConfiguration#setBulkCopyParallelism(int)
+	 */
+	public BulkResourceResult copyResources(final Map<String, String> fromToResourcePaths) {
+		if (!resourceConfiguration.isUseCloud()) {
+			final BulkResourceResult result = new BulkResourceResult();
+			fromToResourcePaths.forEach((fromResourcePath, toResourcePath) -> {
+				try {
+					final File toFile = new File(getFullPath(toResourcePath));
+					toFile.getParentFile().mkdirs();
+					Files.copy(new File(getFullPath(fromResourcePath)).toPath(), toFile.toPath(),
+							StandardCopyOption.REPLACE_EXISTING);
+					result.addSucceeded(fromResourcePath);
+				} catch (IOException e) {
+					result.addFailed(fromResourcePath, e.toString());
+				}
+			});
+			return result;
+		}
+		return s3CopyResources(fromToResourcePaths);
+	}
+
+	/**
+	 * Copies all resources starting with the source prefix, replacing the source prefix with the destination prefix.
+	 *
+	 * @throws IOException If an error occurs while trying to list the resources.
+	 * @see #copyResources(Map)
+	 */
+	public BulkResourceResult copyResourcesByPrefix(final String fromPrefix, final String toPrefix) throws IOException {
+		return copyResources(getPrefixMoves(fromPrefix, toPrefix));
+	}
+
+	/**
+	 * Moves each resource to its new path. In the cloud the objects are copied server side, a number at a time,
+	 * and the sources copied are then deleted in batches. A resource which fails to copy is not deleted.
+	 *
+	 * @param fromToResourcePaths Destination path by source path.
+	 * @return the source paths of the resources moved and of those which could not be moved, with the reason.
+	 * @see #copyResources(Map)
+	 * @see #deleteResources(Collection)
+	 */
+	public BulkResourceResult moveResources(final Map<String, String> fromToResourcePaths) {
+		final BulkResourceResult result = new BulkResourceResult();
+		if (!resourceConfiguration.isUseCloud()) {
+			fromToResourcePaths.forEach((fromResourcePath, toResourcePath) -> {
+				try {
+					localMoveResource(fromResourcePath, toResourcePath);
+					result.addSucceeded(fromResourcePath);
+				} catch (IOException e) {
+					result.addFailed(fromResourcePath, e.toString());
+				}
+			});
+			return result;
+		}
+		final BulkResourceResult copied = s3CopyResources(fromToResourcePaths);
+		copied.getFailed().forEach(result::addFailed);
+		final BulkResourceResult deleted = deleteResources(copied.getSucceeded());
+		deleted.getSucceeded().forEach(result::addSucceeded);
+		deleted.getFailed().forEach((fromResourcePath, reason) -> result.addFailed(fromResourcePath,
+				"Copied to '" + fromToResourcePaths.get(fromResourcePath) + "' but not deleted. " + reason));
+		return result;
+	}
+
+	/**
+	 * Moves all resources starting with the source prefix, replacing the source prefix with the destination prefix.
+	 *
+	 * @throws IOException If an error occurs while trying to list the resources.
+	 * @see #moveResources(Map)
+	 */
+	public BulkResourceResult moveResourcesByPrefix(final String fromPrefix, final String toPrefix) throws IOException {
+		return moveResources(getPrefixMoves(fromPrefix, toPrefix));
+	}
+
+	private Map<String, String> getPrefixMoves(final String fromPrefix, final String toPrefix) throws IOException {
+		if (fromPrefix == null || fromPrefix.isEmpty()) {
+			throw new IllegalArgumentException("A source prefix is required to copy or move resources by prefix.");
+		}
+		final String destinationPrefix = toPrefix == null ? "" : toPrefix;
+		final Map<String, String> fromToResourcePaths = new TreeMap<>();
+		for (String fileName : collectFilenames(fromPrefix, null)) {
+			fromToResourcePaths.put(fileName, destinationPrefix + fileName.substring(fromPrefix.length()));
+		}
+		return fromToResourcePaths;
+	}
+
+	private BulkResourceResult s3CopyResources(final Map<String, String> fromToResourcePaths) {
+		final BulkResourceResult result = new BulkResourceResult();
+		if (fromToResourcePaths.isEmpty()) {
+			return result;
+		}
+		final int threads = Math.max(1, Math.min(resourceConfiguration.getBulkCopyParallelism(), fromToResourcePaths.size()));
+		final ExecutorService executor = Executors.newFixedThreadPool(threads);
+		try {
+			final List<CompletableFuture<Void>> copies = new ArrayList<>(fromToResourcePaths.size());
+			fromToResourcePaths.forEach((fromResourcePath, toResourcePath) -> copies.add(CompletableFuture.runAsync(() -> {
+				try {
+					s3CopyObject(fromResourcePath, toResourcePath);
+					result.addSucceeded(fromResourcePath);
+				} catch (SdkException e) {
+					result.addFailed(fromResourcePath, e.getMessage());
+				}
+			}, executor)));
+			CompletableFuture.allOf(copies.toArray(new CompletableFuture[0])).join();
+		} finally {
+			executor.shutdown();
+		}
+		return result;
+	}
+
 	/**
 	 * Moves the resource locally from the specified resource
 	 * path, to the desired resource location.
@@ -495,8 +918,9 @@ public class ResourceManager {
 	 */
 	private void localMoveResource(final String fromResourcePath,
 								   final String toResourcePath) throws IOException {
-		Files.move(new File(getFullPath(fromResourcePath)).toPath(),
-				new File(getFullPath(toResourcePath)).toPath(),
+		final File toFile = new File(getFullPath(toResourcePath));
+		toFile.getParentFile().mkdirs();
+		Files.move(new File(getFullPath(fromResourcePath)).toPath(), toFile.toPath(),
 				StandardCopyOption.REPLACE_EXISTING);
 	}
 
@@ -517,17 +941,25 @@ public class ResourceManager {
 	private void s3MoveResource(final String fromResourcePath,
 								final String toResourcePath,
 								final boolean deleteResource) throws IOException {
-		final String bucketName = resourceConfiguration.getCloud().getBucketName();
-		final String path = resourceConfiguration.getCloud().getPath();
-		s3Client.copyObject(copy -> copy.sourceBucket(bucketName)
-				.sourceKey(configurePath(path) + fromResourcePath)
-				.destinationBucket(bucketName)
-				.destinationKey(configurePath(path) + toResourcePath));
+		s3CopyObject(fromResourcePath, toResourcePath);
 		if (deleteResource) {
 			deleteResource(fromResourcePath);
 		}
 	}
 
+	private void s3CopyObject(final String fromResourcePath, final String toResourcePath) {
+		final String bucketName = resourceConfiguration.getCloud().getBucketName();
+		final String path = resourceConfiguration.getCloud().getPath();
+		try {
+			s3Client.copyObject(copy -> copy.sourceBucket(bucketName)
+					.sourceKey(configurePath(path) + fromResourcePath)
+					.destinationBucket(bucketName)
+					.destinationKey(configurePath(path) + toResourcePath));
+		} finally {
+			invalidateCached(toResourcePath);
+		}
+	}
+
 	/**
 	 * Checks to make sure that the resource configuration setting
 	 * <code>readonly</code> is {@code false} when performing write
@@ -543,6 +975,24 @@ public class ResourceManager {
 		}
 	}
 
+	private void invalidateCached(final String resourcePath) {
+		listingCache.asMap().keySet().removeIf(resourcePath::startsWith);
+		if (diskCache != null) {
+			diskCache.invalidate(resourceConfiguration.getCloud().getBucketName(), getCloudKey(resourcePath));
+		}
+	}
+
+	/**
+	 * Returns the object key of the resource inside the cloud bucket.
+	 *
+	 * @param relativePath Being examined.
+	 * @return object key, including the configured cloud path.
+	 */
+	private String getCloudKey(final String relativePath) {
+		//In case we're running on a PC we need to convert backslashes to forward
+		return getPathAndRelative(resourceConfiguration.getCloud().getPath(), relativePath).replaceAll("\\\\", "/");
+	}
+
 	/**
 	 * Returns the full specified path, which either corresponds to the
 	 * local/cloud storage.
@@ -618,6 +1068,16 @@ public class ResourceManager {
 		return !path.isEmpty() && !path.endsWith("/") ? path + "/" : path;
 	}
 
+	private static final class CachedListing {
+		private final List<String> fileNames;
+		private final long expiresAt;
+
+		private CachedListing(List<String> fileNames, long expiresAt) {
+			this.fileNames = fileNames;
+			this.expiresAt = expiresAt;
+		}
+	}
+
 	@Override
 	public boolean equals(Object o) {
 		if (this == o) return true;
@@ -0,0 +1,98 @@
+package org.ihtsdo.otf.resourcemanager;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.FileNotFoundException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.*;
+
+class AsyncResourceManagerTest {
+
+	private final AtomicInteger running = new AtomicInteger();
+	private final AtomicInteger maxRunning = new AtomicInteger();
+
+	@Test
+	void resourceManagersOnOneBucketShareConcurrencyLimit() {
+		ResourceManager releases = newResourceManager("bucket-a");
+		ResourceManager reports = newResourceManager("bucket-a");
+
+		List<CompletableFuture<Boolean>> futures = new ArrayList<>();
+		try (AsyncResourceManager asyncReleases = new AsyncResourceManager(releases, 8, 2)) {
+			AsyncResourceManager asyncReports = asyncReleases.forResourceManager(reports);
+			for (int i = 0; i < 10; i++) {
+				futures.add(asyncReleases.doesObjectExist("release-" + i + ".zip"));
+				futures.add(asyncReports.doesObjectExist("report-" + i + ".json"));
+			}
+			futures.forEach(future -> assertTrue(future.join()));
+		}
+
+		assertTrue(maxRunning.get() <= 2);
+		verify(releases, times(10)).doesObjectExist(anyString());
+		verify(reports, times(10)).doesObjectExist(anyString());
+	}
+
+	@Test
+	void failedOperationCompletesExceptionally() throws Exception {
+		ResourceManager resourceManager = newResourceManager("bucket-a");
+		doThrow(new FileNotFoundException("missing.txt")).when(resourceManager).readResourceStream("missing.txt");
+
+		try (AsyncResourceManager asyncResourceManager = new AsyncResourceManager(resourceManager, 2, 1)) {
+			CompletionException exception = assertThrows(CompletionException.class,
+					() -> asyncResourceManager.readResourceStream("missing.txt").join());
+			assertInstanceOf(FileNotFoundException.class, exception.getCause());
+		}
+	}
+
+	@Test
+	void operationThrowingErrorCompletesExceptionally() throws Exception {
+		ResourceManager resourceManager = newResourceManager("bucket-a");
+		doThrow(new NoClassDefFoundError("software/amazon/awssdk/Missing")).when(resourceManager).readResourceStream("broken.txt");
+
+		try (AsyncResourceManager asyncResourceManager = new AsyncResourceManager(resourceManager, 2, 1)) {
+			CompletionException exception = assertThrows(CompletionException.class,
+					() -> asyncResourceManager.readResourceStream("broken.txt").orTimeout(5, TimeUnit.SECONDS).join());
+			assertInstanceOf(NoClassDefFoundError.class, exception.getCause());
+			// The bucket is free for the next operation
+			assertTrue(asyncResourceManager.doesObjectExist("release.zip").orTimeout(5, TimeUnit.SECONDS).join());
+		}
+	}
+
+	@Test
+	void operationsWaitingWhenClosedAreFailed() {
+		ResourceManager resourceManager = newResourceManager("bucket-a");
+		List<CompletableFuture<Boolean>> futures = new ArrayList<>();
+		try (AsyncResourceManager asyncResourceManager = new AsyncResourceManager(resourceManager, 2, 1)) {
+			for (int i = 0; i < 5; i++) {
+				futures.add(asyncResourceManager.doesObjectExist("release-" + i + ".zip"));
+			}
+		}
+
+		CompletableFuture<Boolean> first = futures.get(0);
+		assertTrue(first.orTimeout(5, TimeUnit.SECONDS).join());
+		for (CompletableFuture<Boolean> waiting : futures.subList(1, futures.size())) {
+			CompletionException exception = assertThrows(CompletionException.class, () -> waiting.orTimeout(5, TimeUnit.SECONDS).join());
+			assertInstanceOf(RejectedExecutionException.class, exception.getCause());
+		}
+	}
+
+	private ResourceManager newResourceManager(String bucketName) {
+		ResourceManager resourceManager = mock(ResourceManager.class);
+		when(resourceManager.getBucketName()).thenReturn(bucketName);
+		when(resourceManager.doesObjectExist(anyString())).thenAnswer(invocation -> {
+			maxRunning.accumulateAndGet(running.incrementAndGet(), Math::max);
+			Thread.sleep(20);
+			running.decrementAndGet();
+			return true;
+		});
+		return resourceManager;
+	}
+}
@@ -0,0 +1,115 @@
+package org.ihtsdo.otf.resourcemanager;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import software.amazon.awssdk.core.ResponseInputStream;
+import software.amazon.awssdk.core.sync.RequestBody;
+import software.amazon.awssdk.http.AbortableInputStream;
+import software.amazon.awssdk.services.s3.S3Client;
+import software.amazon.awssdk.services.s3.model.*;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ConcurrentHashMap;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+class ParallelS3TransferTest {
+
+	private static final String BUCKET = "test-bucket";
+	private static final int MB = 1024 * 1024;
+
+	@TempDir
+	Path directory;
+
+	private final Map<Integer, byte[]> uploadedParts = new ConcurrentHashMap<>();
+	private S3Client s3Client;
+	private byte[] object;
+
+	@BeforeEach
+	void setUp() {
+		s3Client = mock(S3Client.class);
+		when(s3Client.getObject(any(GetObjectRequest.class))).thenAnswer(invocation -> {
+			String[] range = invocation.<GetObjectRequest>getArgument(0).range().substring("bytes=".length()).split("-");
+			int start = Integer.parseInt(range[0]);
+			int end = Math.min(Integer.parseInt(range[1]), object.length - 1);
+			GetObjectResponse response = GetObjectResponse.builder()
+					.eTag("\"v1\"")
+					.contentRange("bytes " + start + "-" + end + "/" + object.length)
+					.build();
+			return new ResponseInputStream<>(response, AbortableInputStream.create(new ByteArrayInputStream(Arrays.copyOfRange(object, start, end + 1))));
+		});
+		when(s3Client.createMultipartUpload(any(CreateMultipartUploadRequest.class)))
+				.thenReturn(CreateMultipartUploadResponse.builder().uploadId("upload-1").build());
+		when(s3Client.uploadPart(any(UploadPartRequest.class), any(RequestBody.class))).thenAnswer(invocation -> {
+			int partNumber = invocation.<UploadPartRequest>getArgument(0).partNumber();
+			try (InputStream inputStream = invocation.<RequestBody>getArgument(1).contentStreamProvider().newStream()) {
+				uploadedParts.put(partNumber, inputStream.readAllBytes());
+			}
+			return UploadPartResponse.builder().eTag("\"part-" + partNumber + "\"").build();
+		});
+	}
+
+	@Test
+	void downloadsLargeObjectInParts() throws IOException {
+		object = randomBytes(12 * MB + 1);
+		ParallelS3Transfer transfer = new ParallelS3Transfer(s3Client, 5 * MB, 5 * MB, 3);
+
+		try (InputStream inputStream = transfer.download(BUCKET, "edition.zip")) {
+			assertArrayEquals(object, inputStream.readAllBytes());
+		}
+		verify(s3Client, times(3)).getObject(any(GetObjectRequest.class));
+	}
+
+	@Test
+	void partSizeOverTwoGigabytesIsRejected() {
+		assertThrows(IllegalArgumentException.class, () -> new ParallelS3Transfer(s3Client, 5 * MB, 2048L * MB, 3));
+	}
+
+	@Test
+	void downloadsSmallObjectInOneRequest() throws IOException {
+		object = randomBytes(1000);
+		ParallelS3Transfer transfer = new ParallelS3Transfer(s3Client, 5 * MB, 5 * MB, 3);
+
+		try (InputStream inputStream = transfer.download(BUCKET, "metadata.json")) {
+			assertArrayEquals(object, inputStream.readAllBytes());
+		}
+		verify(s3Client, times(1)).getObject(any(GetObjectRequest.class));
+	}
+
+	@Test
+	void uploadsLargeFileAsMultipartUpload() throws IOException {
+		byte[] content = randomBytes(11 * MB);
+		Path file = Files.write(directory.resolve("edition.zip"), content);
+		ParallelS3Transfer transfer = new ParallelS3Transfer(s3Client, 5 * MB, 5 * MB, 3);
+
+		transfer.upload(BUCKET, "edition.zip", file);
+
+		assertEquals(3, uploadedParts.size());
+		byte[] uploaded = new byte[content.length];
+		int offset = 0;
+		for (int partNumber = 1; partNumber <= 3; partNumber++) {
+			byte[] part = uploadedParts.get(partNumber);
+			System.arraycopy(part, 0, uploaded, offset, part.length);
+			offset += part.length;
+		}
+		assertArrayEquals(content, uploaded);
+		verify(s3Client).completeMultipartUpload(any(CompleteMultipartUploadRequest.class));
+		verify(s3Client, never()).abortMultipartUpload(any(AbortMultipartUploadRequest.class));
+	}
+
+	private static byte[] randomBytes(int length) {
+		byte[] bytes = new byte[length];
+		new Random(length).nextBytes(bytes);
+		return bytes;
+	}
+}
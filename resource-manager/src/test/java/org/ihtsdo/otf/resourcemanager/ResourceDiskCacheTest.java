@@ -0,0 +1,212 @@
+package org.ihtsdo.otf.resourcemanager;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.core.io.Resource;
+import org.springframework.core.io.ResourceLoader;
+import software.amazon.awssdk.core.ResponseInputStream;
+import software.amazon.awssdk.http.AbortableInputStream;
+import software.amazon.awssdk.services.s3.S3Client;
+import software.amazon.awssdk.services.s3.model.GetObjectRequest;
+import software.amazon.awssdk.services.s3.model.GetObjectResponse;
+import software.amazon.awssdk.services.s3.model.HeadObjectRequest;
+import software.amazon.awssdk.services.s3.model.HeadObjectResponse;
+import software.amazon.awssdk.services.s3.model.S3Exception;
+
+import java.io.ByteArrayInputStream;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.*;
+
+class ResourceDiskCacheTest {
+
+	private static final String BUCKET = "test-bucket";
+
+	@TempDir
+	Path directory;
+
+	private final Map<String, String> objects = new HashMap<>();
+	private S3Client s3Client;
+
+	@BeforeEach
+	void setUp() {
+		s3Client = mock(S3Client.class);
+		when(s3Client.headObject(any(HeadObjectRequest.class))).thenAnswer(invocation -> {
+			String content = objects.get(invocation.<HeadObjectRequest>getArgument(0).key());
+			if (content == null) {
+				throw S3Exception.builder().statusCode(404).build();
+			}
+			return HeadObjectResponse.builder().eTag(eTag(content)).contentLength((long) content.length()).build();
+		});
+		when(s3Client.getObject(any(GetObjectRequest.class))).thenAnswer(invocation -> {
+			String content = objects.get(invocation.<GetObjectRequest>getArgument(0).key());
+			GetObjectResponse response = GetObjectResponse.builder().eTag(eTag(content)).contentLength((long) content.length()).build();
+			return new ResponseInputStream<>(response, AbortableInputStream.create(new ByteArrayInputStream(content.getBytes(StandardCharsets.UTF_8))));
+		});
+	}
+
+	@Test
+	void repeatReadsAreServedFromDiskUntilObjectChanges() throws IOException {
+		ResourceDiskCache cache = new ResourceDiskCache(s3Client, directory, 1024);
+		objects.put("metadata.json", "{\"version\":1}");
+
+		assertEquals("{\"version\":1}", read(cache, "metadata.json"));
+		assertEquals("{\"version\":1}", read(cache, "metadata.json"));
+		verify(s3Client, times(1)).getObject(any(GetObjectRequest.class));
+		assertEquals(1, cache.getHitCount());
+
+		objects.put("metadata.json", "{\"version\":2}");
+		assertEquals("{\"version\":2}", read(cache, "metadata.json"));
+		verify(s3Client, times(2)).getObject(any(GetObjectRequest.class));
+		assertEquals(1, cache.getEntryCount());
+	}
+
+	@Test
+	void leastRecentlyReadObjectIsEvicted() throws IOException {
+		ResourceDiskCache cache = new ResourceDiskCache(s3Client, directory, 25);
+		objects.put("a.txt", "aaaaaaaaaa");
+		objects.put("b.txt", "bbbbbbbbbb");
+		objects.put("c.txt", "cccccccccc");
+
+		read(cache, "a.txt");
+		read(cache, "b.txt");
+		read(cache, "a.txt");
+		read(cache, "c.txt");
+
+		assertEquals(1, cache.getEvictionCount());
+		assertEquals(20, cache.getSizeBytes());
+		read(cache, "a.txt");
+		assertEquals(2, cache.getHitCount());
+	}
+
+	@Test
+	void missingObjectIsNotFound() throws IOException {
+		ResourceDiskCache cache = new ResourceDiskCache(s3Client, directory, 1024);
+
+		assertThrows(FileNotFoundException.class, () -> cache.open(BUCKET, "missing.txt"));
+	}
+
+	@Test
+	void cachesSharingDirectoryKeepTheirOwnFiles() throws IOException {
+		objects.put("a.txt", "aaaaaaaaaa");
+		objects.put("b.txt", "bbbbbbbbbb");
+		ResourceDiskCache first = new ResourceDiskCache(s3Client, directory, 1024);
+		assertEquals("aaaaaaaaaa", read(first, "a.txt"));
+
+		ResourceDiskCache second = new ResourceDiskCache(s3Client, directory, 1024);
+		assertEquals("bbbbbbbbbb", read(second, "b.txt"));
+		assertNotEquals(first.getDirectory(), second.getDirectory());
+
+		assertEquals("aaaaaaaaaa", read(first, "a.txt"));
+		assertEquals(1, first.getHitCount());
+		second.close();
+		assertFalse(Files.exists(second.getDirectory()));
+		assertEquals("aaaaaaaaaa", read(first, "a.txt"));
+		assertEquals(2, first.getHitCount());
+	}
+
+	@Test
+	void cachedFileRemovedFromOutsideIsDownloadedAgain() throws IOException {
+		ResourceDiskCache cache = new ResourceDiskCache(s3Client, directory, 1024);
+		objects.put("a.txt", "aaaaaaaaaa");
+		read(cache, "a.txt");
+		try (Stream<Path> files = Files.list(cache.getDirectory())) {
+			for (Path file : files.collect(Collectors.toList())) {
+				Files.delete(file);
+			}
+		}
+
+		assertEquals("aaaaaaaaaa", read(cache, "a.txt"));
+		verify(s3Client, times(2)).getObject(any(GetObjectRequest.class));
+		assertEquals(1, cache.getEntryCount());
+		assertEquals(10, cache.getSizeBytes());
+	}
+
+	@Test
+	void downloadsInPartsWhenParallelTransferIsAlsoConfigured() throws IOException {
+		int mb = 1024 * 1024;
+		byte[] object = new byte[11 * mb + 1];
+		new Random(1).nextBytes(object);
+		doReturn(HeadObjectResponse.builder().eTag("\"v1\"").contentLength((long) object.length).build())
+				.when(s3Client).headObject(any(HeadObjectRequest.class));
+		List<String> ranges = new ArrayList<>();
+		doAnswer(invocation -> {
+			String range = invocation.<GetObjectRequest>getArgument(0).range();
+			synchronized (ranges) {
+				ranges.add(range);
+			}
+			String[] bounds = range.substring("bytes=".length()).split("-");
+			int start = Integer.parseInt(bounds[0]);
+			int end = Math.min(Integer.parseInt(bounds[1]), object.length - 1);
+			GetObjectResponse response = GetObjectResponse.builder()
+					.eTag("\"v1\"")
+					.contentRange("bytes " + start + "-" + end + "/" + object.length)
+					.build();
+			return new ResponseInputStream<>(response, AbortableInputStream.create(new ByteArrayInputStream(Arrays.copyOfRange(object, start, end + 1))));
+		}).when(s3Client).getObject(any(GetObjectRequest.class));
+
+		try (ResourceManager cached = createResourceManager(directory.resolve("large"), 12);
+			 ResourceManager oversized = createResourceManager(directory.resolve("small"), 1)) {
+			// A miss, cached in three parts, then a hit
+			assertArrayEquals(object, readAll(cached, "edition.zip"));
+			assertArrayEquals(object, readAll(cached, "edition.zip"));
+			assertEquals(3, ranges.size());
+			assertEquals(1, cached.getDiskCache().getHitCount());
+
+			// Too large for the cache, read straight from S3 in parts
+			assertArrayEquals(object, readAll(oversized, "edition.zip"));
+			assertEquals(6, ranges.size());
+			assertEquals(0, oversized.getDiskCache().getEntryCount());
+		}
+	}
+
+	private ResourceManager createResourceManager(Path cachePath, long cacheMegabytes) {
+		ManualResourceConfiguration configuration = new ManualResourceConfiguration(true, true, null,
+				new ResourceConfiguration.Cloud(BUCKET, "releases"));
+		ResourceConfiguration.DiskCache diskCache = new ResourceConfiguration.DiskCache();
+		diskCache.setPath(cachePath.toString());
+		diskCache.setMaxSizeMegabytes(cacheMegabytes);
+		configuration.setDiskCache(diskCache);
+		ResourceConfiguration.Transfer transfer = new ResourceConfiguration.Transfer();
+		transfer.setThresholdMegabytes(5);
+		transfer.setPartSizeMegabytes(5);
+		transfer.setParallelism(3);
+		configuration.setTransfer(transfer);
+		ResourceLoader resourceLoader = mock(ResourceLoader.class);
+		when(resourceLoader.getResource(anyString())).thenReturn(mock(Resource.class));
+		return new ResourceManager(configuration, resourceLoader, s3Client);
+	}
+
+	private static byte[] readAll(ResourceManager resourceManager, String path) throws IOException {
+		try (InputStream inputStream = resourceManager.readResourceStream(path)) {
+			return inputStream.readAllBytes();
+		}
+	}
+
+	private static String read(ResourceDiskCache cache, String key) throws IOException {
+		try (InputStream inputStream = cache.open(BUCKET, key)) {
+			return new String(inputStream.readAllBytes(), StandardCharsets.UTF_8);
+		}
+	}
+
+	private static String eTag(String content) {
+		return "\"" + Integer.toHexString(content.hashCode()) + "\"";
+	}
+}
@@ -0,0 +1,127 @@
+package org.ihtsdo.otf.resourcemanager;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.invocation.InvocationOnMock;
+import org.springframework.core.io.Resource;
+import org.springframework.core.io.ResourceLoader;
+import software.amazon.awssdk.services.s3.S3Client;
+import software.amazon.awssdk.services.s3.model.*;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.*;
+
+class ResourceManagerBulkTest {
+
+	private static final int KEY_COUNT = 2500;
+
+	private final Set<String> keys = new ConcurrentSkipListSet<>();
+	private S3Client s3Client;
+	private ResourceManager resourceManager;
+
+	@BeforeEach
+	@SuppressWarnings("unchecked")
+	void setUp() {
+		IntStream.range(0, KEY_COUNT).forEach(i -> keys.add(String.format("releases/dev/%04d.zip", i)));
+		s3Client = mock(S3Client.class);
+		when(s3Client.listObjects(any(ListObjectsRequest.class))).thenAnswer(invocation -> {
+			ListObjectsRequest request = invocation.getArgument(0);
+			List<S3Object> matching = keys.stream()
+					.filter(key -> key.startsWith(request.prefix()))
+					.filter(key -> request.marker() == null || key.compareTo(request.marker()) > 0)
+					.map(key -> S3Object.builder().key(key).build())
+					.collect(Collectors.toList());
+			int pageSize = Math.min(request.maxKeys(), 1000);
+			return ListObjectsResponse.builder()
+					.contents(matching.subList(0, Math.min(pageSize, matching.size())))
+					.isTruncated(matching.size() > pageSize)
+					.build();
+		});
+		// Access to one object is denied, another has gone by the time it is copied
+		when(s3Client.deleteObjects(any(Consumer.class))).thenAnswer(invocation -> {
+			DeleteObjectsRequest request = applied(invocation, DeleteObjectsRequest.builder()).build();
+			assertTrue(request.delete().objects().size() <= 1000);
+			List<S3Error> errors = new ArrayList<>();
+			for (ObjectIdentifier object : request.delete().objects()) {
+				if (object.key().endsWith("/0013.zip")) {
+					errors.add(S3Error.builder().key(object.key()).code("AccessDenied").message("Access Denied").build());
+				} else {
+					keys.remove(object.key());
+				}
+			}
+			return DeleteObjectsResponse.builder().errors(errors).build();
+		});
+		when(s3Client.copyObject(any(Consumer.class))).thenAnswer(invocation -> {
+			CopyObjectRequest request = applied(invocation, CopyObjectRequest.builder()).build();
+			if (request.sourceKey().endsWith("/0007.zip")) {
+				throw NoSuchKeyException.builder().statusCode(404).message("Not Found").build();
+			}
+			keys.add(request.destinationKey());
+			return CopyObjectResponse.builder().build();
+		});
+		ResourceLoader resourceLoader = mock(ResourceLoader.class);
+		when(resourceLoader.getResource(anyString())).thenReturn(mock(Resource.class));
+		resourceManager = new ResourceManager(new ManualResourceConfiguration(false, true, null,
+				new ResourceConfiguration.Cloud("bucket", "releases")), resourceLoader, s3Client);
+	}
+
+	@Test
+	@SuppressWarnings("unchecked")
+	void deletesPrefixInBatchesReportingFailures() throws IOException {
+		BulkResourceResult result = resourceManager.deleteResourcesByPrefix("dev/");
+
+		verify(s3Client, times(3)).deleteObjects(any(Consumer.class));
+		assertEquals(KEY_COUNT - 1, result.getSucceeded().size());
+		assertEquals(Set.of("dev/0013.zip"), result.getFailed().keySet());
+		assertEquals(Set.of("releases/dev/0013.zip"), keys);
+	}
+
+	@Test
+	void movesPrefixDeletingOnlyCopiedSources() throws IOException {
+		BulkResourceResult result = resourceManager.moveResourcesByPrefix("dev/", "archive/dev/");
+
+		assertFalse(result.isSuccessful());
+		assertEquals(KEY_COUNT - 2, result.getSucceeded().size());
+		assertEquals(Set.of("dev/0007.zip", "dev/0013.zip"), result.getFailed().keySet());
+		assertTrue(result.getFailed().get("dev/0013.zip").startsWith("Copied to 'archive/dev/0013.zip'"));
+		assertTrue(keys.contains("releases/dev/0007.zip"));
+		assertTrue(keys.contains("releases/archive/dev/0013.zip"));
+		assertEquals(KEY_COUNT + 1, keys.size());
+	}
+
+	@Test
+	void copiesAndMovesLocallyToNewDirectory(@TempDir Path directory) throws IOException {
+		Files.writeString(directory.resolve("a.txt"), "a");
+		Files.writeString(directory.resolve("b.txt"), "b");
+		ResourceManager localResourceManager = new ResourceManager(new ManualResourceConfiguration(false, false,
+				new ResourceConfiguration.Local(directory.toString()), null), mock(ResourceLoader.class));
+
+		assertTrue(localResourceManager.copyResources(Map.of("a.txt", "archive/copied/a.txt")).isSuccessful());
+		assertTrue(localResourceManager.moveResources(Map.of("b.txt", "archive/moved/b.txt")).isSuccessful());
+
+		assertEquals("a", Files.readString(directory.resolve("archive/copied/a.txt")));
+		assertEquals("b", Files.readString(directory.resolve("archive/moved/b.txt")));
+		assertFalse(Files.exists(directory.resolve("b.txt")));
+	}
+
+	@SuppressWarnings("unchecked")
+	private static <B> B applied(InvocationOnMock invocation, B builder) {
+		invocation.<Consumer<B>>getArgument(0).accept(builder);
+		return builder;
+	}
+}
@@ -0,0 +1,109 @@
+package org.ihtsdo.otf.resourcemanager;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.core.io.Resource;
+import org.springframework.core.io.ResourceLoader;
+import software.amazon.awssdk.services.s3.S3Client;
+import software.amazon.awssdk.services.s3.model.ListObjectsRequest;
+import software.amazon.awssdk.services.s3.model.ListObjectsResponse;
+import software.amazon.awssdk.services.s3.model.S3Object;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.*;
+
+class ResourceManagerListingTest {
+
+	private static final int KEY_COUNT = 2500;
+
+	private final List<String> keys = IntStream.range(0, KEY_COUNT)
+			.mapToObj(i -> String.format("releases/dev/SNOMEDCT/%05d/%s", i, i % 2 == 0 ? "package.zip" : "metadata.json"))
+			.sorted()
+			.collect(Collectors.toList());
+
+	private S3Client s3Client;
+	private ResourceConfiguration configuration;
+
+	@BeforeEach
+	void setUp() {
+		s3Client = mock(S3Client.class);
+		// Pages of at most 1000 keys after the marker, as S3 returns them
+		when(s3Client.listObjects(any(ListObjectsRequest.class))).thenAnswer(invocation -> {
+			ListObjectsRequest request = invocation.getArgument(0);
+			List<S3Object> matching = keys.stream()
+					.filter(key -> key.startsWith(request.prefix()))
+					.filter(key -> request.marker() == null || key.compareTo(request.marker()) > 0)
+					.map(key -> S3Object.builder().key(key).build())
+					.collect(Collectors.toList());
+			int pageSize = Math.min(request.maxKeys(), 1000);
+			return ListObjectsResponse.builder()
+					.contents(matching.subList(0, Math.min(pageSize, matching.size())))
+					.isTruncated(matching.size() > pageSize)
+					.build();
+		});
+		configuration = new ManualResourceConfiguration(false, true, null, new ResourceConfiguration.Cloud("bucket", "releases"));
+	}
+
+	@Test
+	void streamsFilenamesWithSuffixPageByPage() throws IOException {
+		ResourceManager resourceManager = newResourceManager();
+
+		try (Stream<String> fileNames = resourceManager.streamFilenames("dev/", ".zip")) {
+			assertEquals(KEY_COUNT / 2, fileNames.count());
+		}
+		verify(s3Client, times(3)).listObjects(any(ListObjectsRequest.class));
+
+		// Stops listing once found
+		assertTrue(resourceManager.doesObjectExist("dev/SNOMEDCT/00001/metadata.json"));
+		assertFalse(resourceManager.doesObjectExist("dev/SNOMEDCT/00001/package.zip"));
+		try (Stream<String> fileNames = resourceManager.streamFilenames(null, null)) {
+			assertEquals("dev/SNOMEDCT/00000/package.zip", fileNames.findFirst().orElseThrow());
+		}
+		verify(s3Client, times(6)).listObjects(any(ListObjectsRequest.class));
+	}
+
+	@Test
+	void cachedListingServesNarrowerPrefixesUntilWrite() throws IOException {
+		configuration.setListingCacheSeconds(60);
+		ResourceManager resourceManager = newResourceManager();
+
+		Set<String> packages = resourceManager.doListFilenames("dev/", ".zip");
+		assertEquals(KEY_COUNT / 2, packages.size());
+		assertTrue(resourceManager.doesObjectExist("dev/SNOMEDCT/00001/metadata.json"));
+		assertEquals(5, resourceManager.doListFilenames("dev/SNOMEDCT/0000", ".json").size());
+		verify(s3Client, times(3)).listObjects(any(ListObjectsRequest.class));
+
+		resourceManager.deleteResource("dev/SNOMEDCT/00001/metadata.json");
+		resourceManager.doListFilenames("dev/", ".zip");
+		verify(s3Client, times(6)).listObjects(any(ListObjectsRequest.class));
+	}
+
+	@Test
+	void existenceChecksAreNotCached() throws IOException {
+		configuration.setListingCacheSeconds(60);
+		ResourceManager resourceManager = newResourceManager();
+
+		assertTrue(resourceManager.doesObjectExist("dev/SNOMEDCT/00001/metadata.json"));
+		assertTrue(resourceManager.doesObjectExist("dev/SNOMEDCT/00001/metadata.json"));
+		verify(s3Client, times(2)).listObjects(any(ListObjectsRequest.class));
+
+		resourceManager.doListFilenames("dev/SNOMEDCT/0000", ".json");
+		assertTrue(resourceManager.doesObjectExist("dev/SNOMEDCT/00001/metadata.json"));
+		verify(s3Client, times(3)).listObjects(any(ListObjectsRequest.class));
+	}
+
+	private ResourceManager newResourceManager() {
+		ResourceLoader resourceLoader = mock(ResourceLoader.class);
+		when(resourceLoader.getResource(anyString())).thenReturn(mock(Resource.class));
+		return new ResourceManager(configuration, resourceLoader, s3Client);
+	}
+}
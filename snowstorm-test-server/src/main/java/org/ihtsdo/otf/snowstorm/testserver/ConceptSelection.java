@@ -0,0 +1,104 @@
+package org.ihtsdo.otf.snowstorm.testserver;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Locale;
+import java.util.TreeSet;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * The concepts, by index in ascending order, matched by a search. Only a small subset of ECL is understood:
+ * <ul>
+ *     <li>a wildcard or any descendant/ancestor constraint such as {@code << 404684003}, which matches every concept,</li>
+ *     <li>one or more concept ids joined by {@code OR}, which match those concepts that exist.</li>
+ * </ul>
+ * Anything else is rejected, so that a test can not pass by accident.
+ */
+class ConceptSelection {
+
+	private static final Pattern SCTID = Pattern.compile("\\d{6,18}");
+	private static final Pattern OR = Pattern.compile("\\s+OR\\s+");
+
+	private final int conceptCount;
+	// null when every concept is selected
+	private final int[] indices;
+
+	private ConceptSelection(int conceptCount, int[] indices) {
+		this.conceptCount = conceptCount;
+		this.indices = indices;
+	}
+
+	static ConceptSelection all(SyntheticDataSet dataSet) {
+		return new ConceptSelection(dataSet.getConceptCount(), null);
+	}
+
+	static ConceptSelection ofIds(SyntheticDataSet dataSet, Collection<String> conceptIds) {
+		TreeSet<Integer> found = new TreeSet<>();
+		for (String conceptId : conceptIds) {
+			int index = dataSet.indexOf(conceptId.trim());
+			if (index != -1) {
+				found.add(index);
+			}
+		}
+		return new ConceptSelection(dataSet.getConceptCount(), found.stream().mapToInt(Integer::intValue).toArray());
+	}
+
+	/**
+	 * @throws IllegalArgumentException if the expression is outside the supported subset.
+	 */
+	static ConceptSelection ofEcl(SyntheticDataSet dataSet, String ecl) {
+		String upper = ecl.toUpperCase(Locale.ROOT);
+		if (upper.contains(" AND ") || upper.contains(" MINUS ") || upper.contains(":") || upper.contains("^")) {
+			throw new IllegalArgumentException("ECL not supported by the test server: " + ecl);
+		}
+		TreeSet<String> ids = new TreeSet<>();
+		for (String part : OR.split(ecl.replace("(", " ").replace(")", " ").trim())) {
+			String constraint = part.trim();
+			if (constraint.startsWith("*") || constraint.startsWith("<") || constraint.startsWith(">")) {
+				return all(dataSet);
+			}
+			Matcher matcher = SCTID.matcher(constraint);
+			if (!matcher.find()) {
+				throw new IllegalArgumentException("ECL not supported by the test server: " + ecl);
+			}
+			ids.add(matcher.group());
+		}
+		return ofIds(dataSet, ids);
+	}
+
+	ConceptSelection intersect(ConceptSelection other) {
+		if (indices == null) {
+			return other;
+		} else if (other.indices == null) {
+			return this;
+		}
+		return new ConceptSelection(conceptCount, Arrays.stream(indices).filter(index -> Arrays.binarySearch(other.indices, index) >= 0).toArray());
+	}
+
+	boolean isAll() {
+		return indices == null;
+	}
+
+	int size() {
+		return indices == null ? conceptCount : indices.length;
+	}
+
+	/**
+	 * @return the concept index at this position of the selection.
+	 */
+	int get(int position) {
+		return indices == null ? position : indices[position];
+	}
+
+	/**
+	 * @return the position of the first selected concept with an index greater than the given one.
+	 */
+	int positionAfter(int index) {
+		if (indices == null) {
+			return Math.max(0, Math.min(conceptCount, index + 1));
+		}
+		int position = Arrays.binarySearch(indices, index);
+		return position >= 0 ? position + 1 : -(position + 1);
+	}
+}
@@ -0,0 +1,930 @@
+package org.ihtsdo.otf.snowstorm.testserver;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.GZIPOutputStream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+/**
+ * An in process stand in for Snowstorm which serves the endpoints used by the rest clients in this project from a
+ * {@link SyntheticDataSet}, so that clients can be tested and benchmarked against any number of concepts without
+ * a real server. Latency, injected failures and the duration of asynchronous jobs (imports, exports and
+ * classifications) can be configured. Responses are streamed, gzip compressed when the client accepts it.
+ * <p>
+ * Only a small subset of ECL is understood, see {@link ConceptSelection}. A bulk concept change fails if any term in
+ * it contains {@link #INVALID_TERM_MARKER}, otherwise concepts sent without an id are given new ones. A branch review
+ * reports the concepts given to {@link #commitToBranch(String, String...)} for its source branch, a merge review those
+ * given for both its source and target branches. A merge review is refused if its source branch path contains
+ * {@link #UNREVIEWABLE_BRANCH_MARKER}.
+ */
+public class FakeSnowstormServer implements AutoCloseable {
+
+	public static final String INVALID_TERM_MARKER = "INVALID";
+	public static final String UNREVIEWABLE_BRANCH_MARKER = "UNREVIEWABLE";
+
+	private static final JsonFactory JSON_FACTORY = new JsonFactory();
+	private static final int DEFAULT_PAGE_SIZE = 50;
+
+	private enum JobType {
+		IMPORT, EXPORT, CLASSIFICATION, BULK_CHANGE, REVIEW, MERGE_REVIEW
+	}
+
+	private final SyntheticDataSet dataSet;
+	private final long startTimestamp = System.currentTimeMillis();
+
+	private int threads = 16;
+	private volatile long latencyMillis;
+	private volatile long latencyJitterMillis;
+	private volatile double errorRate;
+	private volatile long jobDurationMillis = 200;
+	private volatile boolean compression = true;
+
+	private final AtomicLong requestCount = new AtomicLong();
+	private final AtomicLong injectedFailureCount = new AtomicLong();
+	private final AtomicLong uploadedBytes = new AtomicLong();
+	private final AtomicInteger newConceptCount = new AtomicInteger();
+
+	private final Map<String, Long> branchHeads = new ConcurrentHashMap<>();
+	private final Map<String, Set<String>> changedConcepts = new ConcurrentHashMap<>();
+	private final Map<String, Job> jobs = new ConcurrentHashMap<>();
+	private final Map<String, String> latestClassificationByBranch = new ConcurrentHashMap<>();
+
+	private HttpServer server;
+	private ExecutorService executor;
+	private volatile String url;
+
+	public FakeSnowstormServer(int conceptCount) {
+		this.dataSet = new SyntheticDataSet(conceptCount);
+	}
+
+	public synchronized void start() throws IOException {
+		if (server != null) {
+			return;
+		}
+		server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+		AtomicInteger threadNumber = new AtomicInteger();
+		executor = Executors.newFixedThreadPool(threads, runnable -> {
+			Thread thread = new Thread(runnable, "fake-snowstorm-" + threadNumber.incrementAndGet());
+			thread.setDaemon(true);
+			return thread;
+		});
+		server.setExecutor(executor);
+		server.createContext("/", this::handle);
+		server.start();
+		url = "http://" + server.getAddress().getAddress().getHostAddress() + ":" + server.getAddress().getPort();
+	}
+
+	public synchronized void stop() {
+		if (server != null) {
+			server.stop(0);
+			executor.shutdownNow();
+			server = null;
+			executor = null;
+		}
+	}
+
+	@Override
+	public void close() {
+		stop();
+	}
+
+	/**
+	 * @return the url to give to a client, without a trailing slash.
+	 */
+	public String getUrl() {
+		if (url == null) {
+			throw new IllegalStateException("Server not started");
+		}
+		return url;
+	}
+
+	public SyntheticDataSet getDataSet() {
+		return dataSet;
+	}
+
+	/**
+	 * Moves the head of the branch on, as if a commit changing the given concepts had been made to it.
+	 */
+	public void commitToBranch(String branchPath, String... conceptIds) {
+		Set<String> changed = changedConcepts.computeIfAbsent(branchPath, path -> ConcurrentHashMap.newKeySet());
+		Collections.addAll(changed, conceptIds);
+		branchHeads.merge(branchPath, System.currentTimeMillis(), (previous, now) -> Math.max(previous + 1, now));
+	}
+
+	private void handle(HttpExchange exchange) {
+		try {
+			requestCount.incrementAndGet();
+			delay();
+			if (errorRate > 0 && ThreadLocalRandom.current().nextDouble() < errorRate) {
+				injectedFailureCount.incrementAndGet();
+				drain(exchange);
+				sendError(exchange, 503, "Injected failure");
+				return;
+			}
+			route(exchange);
+		} catch (IllegalArgumentException e) {
+			sendError(exchange, 400, e.getMessage());
+		} catch (Exception e) {
+			sendError(exchange, 500, e.toString());
+		} finally {
+			exchange.close();
+		}
+	}
+
+	private void route(HttpExchange exchange) throws IOException {
+		String method = exchange.getRequestMethod();
+		String path = exchange.getRequestURI().getPath();
+		Map<String, List<String>> params = parseQuery(exchange.getRequestURI().getRawQuery());
+		if (path.startsWith("/branches/") && "GET".equals(method)) {
+			branch(exchange, path.substring("/branches/".length()));
+		} else if (path.startsWith("/merge-reviews")) {
+			mergeReviews(exchange, method, path.substring("/merge-reviews".length()));
+		} else if (path.startsWith("/reviews")) {
+			reviews(exchange, method, path.substring("/reviews".length()));
+		} else if (path.startsWith("/imports")) {
+			imports(exchange, method, path.substring("/imports".length()));
+		} else if (path.startsWith("/exports")) {
+			exports(exchange, method, path.substring("/exports".length()));
+		} else if (path.startsWith("/browser/") && path.contains("/concepts/bulk")) {
+			bulkConceptChange(exchange, method, path);
+		} else if (path.startsWith("/browser/") && path.contains("/concepts/") && "GET".equals(method)) {
+			browserConcept(exchange, path.substring(path.lastIndexOf('/') + 1));
+		} else if (path.endsWith("/concepts") && "GET".equals(method)) {
+			concepts(exchange, params);
+		} else if (path.endsWith("/members") && "GET".equals(method)) {
+			members(exchange, params);
+		} else if (path.contains("/classifications")) {
+			String branchPath = path.substring(1, path.indexOf("/classifications"));
+			String classificationId = path.endsWith("/classifications") ? null : path.substring(path.lastIndexOf('/') + 1);
+			classifications(exchange, method, branchPath, classificationId);
+		} else {
+			sendError(exchange, 404, "No fake for " + method + " " + path);
+		}
+	}
+
+	private void branch(HttpExchange exchange, String branchPath) throws IOException {
+		long head = branchHeads.getOrDefault(branchPath, startTimestamp);
+		int lastSlash = branchPath.lastIndexOf('/');
+		writeJson(exchange, 200, json -> {
+			json.writeStartObject();
+			json.writeStringField("name", branchPath.substring(lastSlash + 1));
+			json.writeStringField("path", branchPath);
+			json.writeStringField("state", "UP_TO_DATE");
+			json.writeBooleanField("deleted", false);
+			json.writeNumberField("baseTimestamp", startTimestamp);
+			json.writeNumberField("headTimestamp", head);
+			json.writeObjectFieldStart("metadata");
+			json.writeEndObject();
+			json.writeEndObject();
+		});
+	}
+
+	private void concepts(HttpExchange exchange, Map<String, List<String>> params) throws IOException {
+		ConceptSelection selection = ConceptSelection.all(dataSet);
+		List<String> conceptIds = params.getOrDefault("conceptIds", Collections.emptyList());
+		if (!conceptIds.isEmpty()) {
+			selection = ConceptSelection.ofIds(dataSet, conceptIds);
+		}
+		String ecl = first(params, "ecl") != null ? first(params, "ecl") : first(params, "statedEcl");
+		if (ecl != null) {
+			selection = selection.intersect(ConceptSelection.ofEcl(dataSet, ecl));
+		}
+		int limit = intParam(params, "limit", DEFAULT_PAGE_SIZE);
+		String searchAfter = first(params, "searchAfter");
+		int from = searchAfter != null ? selection.positionAfter(Integer.parseInt(searchAfter)) : intParam(params, "offset", 0);
+		int to = Math.min(selection.size(), from + limit);
+		String expand = first(params, "expand");
+		boolean withDescriptions = expand != null && expand.contains("descriptions()");
+		ConceptSelection page = selection;
+		writeJson(exchange, 200, json -> {
+			json.writeStartObject();
+			json.writeArrayFieldStart("items");
+			for (int position = from; position < to; position++) {
+				writeConcept(json, page.get(position), withDescriptions);
+			}
+			json.writeEndArray();
+			json.writeNumberField("total", page.size());
+			json.writeNumberField("limit", limit);
+			json.writeNumberField("offset", from);
+			if (to > from) {
+				writeSearchAfter(json, page.get(to - 1));
+			}
+			json.writeEndObject();
+		});
+	}
+
+	private void writeConcept(JsonGenerator json, int index, boolean withDescriptions) throws IOException {
+		String conceptId = dataSet.getConceptId(index);
+		json.writeStartObject();
+		json.writeStringField("conceptId", conceptId);
+		json.writeStringField("id", conceptId);
+		json.writeBooleanField("active", true);
+		json.writeStringField("definitionStatus", "PRIMITIVE");
+		json.writeStringField("moduleId", SyntheticDataSet.MODULE_ID);
+		json.writeStringField("effectiveTime", SyntheticDataSet.EFFECTIVE_TIME);
+		writeTerm(json, "fsn", dataSet.getFsn(index));
+		writeTerm(json, "pt", dataSet.getPreferredTerm(index));
+		if (withDescriptions) {
+			json.writeObjectFieldStart("descriptions");
+			json.writeArrayFieldStart("items");
+			writeSimpleDescription(json, dataSet.getFsnDescriptionId(index), SyntheticDataSet.FSN_TYPE_ID, dataSet.getFsn(index));
+			writeSimpleDescription(json, dataSet.getSynonymDescriptionId(index), SyntheticDataSet.SYNONYM_TYPE_ID, dataSet.getPreferredTerm(index));
+			json.writeEndArray();
+			json.writeNumberField("total", 2);
+			json.writeEndObject();
+		}
+		json.writeEndObject();
+	}
+
+	private static void writeTerm(JsonGenerator json, String field, String term) throws IOException {
+		json.writeObjectFieldStart(field);
+		json.writeStringField("term", term);
+		json.writeStringField("lang", "en");
+		json.writeEndObject();
+	}
+
+	private static void writeSimpleDescription(JsonGenerator json, String descriptionId, String typeId, String term) throws IOException {
+		json.writeStartObject();
+		json.writeStringField("id", descriptionId);
+		json.writeBooleanField("active", true);
+		json.writeStringField("typeId", typeId);
+		json.writeStringField("term", term);
+		json.writeEndObject();
+	}
+
+	private static void writeSearchAfter(JsonGenerator json, int index) throws IOException {
+		json.writeStringField("searchAfter", String.valueOf(index));
+		json.writeArrayFieldStart("searchAfterArray");
+		json.writeNumber(index);
+		json.writeEndArray();
+	}
+
+	private void members(HttpExchange exchange, Map<String, List<String>> params) throws IOException {
+		String referenceSet = first(params, "referenceSet");
+		String referencedComponentId = first(params, "referencedComponentId");
+		String active = first(params, "active");
+		String module = first(params, "module");
+		boolean none = (referenceSet != null && !SyntheticDataSet.REFSET_ID.equals(referenceSet))
+				|| (module != null && !SyntheticDataSet.MODULE_ID.equals(module));
+		ConceptSelection selection = none ? ConceptSelection.ofIds(dataSet, Collections.emptyList())
+				: referencedComponentId != null ? ConceptSelection.ofIds(dataSet, List.of(referencedComponentId))
+				: ConceptSelection.all(dataSet);
+		Boolean activeFilter = active != null ? Boolean.valueOf(active) : null;
+
+		int limit = intParam(params, "limit", DEFAULT_PAGE_SIZE);
+		String searchAfter = first(params, "searchAfter");
+		int offset = searchAfter != null ? 0 : intParam(params, "offset", 0);
+		int start = searchAfter != null ? selection.positionAfter(Integer.parseInt(searchAfter)) : 0;
+		int skipped = 0;
+		List<Integer> page = new ArrayList<>();
+		for (int position = start; position < selection.size() && page.size() < limit; position++) {
+			int index = selection.get(position);
+			if (activeFilter == null || activeFilter == dataSet.isMemberActive(index)) {
+				if (skipped < offset) {
+					skipped++;
+				} else {
+					page.add(index);
+				}
+			}
+		}
+		int total = countMembers(selection, activeFilter);
+		writeJson(exchange, 200, json -> {
+			json.writeStartObject();
+			json.writeArrayFieldStart("items");
+			for (int index : page) {
+				writeMember(json, index);
+			}
+			json.writeEndArray();
+			json.writeNumberField("total", total);
+			json.writeNumberField("limit", limit);
+			json.writeNumberField("offset", offset);
+			if (!page.isEmpty()) {
+				writeSearchAfter(json, page.get(page.size() - 1));
+			}
+			json.writeEndObject();
+		});
+	}
+
+	private int countMembers(ConceptSelection selection, Boolean activeFilter) {
+		if (activeFilter == null) {
+			return selection.size();
+		} else if (selection.isAll()) {
+			// Every tenth membership is inactive
+			int inactive = selection.size() / 10;
+			return activeFilter ? selection.size() - inactive : inactive;
+		}
+		int count = 0;
+		for (int position = 0; position < selection.size(); position++) {
+			if (activeFilter == dataSet.isMemberActive(selection.get(position))) {
+				count++;
+			}
+		}
+		return count;
+	}
+
+	private void writeMember(JsonGenerator json, int index) throws IOException {
+		json.writeStartObject();
+		json.writeStringField("memberId", dataSet.getMemberId(index));
+		json.writeStringField("effectiveTime", SyntheticDataSet.EFFECTIVE_TIME);
+		json.writeBooleanField("released", true);
+		json.writeStringField("releasedEffectiveTime", SyntheticDataSet.EFFECTIVE_TIME);
+		json.writeBooleanField("active", dataSet.isMemberActive(index));
+		json.writeStringField("moduleId", SyntheticDataSet.MODULE_ID);
+		json.writeStringField("refsetId", SyntheticDataSet.REFSET_ID);
+		json.writeStringField("referencedComponentId", dataSet.getConceptId(index));
+		json.writeObjectFieldStart("additionalFields");
+		json.writeEndObject();
+		json.writeEndObject();
+	}
+
+	private void browserConcept(HttpExchange exchange, String conceptId) throws IOException {
+		int index = dataSet.indexOf(conceptId);
+		if (index == -1) {
+			sendError(exchange, 404, "Concept " + conceptId + " not found");
+			return;
+		}
+		writeJson(exchange, 200, json -> writeBrowserConcept(json, index));
+	}
+
+	private void writeBrowserConcept(JsonGenerator json, int index) throws IOException {
+		String conceptId = dataSet.getConceptId(index);
+		json.writeStartObject();
+		json.writeStringField("conceptId", conceptId);
+		json.writeStringField("effectiveTime", SyntheticDataSet.EFFECTIVE_TIME);
+		json.writeBooleanField("active", true);
+		json.writeBooleanField("released", true);
+		json.writeStringField("moduleId", SyntheticDataSet.MODULE_ID);
+		json.writeStringField("definitionStatus", "PRIMITIVE");
+		writeTerm(json, "fsn", dataSet.getFsn(index));
+		writeTerm(json, "pt", dataSet.getPreferredTerm(index));
+		json.writeArrayFieldStart("descriptions");
+		writeBrowserDescription(json, conceptId, dataSet.getFsnDescriptionId(index), "FSN", dataSet.getFsn(index));
+		writeBrowserDescription(json, conceptId, dataSet.getSynonymDescriptionId(index), "SYNONYM", dataSet.getPreferredTerm(index));
+		json.writeEndArray();
+		json.writeArrayFieldStart("classAxioms");
+		json.writeEndArray();
+		json.writeArrayFieldStart("relationships");
+		json.writeEndArray();
+		json.writeEndObject();
+	}
+
+	private static void writeBrowserDescription(JsonGenerator json, String conceptId, String descriptionId, String type, String term) throws IOException {
+		json.writeStartObject();
+		json.writeStringField("descriptionId", descriptionId);
+		json.writeBooleanField("active", true);
+		json.writeStringField("effectiveTime", SyntheticDataSet.EFFECTIVE_TIME);
+		json.writeBooleanField("released", true);
+		json.writeStringField("term", term);
+		json.writeStringField("conceptId", conceptId);
+		json.writeStringField("moduleId", SyntheticDataSet.MODULE_ID);
+		json.writeStringField("lang", "en");
+		json.writeStringField("type", type);
+		json.writeStringField("caseSignificance", "CASE_INSENSITIVE");
+		json.writeObjectFieldStart("acceptabilityMap");
+		json.writeStringField("900000000000509007", "PREFERRED");
+		json.writeEndObject();
+		json.writeEndObject();
+	}
+
+	private void bulkConceptChange(HttpExchange exchange, String method, String path) throws IOException {
+		int bulkStart = path.indexOf("/concepts/bulk");
+		String branchPath = path.substring("/browser/".length(), bulkStart);
+		String subPath = path.substring(bulkStart + "/concepts/bulk".length());
+		if (subPath.isEmpty() && "POST".equals(method)) {
+			List<String> conceptIds = new ArrayList<>();
+			String failure = readBulkConcepts(exchange, conceptIds);
+			String changeId = startJob(JobType.BULK_CHANGE, branchPath);
+			Job job = jobs.get(changeId);
+			job.conceptIds = conceptIds;
+			job.failureMessage = failure;
+			created(exchange, getUrl() + "/browser/" + branchPath + "/concepts/bulk/" + changeId);
+			return;
+		}
+		String changeId = subPath.length() > 1 ? subPath.substring(1) : "";
+		Job job = jobs.get(changeId);
+		if (job == null || job.type != JobType.BULK_CHANGE || !"GET".equals(method)) {
+			sendError(exchange, 404, "Bulk change " + changeId + " not found");
+			return;
+		}
+		String status = job.getStatus(jobDurationMillis);
+		writeJson(exchange, 200, json -> {
+			json.writeStartObject();
+			json.writeStringField("id", changeId);
+			json.writeStringField("status", status);
+			if ("COMPLETED".equals(status)) {
+				json.writeArrayFieldStart("conceptIds");
+				for (String conceptId : job.conceptIds) {
+					json.writeNumber(Long.parseLong(conceptId));
+				}
+				json.writeEndArray();
+			} else if ("FAILED".equals(status)) {
+				json.writeStringField("message", job.failureMessage);
+			}
+			json.writeEndObject();
+		});
+	}
+
+	/**
+	 * Reads the id of each concept of a bulk change, assigning one where it has none.
+	 * @return why the change will fail, or {@code null}.
+	 */
+	private String readBulkConcepts(HttpExchange exchange, List<String> conceptIds) throws IOException {
+		String failure = null;
+		try (JsonParser parser = JSON_FACTORY.createParser(exchange.getRequestBody())) {
+			if (parser.nextToken() != JsonToken.START_ARRAY) {
+				throw new IllegalArgumentException("Expected an array of concepts");
+			}
+			while (parser.nextToken() == JsonToken.START_OBJECT) {
+				String conceptId = null;
+				int depth = 1;
+				while (depth > 0) {
+					JsonToken token = parser.nextToken();
+					if (token == null) {
+						throw new IllegalArgumentException("Unexpected end of concepts");
+					} else if (token == JsonToken.START_OBJECT || token == JsonToken.START_ARRAY) {
+						depth++;
+					} else if (token == JsonToken.END_OBJECT || token == JsonToken.END_ARRAY) {
+						depth--;
+					} else if (token == JsonToken.VALUE_STRING) {
+						String field = parser.getCurrentName();
+						if (depth == 1 && "conceptId".equals(field)) {
+							conceptId = parser.getText();
+						} else if ("term".equals(field) && failure == null && parser.getText().contains(INVALID_TERM_MARKER)) {
+							failure = "Concept " + (conceptIds.size() + 1) + " of the batch has an invalid term '" + parser.getText() + "'";
+						}
+					}
+				}
+				// New concepts are given ids after those of the data set
+				conceptIds.add(conceptId != null && !conceptId.isEmpty() ? conceptId
+						: dataSet.getConceptId(dataSet.getConceptCount() + newConceptCount.getAndIncrement()));
+			}
+		}
+		return failure;
+	}
+
+	private void reviews(HttpExchange exchange, String method, String subPath) throws IOException {
+		if (subPath.isEmpty() && "POST".equals(method)) {
+			String source = null;
+			try (JsonParser parser = JSON_FACTORY.createParser(exchange.getRequestBody())) {
+				while (parser.nextToken() != null) {
+					if (parser.currentToken() == JsonToken.VALUE_STRING && "source".equals(parser.getCurrentName())) {
+						source = parser.getText();
+					}
+				}
+			}
+			if (source == null) {
+				throw new IllegalArgumentException("Review source branch is required");
+			}
+			String reviewId = startJob(JobType.REVIEW, source);
+			jobs.get(reviewId).conceptIds = new ArrayList<>(new TreeSet<>(changedConcepts.getOrDefault(source, Collections.emptySet())));
+			created(exchange, getUrl() + "/reviews/" + reviewId);
+			return;
+		}
+		String[] parts = subPath.length() > 1 ? subPath.substring(1).split("/") : new String[] {""};
+		Job job = jobs.get(parts[0]);
+		if (job == null || job.type != JobType.REVIEW || !"GET".equals(method)) {
+			sendError(exchange, 404, "Review " + parts[0] + " not found");
+			return;
+		}
+		boolean current = "COMPLETED".equals(job.getStatus(jobDurationMillis));
+		if (parts.length > 1 && "concept-changes".equals(parts[1])) {
+			if (!current) {
+				sendError(exchange, 409, "Review " + parts[0] + " is not current");
+				return;
+			}
+			writeJson(exchange, 200, json -> {
+				json.writeStartObject();
+				json.writeArrayFieldStart("changedConcepts");
+				for (String conceptId : job.conceptIds) {
+					json.writeString(conceptId);
+				}
+				json.writeEndArray();
+				json.writeEndObject();
+			});
+			return;
+		}
+		writeJson(exchange, 200, json -> {
+			json.writeStartObject();
+			json.writeStringField("id", parts[0]);
+			json.writeStringField("status", current ? "CURRENT" : "PENDING");
+			json.writeEndObject();
+		});
+	}
+
+	private void mergeReviews(HttpExchange exchange, String method, String subPath) throws IOException {
+		if (subPath.isEmpty() && "POST".equals(method)) {
+			Map<String, String> request = new HashMap<>();
+			try (JsonParser parser = JSON_FACTORY.createParser(exchange.getRequestBody())) {
+				while (parser.nextToken() != null) {
+					if (parser.currentToken() == JsonToken.VALUE_STRING) {
+						request.put(parser.getCurrentName(), parser.getText());
+					}
+				}
+			}
+			String source = request.get("source");
+			String target = request.get("target");
+			if (source == null || target == null) {
+				throw new IllegalArgumentException("Merge review source and target branches are required");
+			}
+			if (source.contains(UNREVIEWABLE_BRANCH_MARKER)) {
+				sendError(exchange, 400, "Branch " + source + " can not be reviewed");
+				return;
+			}
+			// Concepts changed on both branches are the conflicts
+			Set<String> conflicts = new TreeSet<>(changedConcepts.getOrDefault(source, Collections.emptySet()));
+			conflicts.retainAll(changedConcepts.getOrDefault(target, Collections.emptySet()));
+			String mergeReviewId = startJob(JobType.MERGE_REVIEW, source);
+			Job job = jobs.get(mergeReviewId);
+			job.targetPath = target;
+			job.conceptIds = new ArrayList<>(conflicts);
+			created(exchange, getUrl() + "/merge-reviews/" + mergeReviewId);
+			return;
+		}
+		String[] parts = subPath.length() > 1 ? subPath.substring(1).split("/") : new String[] {""};
+		Job job = jobs.get(parts[0]);
+		if (job == null || job.type != JobType.MERGE_REVIEW || !"GET".equals(method)) {
+			sendError(exchange, 404, "Merge review " + parts[0] + " not found");
+			return;
+		}
+		boolean current = "COMPLETED".equals(job.getStatus(jobDurationMillis));
+		if (parts.length > 1 && "details".equals(parts[1])) {
+			if (!current) {
+				sendError(exchange, 409, "Merge review " + parts[0] + " is not current");
+				return;
+			}
+			writeJson(exchange, 200, json -> {
+				json.writeStartArray();
+				for (String conceptId : job.conceptIds) {
+					int index = dataSet.indexOf(conceptId);
+					if (index == -1) {
+						continue;
+					}
+					json.writeStartObject();
+					json.writeFieldName("sourceConcept");
+					writeBrowserConcept(json, index);
+					json.writeFieldName("targetConcept");
+					writeBrowserConcept(json, index);
+					json.writeFieldName("autoMergedConcept");
+					writeBrowserConcept(json, index);
+					json.writeBooleanField("targetConceptVersionBehind", true);
+					json.writeEndObject();
+				}
+				json.writeEndArray();
+			});
+			return;
+		}
+		writeJson(exchange, 200, json -> {
+			json.writeStartObject();
+			json.writeStringField("id", parts[0]);
+			json.writeStringField("sourcePath", job.branchPath);
+			json.writeStringField("targetPath", job.targetPath);
+			json.writeStringField("status", current ? "CURRENT" : "PENDING");
+			json.writeEndObject();
+		});
+	}
+
+	private void imports(HttpExchange exchange, String method, String subPath) throws IOException {
+		if (subPath.isEmpty() && "POST".equals(method)) {
+			drain(exchange);
+			String importId = startJob(JobType.IMPORT, null);
+			created(exchange, getUrl() + "/imports/" + importId);
+			return;
+		}
+		String[] parts = subPath.substring(1).split("/");
+		Job job = jobs.get(parts[0]);
+		if (job == null || job.type != JobType.IMPORT) {
+			drain(exchange);
+			sendError(exchange, 404, "Import " + parts[0] + " not found");
+		} else if (parts.length == 2 && "archive".equals(parts[1]) && "POST".equals(method)) {
+			drain(exchange);
+			// Processing starts once the archive has arrived
+			job.startedAt = System.currentTimeMillis();
+			created(exchange, null);
+		} else if (parts.length == 1 && "GET".equals(method)) {
+			writeJob(exchange, parts[0], job);
+		} else {
+			sendError(exchange, 404, "No fake for " + method + " /imports" + subPath);
+		}
+	}
+
+	private void exports(HttpExchange exchange, String method, String subPath) throws IOException {
+		if (subPath.isEmpty() && "POST".equals(method)) {
+			drain(exchange);
+			String exportId = startJob(JobType.EXPORT, null);
+			created(exchange, getUrl() + "/exports/" + exportId);
+			return;
+		}
+		String[] parts = subPath.substring(1).split("/");
+		Job job = jobs.get(parts[0]);
+		if (job == null || job.type != JobType.EXPORT) {
+			sendError(exchange, 404, "Export " + parts[0] + " not found");
+		} else if (parts.length == 2 && "archive".equals(parts[1]) && "GET".equals(method)) {
+			writeExportArchive(exchange);
+		} else if (parts.length == 1 && "GET".equals(method)) {
+			writeJob(exchange, parts[0], job);
+		} else {
+			sendError(exchange, 404, "No fake for " + method + " /exports" + subPath);
+		}
+	}
+
+	private void writeExportArchive(HttpExchange exchange) throws IOException {
+		exchange.getResponseHeaders().set("Content-Type", "application/zip");
+		try (ZipOutputStream zip = new ZipOutputStream(openBody(exchange, 200, false))) {
+			zip.putNextEntry(new ZipEntry("SnomedCT_Export/RF2Release/Terminology/sct2_Concept_Delta_INT_" + SyntheticDataSet.EFFECTIVE_TIME + ".txt"));
+			Writer writer = new OutputStreamWriter(zip, StandardCharsets.UTF_8);
+			writer.write("id\teffectiveTime\tactive\tmoduleId\tdefinitionStatusId\r\n");
+			for (int index = 0; index < dataSet.getConceptCount(); index++) {
+				writer.write(dataSet.getConceptId(index) + "\t" + SyntheticDataSet.EFFECTIVE_TIME + "\t1\t" + SyntheticDataSet.MODULE_ID + "\t900000000000074008\r\n");
+			}
+			writer.flush();
+			zip.closeEntry();
+		}
+	}
+
+	private void classifications(HttpExchange exchange, String method, String branchPath, String classificationId) throws IOException {
+		if (classificationId == null) {
+			String latestId = latestClassificationByBranch.get(branchPath);
+			switch (method) {
+				case "POST" -> {
+					drain(exchange);
+					String newId = startJob(JobType.CLASSIFICATION, branchPath);
+					latestClassificationByBranch.put(branchPath, newId);
+					created(exchange, getUrl() + "/" + branchPath + "/classifications/" + newId);
+				}
+				case "PUT" -> {
+					drain(exchange);
+					if (latestId == null) {
+						sendError(exchange, 404, "No classification on " + branchPath);
+					} else {
+						jobs.get(latestId).saved = true;
+						writeJson(exchange, 200, json -> {
+							json.writeStartObject();
+							json.writeEndObject();
+						});
+					}
+				}
+				case "GET" -> writeJson(exchange, 200, json -> {
+					// The status of the latest classification is repeated at the top level, as the client polls this url when saving
+					json.writeStartObject();
+					json.writeArrayFieldStart("items");
+					if (latestId != null) {
+						writeClassification(json, latestId, jobs.get(latestId));
+					}
+					json.writeEndArray();
+					json.writeNumberField("total", latestId != null ? 1 : 0);
+					if (latestId != null) {
+						json.writeStringField("status", jobs.get(latestId).getStatus(jobDurationMillis));
+					}
+					json.writeEndObject();
+				});
+				default -> sendError(exchange, 405, method + " not supported");
+			}
+			return;
+		}
+		Job job = jobs.get(classificationId);
+		if (job == null || job.type != JobType.CLASSIFICATION || !"GET".equals(method)) {
+			sendError(exchange, 404, "Classification " + classificationId + " not found");
+			return;
+		}
+		writeJson(exchange, 200, json -> writeClassification(json, classificationId, job));
+	}
+
+	private void writeClassification(JsonGenerator json, String classificationId, Job job) throws IOException {
+		json.writeStartObject();
+		json.writeStringField("id", classificationId);
+		json.writeStringField("path", job.branchPath);
+		json.writeStringField("status", job.getStatus(jobDurationMillis));
+		json.writeBooleanField("equivalentConceptsFound", false);
+		json.writeBooleanField("inferredRelationshipChangesFound", false);
+		json.writeEndObject();
+	}
+
+	private String startJob(JobType type, String branchPath) {
+		String id = UUID.randomUUID().toString();
+		jobs.put(id, new Job(type, branchPath));
+		return id;
+	}
+
+	private void writeJob(HttpExchange exchange, String id, Job job) throws IOException {
+		writeJson(exchange, 200, json -> {
+			json.writeStartObject();
+			json.writeStringField("id", id);
+			json.writeStringField("status", job.getStatus(jobDurationMillis));
+			json.writeEndObject();
+		});
+	}
+
+	private void created(HttpExchange exchange, String location) throws IOException {
+		if (location != null) {
+			exchange.getResponseHeaders().set("Location", location);
+		}
+		// Resty expects a json body
+		writeJson(exchange, 201, json -> {
+			json.writeStartObject();
+			json.writeEndObject();
+		});
+	}
+
+	private void delay() {
+		long delay = latencyMillis + (latencyJitterMillis > 0 ? ThreadLocalRandom.current().nextLong(latencyJitterMillis + 1) : 0);
+		if (delay > 0) {
+			try {
+				Thread.sleep(delay);
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+		}
+	}
+
+	private void drain(HttpExchange exchange) throws IOException {
+		byte[] buffer = new byte[8192];
+		try (InputStream body = exchange.getRequestBody()) {
+			int read;
+			while ((read = body.read(buffer)) != -1) {
+				uploadedBytes.addAndGet(read);
+			}
+		}
+	}
+
+	private interface JsonBody {
+		void write(JsonGenerator json) throws IOException;
+	}
+
+	private void writeJson(HttpExchange exchange, int status, JsonBody body) throws IOException {
+		exchange.getResponseHeaders().set("Content-Type", "application/json");
+		try (JsonGenerator json = JSON_FACTORY.createGenerator(openBody(exchange, status, compression))) {
+			body.write(json);
+		}
+	}
+
+	private OutputStream openBody(HttpExchange exchange, int status, boolean compress) throws IOException {
+		String acceptEncoding = exchange.getRequestHeaders().getFirst("Accept-Encoding");
+		boolean gzip = compress && acceptEncoding != null && acceptEncoding.contains("gzip");
+		if (gzip) {
+			exchange.getResponseHeaders().set("Content-Encoding", "gzip");
+		}
+		// Length unknown, the body is chunked
+		exchange.sendResponseHeaders(status, 0);
+		return gzip ? new GZIPOutputStream(exchange.getResponseBody(), 8192) : exchange.getResponseBody();
+	}
+
+	private void sendError(HttpExchange exchange, int status, String message) {
+		if (exchange.getResponseCode() != -1) {
+			// Too late, the response has started
+			return;
+		}
+		try {
+			writeJson(exchange, status, json -> {
+				json.writeStartObject();
+				json.writeStringField("error", String.valueOf(status));
+				json.writeStringField("message", message);
+				json.writeEndObject();
+			});
+		} catch (IOException e) {
+			// The client has gone
+		}
+	}
+
+	private static Map<String, List<String>> parseQuery(String rawQuery) {
+		Map<String, List<String>> params = new HashMap<>();
+		if (rawQuery == null || rawQuery.isEmpty()) {
+			return params;
+		}
+		for (String pair : rawQuery.split("&")) {
+			String[] nameValue = pair.split("=", 2);
+			String name = URLDecoder.decode(nameValue[0], StandardCharsets.UTF_8);
+			String value = nameValue.length > 1 ? URLDecoder.decode(nameValue[1], StandardCharsets.UTF_8) : "";
+			List<String> values = params.computeIfAbsent(name, key -> new ArrayList<>());
+			if ("conceptIds".equals(name)) {
+				for (String conceptId : value.split(",")) {
+					values.add(conceptId.trim());
+				}
+			} else {
+				values.add(value);
+			}
+		}
+		return params;
+	}
+
+	private static String first(Map<String, List<String>> params, String name) {
+		List<String> values = params.get(name);
+		return values == null || values.isEmpty() ? null : values.get(0);
+	}
+
+	private static int intParam(Map<String, List<String>> params, String name, int defaultValue) {
+		String value = first(params, name);
+		return value != null ? Integer.parseInt(value) : defaultValue;
+	}
+
+	private static class Job {
+
+		private final JobType type;
+		private final String branchPath;
+		private volatile long startedAt = System.currentTimeMillis();
+		private volatile boolean saved;
+		private volatile String targetPath;
+		private volatile List<String> conceptIds;
+		private volatile String failureMessage;
+
+		private Job(JobType type, String branchPath) {
+			this.type = type;
+			this.branchPath = branchPath;
+		}
+
+		private String getStatus(long durationMillis) {
+			if (saved) {
+				return "SAVED";
+			}
+			if (System.currentTimeMillis() - startedAt < durationMillis) {
+				return "RUNNING";
+			}
+			return failureMessage != null ? "FAILED" : "COMPLETED";
+		}
+	}
+
+	/**
+	 * Must be set before the server is started.
+	 */
+	public synchronized void setThreads(int threads) {
+		this.threads = threads;
+	}
+
+	public void setLatencyMillis(long latencyMillis) {
+		this.latencyMillis = latencyMillis;
+	}
+
+	/**
+	 * @param latencyJitterMillis up to this much is added at random to the latency of each request.
+	 */
+	public void setLatencyJitterMillis(long latencyJitterMillis) {
+		this.latencyJitterMillis = latencyJitterMillis;
+	}
+
+	/**
+	 * @param errorRate the fraction of requests, between 0 and 1, answered with a 503.
+	 */
+	public void setErrorRate(double errorRate) {
+		this.errorRate = errorRate;
+	}
+
+	/**
+	 * @param jobDurationMillis how long imports, exports, classifications, bulk changes, reviews and merge reviews report that they are running.
+	 */
+	public void setJobDurationMillis(long jobDurationMillis) {
+		this.jobDurationMillis = jobDurationMillis;
+	}
+
+	public void setCompression(boolean compression) {
+		this.compression = compression;
+	}
+
+	public long getRequestCount() {
+		return requestCount.get();
+	}
+
+	public long getInjectedFailureCount() {
+		return injectedFailureCount.get();
+	}
+
+	/**
+	 * @return the bytes received in request bodies, eg uploaded import archives.
+	 */
+	public long getUploadedBytes() {
+		return uploadedBytes.get();
+	}
+
+	public void resetCounters() {
+		requestCount.set(0);
+		injectedFailureCount.set(0);
+		uploadedBytes.set(0);
+	}
+}
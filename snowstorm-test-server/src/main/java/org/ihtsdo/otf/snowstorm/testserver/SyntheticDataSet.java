@@ -0,0 +1,86 @@
+package org.ihtsdo.otf.snowstorm.testserver;
+
+import org.ihtsdo.otf.utils.VerhoeffCheck;
+
+import java.nio.charset.StandardCharsets;
+import java.util.UUID;
+
+/**
+ * A terminology of any size which is never held in memory: every concept, description and refset member is worked
+ * out from its index when it is asked for. Concept ids are valid SCTIDs, so the client's id handling is exercised.
+ * Every concept is a member of {@link #REFSET_ID}, and every tenth membership is inactive.
+ */
+public class SyntheticDataSet {
+
+	public static final String MODULE_ID = "900000000000207008";
+	public static final String REFSET_ID = "723264001";
+	public static final String FSN_TYPE_ID = "900000000000003001";
+	public static final String SYNONYM_TYPE_ID = "900000000000013009";
+	public static final String EFFECTIVE_TIME = "20240101";
+
+	private static final long FIRST_ITEM_ID = 100000;
+	private static final String CONCEPT_PARTITION = "00";
+	private static final String DESCRIPTION_PARTITION = "01";
+
+	private final int conceptCount;
+
+	public SyntheticDataSet(int conceptCount) {
+		if (conceptCount < 0) {
+			throw new IllegalArgumentException("Concept count must not be negative");
+		}
+		this.conceptCount = conceptCount;
+	}
+
+	public int getConceptCount() {
+		return conceptCount;
+	}
+
+	public String getConceptId(int index) {
+		return sctid(FIRST_ITEM_ID + index, CONCEPT_PARTITION);
+	}
+
+	/**
+	 * @return the index of the concept with this id, or -1 if it is not one of ours.
+	 */
+	public int indexOf(String conceptId) {
+		if (conceptId == null || conceptId.length() < 9 || !conceptId.chars().allMatch(Character::isDigit)
+				|| !conceptId.startsWith(CONCEPT_PARTITION, conceptId.length() - 3)) {
+			return -1;
+		}
+		long itemId = Long.parseLong(conceptId.substring(0, conceptId.length() - 3));
+		long index = itemId - FIRST_ITEM_ID;
+		if (index < 0 || index >= conceptCount || !getConceptId((int) index).equals(conceptId)) {
+			return -1;
+		}
+		return (int) index;
+	}
+
+	public String getFsn(int index) {
+		return "Synthetic concept " + index + " (finding)";
+	}
+
+	public String getPreferredTerm(int index) {
+		return "Synthetic concept " + index;
+	}
+
+	public String getFsnDescriptionId(int index) {
+		return sctid(FIRST_ITEM_ID + 2L * index, DESCRIPTION_PARTITION);
+	}
+
+	public String getSynonymDescriptionId(int index) {
+		return sctid(FIRST_ITEM_ID + 2L * index + 1, DESCRIPTION_PARTITION);
+	}
+
+	public String getMemberId(int index) {
+		return UUID.nameUUIDFromBytes(("member-" + index).getBytes(StandardCharsets.UTF_8)).toString();
+	}
+
+	public boolean isMemberActive(int index) {
+		return index % 10 != 9;
+	}
+
+	private static String sctid(long itemId, String partition) {
+		String head = itemId + partition;
+		return head + VerhoeffCheck.calculateChecksum(head, false);
+	}
+}